@@ -2,6 +2,7 @@ package cz.cuni.mff.desitka.JSON.server;
 
 import cz.cuni.mff.desitka.JSON.JSON;
 import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
 import cz.cuni.mff.desitka.JSON.server.helper.Turn;
 
 /**
@@ -10,6 +11,7 @@ import cz.cuni.mff.desitka.JSON.server.helper.Turn;
 public class Start extends JSON {
     private final int roundNumber;
     private final Question question;
+    private final Phase phase;
     private final Turn turn;
 
     /**
@@ -17,12 +19,14 @@ public class Start extends JSON {
      *
      * @param roundNumber The round number.
      * @param question The question for the round.
+     * @param phase The phase the message starts.
      * @param turn The turn information.
      */
-    public Start(int roundNumber, Question question, Turn turn) {
+    public Start(int roundNumber, Question question, Phase phase, Turn turn) {
         this.roundNumber = roundNumber;
         this.turn = turn;
         this.question = question;
+        this.phase = phase;
     }
 
     /**
@@ -43,6 +47,15 @@ public class Start extends JSON {
         return turn;
     }
 
+    /**
+     * Returns the phase the message starts.
+     *
+     * @return The phase the message starts.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
     /**
      * Returns the round number.
      *
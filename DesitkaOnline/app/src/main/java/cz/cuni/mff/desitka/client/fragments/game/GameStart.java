@@ -101,8 +101,9 @@ public class GameStart extends Fragment implements GameStates {
         gameViewModel.getWaiting().observe(getViewLifecycleOwner(), waiting -> {
             List<Waiting.WaitingPlayer> waitingPlayers = waiting.getWaitingPlayers();
             String stringSource = requireContext().getResources().getString(R.string.joined_players);
+            int playerCount = (waiting.getPlayerCount() == 0) ? joiningCount : waiting.getPlayerCount();
             addWaitingPlayers(waiting.getWaitingPlayers());
-            joinedPlayersCount.setText(String.format(stringSource, waitingPlayers.size(), joiningCount));
+            joinedPlayersCount.setText(String.format(stringSource, waitingPlayers.size(), playerCount));
         });
     }
 
@@ -150,6 +150,7 @@ public class GameModel implements GameStates, MyJoiningRequests, JoiningResults
      */
     private void processStart(Start start) {
         gameViewModel.getStart().postValue(start);
+        gameTimerThread.postPhase(start.getPhase());
         expectedJSON = Answer.class;
     }
 
@@ -171,6 +172,7 @@ public class GameModel implements GameStates, MyJoiningRequests, JoiningResults
     private void processAnswer(Answer answer) {
         updateQuestion(answer.getAnswerID(), answer.getCorrectAnswerIndex());
         gameViewModel.getAnswer().postValue(answer);
+        gameTimerThread.postPhase(answer.getPhase());
         gameTimerThread.postStateUpdate(GameState.SHOW_ANSWER);
 
         if (answer.getTurn().getRoundPlayers() == 0) {
@@ -199,6 +201,7 @@ public class GameModel implements GameStates, MyJoiningRequests, JoiningResults
      */
     private void processEvaluation(Evaluation evaluation) {
         gameViewModel.getEvaluation().postValue(evaluation);
+        gameTimerThread.postPhase(evaluation.getPhase());
         gameViewModel.getQuestion().postValue(evaluation.getSolvedQuestion());
         expectedJSON = Start.class;
     }
@@ -16,6 +16,7 @@ import cz.cuni.mff.desitka.JSON.GsonParser;
 import cz.cuni.mff.desitka.JSON.client.MyAnswer;
 import cz.cuni.mff.desitka.JSON.server.Evaluation;
 import cz.cuni.mff.desitka.JSON.server.Start;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
 import cz.cuni.mff.desitka.JSON.server.helper.Turn;
 import cz.cuni.mff.desitka.R;
 import cz.cuni.mff.desitka.client.activities.GameActivity;
@@ -24,6 +25,9 @@ import cz.cuni.mff.desitka.client.activities.StartingActivity;
 
 /**
  * A thread for managing game timers and game state transitions.
+ * The timers follow the clock of the server: the phase received with a message ends at its deadline
+ * and the phases following it end at the deadlines the server has scheduled for them,
+ * so the client enters the next phase when the server does instead of after its own scene times.
  */
 public class GameTimerThread extends HandlerThread implements GameStates {
     private final GameViewModel gameViewModel;
@@ -31,6 +35,9 @@ public class GameTimerThread extends HandlerThread implements GameStates {
     private CountDownTimer countDownTimer;
     private Handler handler;
     private Context context;
+    private GameState currentState;
+    private Phase receivedPhase;
+    private long phaseEnd;
 
     /**
      * Constructs a new GameTimerThread.
@@ -88,8 +95,8 @@ public class GameTimerThread extends HandlerThread implements GameStates {
      * @param sceneTime the scene time
      */
     private void startTimer(GameState gameState, long sceneTime) {
-
-        countDownTimer = new CountDownTimer(sceneTime, 1000) {
+        currentState = gameState;
+        countDownTimer = new CountDownTimer(getTimeLeft(gameState, sceneTime), 1000) {
             private final int timerSourceID = getTimerSource(gameState);
             private final String timerSource = resources.getString(timerSourceID);
 
@@ -106,6 +113,50 @@ public class GameTimerThread extends HandlerThread implements GameStates {
         countDownTimer.start();
     }
 
+    /**
+     * Returns the time left for the given game state by the clock of the server.
+     * The state of the received phase ends at its deadline, a state following it ends
+     * its scene time after the end of the previous state. The time left is never longer than the scene time,
+     * so a client clock running behind the server only falls back to the scene times.
+     *
+     * @param gameState the game state
+     * @param sceneTime the scene time
+     * @return the time left in milliseconds
+     */
+    private long getTimeLeft(GameState gameState, long sceneTime) {
+        if (receivedPhase != null && receivedPhase.getName() == gameState) {
+            phaseEnd = receivedPhase.getDeadline();
+            receivedPhase = null;
+        }
+        else if (phaseEnd != 0 && scheduledByServer(gameState)) {
+            phaseEnd += Constants.getSceneTime(gameState);
+        }
+        else {
+            phaseEnd = 0;
+            return sceneTime;
+        }
+        long timeLeft = phaseEnd - System.currentTimeMillis();
+        return Math.max(0, Math.min(sceneTime, timeLeft));
+    }
+
+    /**
+     * Checks if the server schedules the given game state, the states of joining the game
+     * and of waiting for a missing answer are timed by the client alone.
+     *
+     * @param gameState the game state
+     * @return true if the server schedules the state, false otherwise
+     */
+    private boolean scheduledByServer(GameState gameState) {
+        switch (gameState) {
+            case GAME_JOINING:
+            case WAITING_FOR_PLAYERS:
+            case SHOW_ANSWER_WAITING:
+                return false;
+            default:
+                return true;
+        }
+    }
+
     /**
      * Handles the finish of a timer for the given game state.
      *
@@ -247,6 +298,25 @@ public class GameTimerThread extends HandlerThread implements GameStates {
         });
     }
 
+    /**
+     * Posts the phase received from the server, which sets the deadlines of the following timers.
+     * The timer of the current state is restarted if the phase has already been entered.
+     *
+     * @param phase the received phase, or null if the server has not sent any
+     */
+    public void postPhase(Phase phase) {
+        if (phase == null) {
+            return;
+        }
+        handler.post(() -> {
+            receivedPhase = phase;
+            if (currentState == phase.getName()) {
+                cancelTimer();
+                startTimer(currentState, Constants.getSceneTime(currentState));
+            }
+        });
+    }
+
     /**
      * Posts a state update with the default scene time for the new state.
      *
@@ -10,9 +10,10 @@ public class MyJoining extends JSON implements MyJoiningRequests {
     private final String playerName;
     private final String gameCode;
     private final int playerCount;
+    private final int viewsLimit;
 
     /**
-     * Constructs a new MyJoining object.
+     * Constructs a new MyJoining object without a difficulty.
      *
      * @param requestType The type of the request.
      * @param playerName The name of the player.
@@ -20,10 +21,24 @@ public class MyJoining extends JSON implements MyJoiningRequests {
      * @param playerCount The count of the players.
      */
     public MyJoining(RequestType requestType, String playerName, String gameCode, int playerCount) {
+        this(requestType, playerName, gameCode, playerCount, 0);
+    }
+
+    /**
+     * Constructs a new MyJoining object.
+     *
+     * @param requestType The type of the request.
+     * @param playerName The name of the player.
+     * @param gameCode The code of the game.
+     * @param playerCount The count of the players.
+     * @param viewsLimit The views limit of the questions of a created friend game, 0 for a difficulty ramping up.
+     */
+    public MyJoining(RequestType requestType, String playerName, String gameCode, int playerCount, int viewsLimit) {
         this.requestType = requestType;
         this.playerName = playerName;
         this.gameCode = gameCode;
         this.playerCount = playerCount;
+        this.viewsLimit = viewsLimit;
     }
 
     /**
@@ -61,4 +76,13 @@ public class MyJoining extends JSON implements MyJoiningRequests {
     public int getPlayerCount() {
         return playerCount;
     }
+
+    /**
+     * Returns the views limit of the questions of a created friend game.
+     *
+     * @return The views limit, 0 if the difficulty ramps up with the rounds.
+     */
+    public int getViewsLimit() {
+        return viewsLimit;
+    }
 }
\ No newline at end of file
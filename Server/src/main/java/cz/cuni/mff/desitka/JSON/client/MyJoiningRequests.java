@@ -22,5 +22,20 @@ public interface MyJoiningRequests {
          * Represents a request to create a new friend's game.
          */
         CREATE_FRIEND_GAME,
+
+        /**
+         * Represents a request to watch a running game without playing it.
+         */
+        SPECTATE_GAME,
+
+        /**
+         * Represents a request to create a new tournament.
+         */
+        CREATE_TOURNAMENT,
+
+        /**
+         * Represents a request to join a tournament.
+         */
+        JOIN_TOURNAMENT,
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package cz.cuni.mff.desitka.JSON.server;
 
 import cz.cuni.mff.desitka.JSON.JSON;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
 import cz.cuni.mff.desitka.JSON.server.helper.Turn;
 
 /**
@@ -11,6 +12,7 @@ public class Answer extends JSON {
     private final String playerName;
     private final int playerAnswerIndex;
     private final int correctAnswerIndex;
+    private final Phase phase;
     private final Turn turn;
 
     /**
@@ -20,13 +22,15 @@ public class Answer extends JSON {
      * @param playerName The name of the player.
      * @param playerAnswerIndex The index of the player's answer.
      * @param correctAnswerIndex The index of the correct answer.
+     * @param phase The phase the message starts.
      * @param turn The turn information.
      */
-    public Answer(int answerID, String playerName, int playerAnswerIndex, int correctAnswerIndex, Turn turn) {
+    public Answer(int answerID, String playerName, int playerAnswerIndex, int correctAnswerIndex, Phase phase, Turn turn) {
         this.answerID = answerID;
         this.playerName = playerName;
         this.playerAnswerIndex = playerAnswerIndex;
         this.correctAnswerIndex = correctAnswerIndex;
+        this.phase = phase;
         this.turn = turn;
     }
 
@@ -66,6 +70,15 @@ public class Answer extends JSON {
         return correctAnswerIndex;
     }
 
+    /**
+     * Returns the phase the message starts.
+     *
+     * @return The phase the message starts.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
     /**
      * Returns the turn information.
      *
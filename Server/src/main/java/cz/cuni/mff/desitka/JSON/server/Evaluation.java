@@ -2,6 +2,7 @@ package cz.cuni.mff.desitka.JSON.server;
 
 import cz.cuni.mff.desitka.JSON.JSON;
 import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
 
 /**
  * The Evaluation class represents the evaluation of a game round.
@@ -10,6 +11,7 @@ public class Evaluation extends JSON {
     private final Question solvedQuestion;
     private final PlayerScore[] playerScores;
     private final boolean gameOver;
+    private final Phase phase;
 
     /**
      * Constructs a new Evaluation object.
@@ -17,11 +19,13 @@ public class Evaluation extends JSON {
      * @param solvedQuestion The question that was solved in the round.
      * @param playerScores The scores of the players.
      * @param gameOver Indicates if the game is over.
+     * @param phase The phase the message starts.
      */
-    public Evaluation(Question solvedQuestion, PlayerScore[] playerScores, boolean gameOver) {
+    public Evaluation(Question solvedQuestion, PlayerScore[] playerScores, boolean gameOver, Phase phase) {
         this.solvedQuestion = solvedQuestion;
         this.playerScores = playerScores;
         this.gameOver = gameOver;
+        this.phase = phase;
     }
 
     /**
@@ -51,6 +55,15 @@ public class Evaluation extends JSON {
         return gameOver;
     }
 
+    /**
+     * Returns the phase the message starts.
+     *
+     * @return The phase the message starts.
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
     /**
      * The PlayerScore class represents the score of a player.
      */
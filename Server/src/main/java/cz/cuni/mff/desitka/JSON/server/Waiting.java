@@ -9,16 +9,19 @@ import cz.cuni.mff.desitka.JSON.JSON;
  */
 public class Waiting extends JSON {
     private final boolean startReady;
+    private final int playerCount;
     private final List<WaitingPlayer> waitingPlayers;
 
     /**
      * Constructs a new Waiting object.
      *
      * @param startReady Indicates if the game is ready to start.
+     * @param playerCount The number of players of the game.
      * @param waitingPlayers The list of players who are waiting.
      */
-    public Waiting(boolean startReady, List<WaitingPlayer> waitingPlayers) {
+    public Waiting(boolean startReady, int playerCount, List<WaitingPlayer> waitingPlayers) {
         this.startReady = startReady;
+        this.playerCount = playerCount;
         this.waitingPlayers = waitingPlayers;
     }
 
@@ -31,6 +34,16 @@ public class Waiting extends JSON {
         return startReady;
     }
 
+    /**
+     * Returns the number of players of the game. It may be smaller than the player count of the joining,
+     * because an online game is formed with fewer players after a long wait.
+     *
+     * @return The number of players of the game, or 0 if the server has not sent it.
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
     /**
      * Returns the list of players who are waiting.
      *
@@ -0,0 +1,55 @@
+package cz.cuni.mff.desitka.JSON.server.helper;
+
+import cz.cuni.mff.desitka.JSON.GameStates;
+import cz.cuni.mff.desitka.JSON.JSON;
+
+/**
+ * The Phase class represents the phase of a game the clients enter when they receive a message,
+ * with its deadlines as absolute timestamps given by the clock of the server.
+ */
+public class Phase extends JSON {
+    final GameStates.GameState name;
+    final long deadline;
+    final long answerDeadline;
+
+    /**
+     * Constructs a new Phase object.
+     *
+     * @param name The game state of the phase.
+     * @param deadline The end of the phase in milliseconds since the epoch.
+     * @param answerDeadline The end of the answer of the player on move in milliseconds since the epoch,
+     *                       or 0 if no answer is expected.
+     */
+    public Phase(GameStates.GameState name, long deadline, long answerDeadline) {
+        this.name = name;
+        this.deadline = deadline;
+        this.answerDeadline = answerDeadline;
+    }
+
+    /**
+     * Returns the game state of the phase.
+     *
+     * @return The game state of the phase.
+     */
+    public GameStates.GameState getName() {
+        return name;
+    }
+
+    /**
+     * Returns the end of the phase.
+     *
+     * @return The end of the phase in milliseconds since the epoch.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns the end of the answer of the player on move.
+     *
+     * @return The end of the answer in milliseconds since the epoch, or 0 if no answer is expected.
+     */
+    public long getAnswerDeadline() {
+        return answerDeadline;
+    }
+}
\ No newline at end of file
@@ -25,6 +25,18 @@ public class Turn extends JSON {
         this.gamePlayers = gamePlayers;
     }
 
+    /**
+     * Returns the JSON of the fields of a turn which differ for each recipient.
+     * The fields are the last ones of a turn, so the JSON closes the turn as well.
+     *
+     * @param myTurn true if it is the recipient's turn, false otherwise.
+     * @param myScore The score of the recipient.
+     * @return The JSON of the fields of the recipient.
+     */
+    public static String recipientJson(boolean myTurn, int myScore) {
+        return ",\"myTurn\":" + myTurn + ",\"myScore\":" + myScore + "}";
+    }
+
     /**
      * Returns the player on move.
      *
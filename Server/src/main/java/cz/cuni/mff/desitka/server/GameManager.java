@@ -4,32 +4,58 @@ import cz.cuni.mff.desitka.JSON.client.MyJoining;
 import cz.cuni.mff.desitka.JSON.client.MyJoiningRequests;
 import cz.cuni.mff.desitka.JSON.server.Joining;
 import cz.cuni.mff.desitka.JSON.server.JoiningResults;
+import cz.cuni.mff.desitka.server.communication.CommunicationService;
 import cz.cuni.mff.desitka.server.gameLogic.Player;
 import cz.cuni.mff.desitka.server.gameLogic.FriendGame;
 import cz.cuni.mff.desitka.server.gameLogic.Game;
-import cz.cuni.mff.desitka.server.gameLogic.OnlineGame;
+import cz.cuni.mff.desitka.server.gameLogic.GameTimer;
+import cz.cuni.mff.desitka.server.gameLogic.Tournament;
+import cz.cuni.mff.desitka.server.journal.Journal;
+import cz.cuni.mff.desitka.server.journal.RecoveredGame;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.Gauge;
+import cz.cuni.mff.desitka.server.metrics.MetricsRegistry;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
 
-import java.net.Socket;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static cz.cuni.mff.desitka.JSON.Constants.WAITING_TIME;
 
 /**
  * This class manages the games and players in the server.
+ * The friend games waiting for players are indexed by their codes, so finding a game costs O(1),
+ * and the online games are formed by the {@link Matchmaker}. The manager holds no lock, a join is only put
+ * into the mailbox of the joined game and the game removes itself from the index once it stops accepting players.
+ * A game which does not start within {@link cz.cuni.mff.desitka.JSON.Constants#WAITING_TIME} is reaped
+ * by the {@link GameTimer}, so the joins never pay for the cleanup.
+ * The tournaments accepting players are indexed by their codes the same way.
  */
 public class GameManager implements MyJoiningRequests, JoiningResults {
-    private final List<OnlineGame> onlineGames = new ArrayList<>();
-    private final List<FriendGame> friendGames = new ArrayList<>();
+    private final Matchmaker matchmaker = new Matchmaker();
+    private final ConcurrentMap<String, FriendGame> friendGames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Tournament> tournaments = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new game manager and registers the metrics of its waiting games.
+     */
+    public GameManager() {
+        MetricsRegistry.register(new Gauge("desitka_waiting_friend_games",
+                "Friend games waiting for players.", friendGames::size));
+        MetricsRegistry.register(new Gauge("desitka_waiting_tournaments",
+                "Tournaments waiting for players.", tournaments::size));
+    }
 
     /**
      * Adds a new player to the game manager.
      *
-     * @param socket the socket of the new player
+     * @param communicationService the communication service of the new player
      */
-    public void addPlayer(Socket socket) {
-        System.out.println("Player connected: " + socket);
-        new Player(socket, this);
+    public void addPlayer(CommunicationService communicationService) {
+        Log.info(LogCategory.CONNECTION, "connect").connection(communicationService).publish();
+        new Player(communicationService, this);
     }
 
     /**
@@ -38,127 +64,205 @@ public class GameManager implements MyJoiningRequests, JoiningResults {
      * @param myJoining the joining request of the player
      * @param player the player to be connected
      */
-    public synchronized void connectPlayer(MyJoining myJoining, Player player) {
-        removeOldGames(onlineGames);
-        removeOldGames(friendGames);
-
+    public void connectPlayer(MyJoining myJoining, Player player) {
         if (player == null) {
-            createFriendGameAgain(myJoining.getPlayerCount(), myJoining.getGameCode());
+            createFriendGameAgain(myJoining.getPlayerCount(), myJoining.getViewsLimit(), myJoining.getGameCode());
             return;
         }
 
         switch (myJoining.getRequestType()) {
             case JOIN_ONLINE_GAME:
-                joinOnlineGame(player);
+                matchmaker.enqueue(player, myJoining.getPlayerCount() == 0 ? 2 : myJoining.getPlayerCount());
                 break;
             case JOIN_FRIEND_GAME:
                 joinFriendGame(player, myJoining.getGameCode());
                 break;
             case CREATE_FRIEND_GAME:
-                createFriendGame(player, myJoining.getPlayerCount());
+                createFriendGame(player, myJoining.getPlayerCount(), myJoining.getViewsLimit());
+                break;
+            case SPECTATE_GAME:
+                spectateGame(player, myJoining.getGameCode());
+                break;
+            case CREATE_TOURNAMENT:
+                createTournament(player, myJoining.getPlayerCount());
+                break;
+            case JOIN_TOURNAMENT:
+                joinTournament(player, myJoining.getGameCode());
                 break;
         }
     }
 
     /**
-     * Joins a player to an online game.
+     * Creates a new tournament with a unique code, registers a player for it and schedules the end of its registration.
      *
-     * @param player the player to be joined
+     * @param player the player creating the tournament
+     * @param playerCount the maximum number of players in the tournament
      */
-    private void joinOnlineGame(Player player) {
-        for (OnlineGame game : onlineGames) {
-            if (!game.nameAlreadyJoined(player.getName())) {
-                player.setGame(game);
-                game.addWaitingPlayer(player);
-
-                if (game.readyToStart()) {
-                    onlineGames.remove(game);
-                    game.startRound();
-                }
-                return;
-            }
+    private void createTournament(Player player, int playerCount) {
+        Tournament tournament;
+        do {
+            tournament = new Tournament(playerCount, this);
+        } while (tournaments.putIfAbsent(tournament.getCode(), tournament) != null);
+        tournament.setRegistrationTimeout(GameTimer.schedule(tournament::expireRegistration, WAITING_TIME));
+        tournament.join(player);
+    }
+
+    /**
+     * Registers a player for a tournament.
+     *
+     * @param player the player to be registered
+     * @param code the code of the tournament
+     */
+    private void joinTournament(Player player, String code) {
+        Tournament tournament = code == null ? null : tournaments.get(code);
+        if (tournament == null) {
+            player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+            return;
         }
-        createOnlineGame(player);
+        tournament.join(player);
     }
 
     /**
-     * Joins a player to a friend game.
+     * Lets a client watch a running game.
      *
-     * @param player the player to be joined
-     * @param gameCode the code of the game to join
+     * @param player the client who wants to watch the game
+     * @param gameName the code of a friend game, the name of an online game, or null to watch any running game
      */
-    private void joinFriendGame(Player player, String gameCode) {
-        for (FriendGame game : friendGames) {
-            if (game.getGameCode().equals(gameCode)) {
-                if (game.nameAlreadyJoined(player.getName())) {
-                    player.sendMessage(new Joining(JoiningResult.NAME_ALREADY_JOINED, null, 0, 0));
-                    return;
-                }
-                player.setGame(game);
-                game.addWaitingPlayer(player);
-
-                if (game.readyToStart()) {
-                    friendGames.remove(game);
-                    game.startRound();
-                }
-                return;
-            }
+    private void spectateGame(Player player, String gameName) {
+        Game game = gameName == null ? Game.anyRunningGame() : Game.findRunningGame(gameName);
+        if (game == null) {
+            player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+            return;
         }
-        player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+        game.spectate(player);
     }
 
     /**
-     * Creates a new online game and adds a player to it.
+     * Joins a player to a friend game.
      *
-     * @param player the player to be added
+     * @param player the player to be joined
+     * @param gameCode the code of the game to join
      */
-    private void createOnlineGame(Player player) {
-        OnlineGame game = new OnlineGame();
-        player.setGame(game);
-        game.addWaitingPlayer(player);
-        onlineGames.add(game);
+    private void joinFriendGame(Player player, String gameCode) {
+        FriendGame game = gameCode == null ? null : friendGames.get(gameCode);
+        if (game == null) {
+            player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+            return;
+        }
+        game.join(player);
     }
 
     /**
-     * Creates a new friend game and adds a player to it.
+     * Creates a new friend game with a unique code and adds a player to it.
      *
      * @param player the player to be added
      * @param playerCount the number of players in the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
      */
-    private void createFriendGame(Player player, int playerCount) {
-        FriendGame game = new FriendGame(playerCount, this);
-        player.setGame(game);
-        game.addWaitingPlayer(player);
-        friendGames.add(game);
+    private void createFriendGame(Player player, int playerCount, int viewsLimit) {
+        FriendGame game;
+        do {
+            game = new FriendGame(playerCount, viewsLimit, this);
+        } while (friendGames.putIfAbsent(game.getGameCode(), game) != null);
+        openLobby(game);
+        game.join(player);
     }
 
     /**
      * Creates a new friend game with a specific game code.
      *
      * @param playerCount the number of players in the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
      * @param gameCode the code of the game
      */
-    private void createFriendGameAgain(int playerCount, String gameCode) {
-        FriendGame game = new FriendGame(playerCount, this, gameCode);
-        friendGames.add(game);
+    private void createFriendGameAgain(int playerCount, int viewsLimit, String gameCode) {
+        FriendGame game = new FriendGame(playerCount, viewsLimit, this, gameCode);
+        openLobby(game);
+        friendGames.put(gameCode, game);
     }
 
     /**
-     * Removes games that have been waiting for too long.
+     * Rebuilds the friend games which had not ended when the server stopped, so their players can join them again
+     * by their codes. A game which had started continues with the players who remained in it and their scores.
+     * The online games cannot be joined again, because their players do not know them.
      *
-     * @param games the list of games to check
+     * @param recoveredGames the games recovered from the journal
      */
-    private void removeOldGames(List<? extends Game> games) {
-        int index = 0;
-        long currentTime = System.currentTimeMillis();
-
-        for (Game game : games) {
-            if (currentTime - game.getCreationTime() > WAITING_TIME) {
-                index++;
+    public void restoreGames(List<RecoveredGame> recoveredGames) {
+        int lobbies = 0;
+        int games = 0;
+        int lost = 0;
+        for (RecoveredGame recovered : recoveredGames) {
+            String gameCode = recovered.getGameCode();
+            if (gameCode == null || recovered.getPlayerCount() < 2 || friendGames.containsKey(gameCode)) {
+                lost++;
                 continue;
             }
-            break;
+            FriendGame game = new FriendGame(recovered.getPlayerCount(), recovered.getViewsLimit(), this, gameCode);
+            openLobby(game);
+            if (recovered.isStarted()) {
+                game.restore(recovered.getEvaluatedRounds(), recovered.getScores(), recovered.getInterruptedQuestion());
+                games++;
+            }
+            else {
+                lobbies++;
+            }
+            friendGames.put(gameCode, game);
+        }
+        if (!recoveredGames.isEmpty()) {
+            Log.info(LogCategory.GAME, "journal.restored").field("lobbies", lobbies)
+                    .field("games", games).field("lost", lost).publish();
+        }
+    }
+
+    /**
+     * Records the creation of a friend game in the journal and schedules its expiry.
+     * Called before the game can be joined, so the creation precedes its other events in the journal.
+     *
+     * @param game the game waiting for players
+     */
+    private void openLobby(Game game) {
+        Journal.gameCreated(game.getGameId(), game.getGameCode(), game.PLAYER_COUNT(), game.getViewsLimit(),
+                game.getCreationTime());
+        scheduleExpiry(game);
+    }
+
+    /**
+     * Schedules the expiry of a game which has not started yet, at its creation time plus the waiting time.
+     *
+     * @param game the game waiting for players
+     */
+    private void scheduleExpiry(Game game) {
+        long delay = game.getCreationTime() + WAITING_TIME - System.currentTimeMillis();
+        game.setLobbyTimeout(GameTimer.schedule(game::expireLobby, Math.max(0, delay)));
+    }
+
+    /**
+     * Removes a tournament which no longer accepts players from the tournaments waiting for players.
+     * Called on the thread of the tournament.
+     *
+     * @param tournament the tournament which has stopped accepting players
+     * @param expired true if the tournament has not got at least two players in time, false if it has started
+     */
+    public void tournamentClosed(Tournament tournament, boolean expired) {
+        tournaments.remove(tournament.getCode(), tournament);
+        if (expired) {
+            Log.info(LogCategory.GAME, "tournament.expired").game(tournament).publish();
+        }
+    }
+
+    /**
+     * Removes a friend game which no longer accepts players from the games waiting for players.
+     * Called on the thread of the game.
+     *
+     * @param game the game which has stopped accepting players
+     * @param expired true if the game has waited for its players for too long and has been reaped, false if it is full
+     */
+    public void lobbyClosed(FriendGame game, boolean expired) {
+        friendGames.remove(game.getGameCode(), game);
+        if (expired) {
+            ServerMetrics.LOBBIES_REAPED.increment();
+            Log.info(LogCategory.GAME, "lobby.expired").game(game).field("players", game.getGamePlayers()).publish();
         }
-        games.subList(0, index).clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package cz.cuni.mff.desitka.server;
+
+import cz.cuni.mff.desitka.JSON.server.Joining;
+import cz.cuni.mff.desitka.JSON.server.JoiningResults;
+import cz.cuni.mff.desitka.JSON.server.Waiting;
+import cz.cuni.mff.desitka.server.gameLogic.OnlineGame;
+import cz.cuni.mff.desitka.server.gameLogic.Player;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.Gauge;
+import cz.cuni.mff.desitka.server.metrics.MetricsRegistry;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cz.cuni.mff.desitka.JSON.Constants.WAITING_TIME;
+
+/**
+ * This class forms the online games from the players waiting in a pool for each requested player count.
+ * A join only appends the player to a queue, the games are formed in batches by a single thread once per tick,
+ * so the matchmaking state is confined to that thread and the joins never contend for it.
+ * A player who waits for a long time accepts smaller games, the accepted player count shrinks
+ * by one after each interval set by {@value #SHRINK_AFTER_PROPERTY}, down to two players.
+ */
+public class Matchmaker implements Runnable, JoiningResults {
+    /**
+     * The system property setting the interval of forming the games in milliseconds.
+     */
+    public final static String TICK_PROPERTY = "desitka.matchmaking.tick";
+
+    /**
+     * The system property setting the waiting time in milliseconds after which a player accepts a game
+     * with one player less.
+     */
+    public final static String SHRINK_AFTER_PROPERTY = "desitka.matchmaking.shrinkAfter";
+
+    private final static int MIN_PLAYERS = 2;
+    private final static int MAX_PLAYERS = 5;
+
+    private final long tick = Long.getLong(TICK_PROPERTY, 100);
+    private final long shrinkAfter = Math.max(1, Long.getLong(SHRINK_AFTER_PROPERTY, 10_000));
+    private final Queue<Ticket> arrivals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingPlayers = new AtomicInteger();
+
+    // accessed only by the matchmaking thread
+    private final List<Deque<Ticket>> pools = new ArrayList<>();
+
+    /**
+     * Constructs a new matchmaker and starts its thread.
+     */
+    public Matchmaker() {
+        for (int playerCount = 0; playerCount <= MAX_PLAYERS; playerCount++) {
+            pools.add(new ArrayDeque<>());
+        }
+        MetricsRegistry.register(new Gauge("desitka_matchmaking_waiting_players",
+                "Players waiting for an online game.", waitingPlayers::get));
+        Thread thread = new Thread(this, "matchmaker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds a player to the pool of the requested player count.
+     * The player is told they joined a game immediately, with the requested player count,
+     * and learns the players and the actual size of the game from the {@link Waiting} sent once it is formed,
+     * which is smaller than requested if the player has accepted a smaller game.
+     *
+     * @param player the player waiting for a game
+     * @param playerCount the requested number of players, between 2 and 5
+     */
+    public void enqueue(Player player, int playerCount) {
+        Ticket ticket = new Ticket(player, playerCount);
+        player.sendMessage(new Joining(JoiningResult.JOINED, null, playerCount, ticket.since));
+        waitingPlayers.incrementAndGet();
+        arrivals.add(ticket);
+    }
+
+    /**
+     * Runs the matchmaking thread, forming the games once per tick.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(tick);
+            }
+            catch (InterruptedException e) {
+                // the matchmaker runs as long as the server
+            }
+            try {
+                formGames();
+            }
+            catch (RuntimeException e) {
+                // a failing game must not stop the matchmaking
+                Log.error(LogCategory.SYSTEM, "matchmaking.failed").exception(e).publish();
+            }
+        }
+    }
+
+    /**
+     * Forms as many games as possible from the waiting players, the largest games first.
+     * A game of a given size takes the longest waiting players who accept that size.
+     */
+    private void formGames() {
+        Ticket ticket;
+        while ((ticket = arrivals.poll()) != null) {
+            pools.get(ticket.playerCount).add(ticket);
+        }
+        long now = System.currentTimeMillis();
+        removeLeavingPlayers(now);
+
+        for (int gameSize = MAX_PLAYERS; gameSize >= MIN_PLAYERS; gameSize--) {
+            List<Ticket> candidates = new ArrayList<>();
+            for (int playerCount = gameSize; playerCount <= MAX_PLAYERS; playerCount++) {
+                for (Ticket candidate : pools.get(playerCount)) {
+                    if (!candidate.matched && acceptedPlayerCount(candidate, now) <= gameSize) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+            if (candidates.size() < gameSize) {
+                continue;
+            }
+            candidates.sort(Comparator.comparingLong(candidate -> candidate.since));
+            formGames(candidates, gameSize);
+        }
+
+        for (Deque<Ticket> pool : pools) {
+            pool.removeIf(candidate -> candidate.matched);
+        }
+    }
+
+    /**
+     * Forms games of a given size from the players accepting the size, in the order of their waiting.
+     * The players of a game must have different names.
+     *
+     * @param candidates the players accepting the size, the longest waiting first
+     * @param gameSize the number of players of a game
+     */
+    private void formGames(List<Ticket> candidates, int gameSize) {
+        List<Ticket> group = new ArrayList<>(gameSize);
+        Set<String> names = new HashSet<>();
+        for (Ticket candidate : candidates) {
+            if (names.add(candidate.player.getName())) {
+                group.add(candidate);
+            }
+            if (group.size() == gameSize) {
+                startGame(group);
+                group.clear();
+                names.clear();
+            }
+        }
+    }
+
+    /**
+     * Starts an online game with a group of players.
+     *
+     * @param group the players of the game
+     */
+    private void startGame(List<Ticket> group) {
+        List<Player> players = new ArrayList<>(group.size());
+        for (Ticket ticket : group) {
+            ticket.matched = true;
+            players.add(ticket.player);
+        }
+        waitingPlayers.addAndGet(-group.size());
+        new OnlineGame(group.size()).startMatch(players);
+    }
+
+    /**
+     * Removes the players who have disconnected, and disconnects the players who have waited for too long.
+     * Their clients give up waiting at the same time.
+     *
+     * @param now the current time
+     */
+    private void removeLeavingPlayers(long now) {
+        for (Deque<Ticket> pool : pools) {
+            pool.removeIf(ticket -> {
+                boolean expired = now - ticket.since > WAITING_TIME;
+                if (!expired && ticket.player.isConnected()) {
+                    return false;
+                }
+                if (expired) {
+                    ServerMetrics.MATCHMAKING_EXPIRED.increment();
+                    ticket.player.disconnect();
+                }
+                waitingPlayers.decrementAndGet();
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Returns the smallest player count a waiting player accepts.
+     *
+     * @param ticket the waiting player
+     * @param now the current time
+     * @return the requested player count decreased by one for each elapsed shrinking interval, at least 2
+     */
+    private int acceptedPlayerCount(Ticket ticket, long now) {
+        long shrinks = (now - ticket.since) / shrinkAfter;
+        return (int) Math.max(MIN_PLAYERS, ticket.playerCount - shrinks);
+    }
+
+    /**
+     * This class represents a player waiting in a pool.
+     */
+    private static class Ticket {
+        private final Player player;
+        private final int playerCount;
+        private final long since = System.currentTimeMillis();
+        private boolean matched;
+
+        /**
+         * Constructs a new ticket.
+         *
+         * @param player the waiting player
+         * @param playerCount the requested number of players
+         */
+        private Ticket(Player player, int playerCount) {
+            this.player = player;
+            this.playerCount = playerCount;
+        }
+    }
+}
\ No newline at end of file
@@ -1,8 +1,25 @@
 package cz.cuni.mff.desitka.server;
 
+import cz.cuni.mff.desitka.server.communication.BlockingCommunicationService;
+import cz.cuni.mff.desitka.server.communication.CommunicationService;
+import cz.cuni.mff.desitka.server.communication.SelectorCommunicationService;
+import cz.cuni.mff.desitka.server.communication.ThreadCommunicationService;
+import cz.cuni.mff.desitka.server.communication.Transport;
+import cz.cuni.mff.desitka.server.communication.VirtualThreads;
+import cz.cuni.mff.desitka.server.journal.Journal;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.MetricsServer;
+import cz.cuni.mff.desitka.server.questions.QuestionReloader;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.Function;
 
 /**
  * This class represents the server of the game.
@@ -14,25 +31,108 @@ public class Server {
      */
     private final static int LISTENING_PORT = 4444;
 
+    /**
+     * The maximum number of pending connections waiting for being accepted.
+     */
+    private final static int ACCEPT_BACKLOG = 1024;
+
+    /**
+     * The system property setting the questions of the game, a question pack file or a directory of JSON files.
+     */
+    public final static String QUESTIONS_PROPERTY = "desitka.questions";
+
+    /**
+     * The questions of the game, the directory of the JSON files unless a question pack is set.
+     */
+    private final static String QUESTIONS = System.getProperty(QUESTIONS_PROPERTY, "questions");
+
     /**
      * The main method of the server.
-     * It creates a server socket, binds it to the specified address and port,
-     * and then continuously accepts new connections and adds them to the game manager.
+     * It loads the questions and starts reloading them whenever their files change, restores the games recorded
+     * in the journal, creates a server socket,
+     * binds it to the specified address and port, and then continuously accepts new connections and adds them to the game manager.
+     * The transport serving the connections is selected by the {@value Transport#PROPERTY} system property.
      *
      * @param args the command line arguments. This parameter is not used.
      */
     public static void main(String[] args) {
+        QuestionRepository questionRepository = QuestionRepository.load(QUESTIONS);
+        Log.info(LogCategory.SYSTEM, "questions.loaded")
+                .field("questions", questionRepository.size())
+                .field("tiers", questionRepository.getTiers())
+                .field("load_ms", questionRepository.getLoadTime())
+                .field("heap_kib", questionRepository.getHeapFootprint() / 1024)
+                .field("mapped_kib", questionRepository.getMappedBytes() / 1024)
+                .publish();
+        MetricsServer.start();
+        QuestionReloader questionReloader = QuestionReloader.start(QUESTIONS);
+        MetricsServer.addControl("/questions/reload", questionReloader::requestReload);
+        MetricsServer.addControl("/questions/rollback", questionReloader::requestRollback);
+        GameManager gameManager = new GameManager();
+        gameManager.restoreGames(Journal.start());
+        Journal.finishRecovery();
+
         InetSocketAddress inetSocketAddress = new InetSocketAddress("localhost", LISTENING_PORT);
+        Transport transport = Transport.fromSystemProperty();
+        try {
+            switch (transport) {
+                case THREAD:
+                    Log.info(LogCategory.SYSTEM, "listening").field("port", LISTENING_PORT).field("transport", "platform thread per connection").publish();
+                    acceptSockets(inetSocketAddress, gameManager, ThreadCommunicationService::new);
+                    break;
+                case VIRTUAL:
+                    Log.info(LogCategory.SYSTEM, "listening").field("port", LISTENING_PORT).field("transport", "blocking I/O on " +
+                            (VirtualThreads.isSupported() ? "virtual" : "platform") + " threads").publish();
+                    acceptSockets(inetSocketAddress, gameManager, BlockingCommunicationService::new);
+                    break;
+                case SELECTOR:
+                    Log.info(LogCategory.SYSTEM, "listening").field("port", LISTENING_PORT).field("transport", "selector loops").publish();
+                    acceptChannels(inetSocketAddress, gameManager);
+                    break;
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Accepts connections served by threads blocking on or polling their sockets.
+     *
+     * @param address the address to listen on
+     * @param gameManager the game manager of the server
+     * @param transport the factory of the communication services serving the accepted sockets
+     * @throws IOException if an I/O error occurs
+     */
+    private static void acceptSockets(InetSocketAddress address, GameManager gameManager,
+                                      Function<Socket, CommunicationService> transport) throws IOException {
         try (ServerSocket serverSocket = new ServerSocket()) {
-            serverSocket.bind(inetSocketAddress);
-            GameManager gameManager = new GameManager();
+            serverSocket.bind(address, ACCEPT_BACKLOG);
 
             while (true) {
-                gameManager.addPlayer(serverSocket.accept());
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                gameManager.addPlayer(transport.apply(socket));
             }
         }
-        catch (IOException e) {
-            throw new RuntimeException(e);
+    }
+
+    /**
+     * Accepts connections served by the selector loops.
+     *
+     * @param address the address to listen on
+     * @param gameManager the game manager of the server
+     * @throws IOException if an I/O error occurs
+     */
+    private static void acceptChannels(InetSocketAddress address, GameManager gameManager) throws IOException {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(address, ACCEPT_BACKLOG);
+
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                gameManager.addPlayer(new SelectorCommunicationService(channel));
+            }
         }
     }
 }
\ No newline at end of file
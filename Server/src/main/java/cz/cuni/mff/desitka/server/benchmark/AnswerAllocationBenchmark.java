@@ -0,0 +1,239 @@
+package cz.cuni.mff.desitka.server.benchmark;
+
+import cz.cuni.mff.desitka.JSON.Constants;
+import cz.cuni.mff.desitka.JSON.GameStates;
+import cz.cuni.mff.desitka.JSON.GsonParser;
+import cz.cuni.mff.desitka.JSON.client.MyAnswer;
+import cz.cuni.mff.desitka.JSON.client.MyJoining;
+import cz.cuni.mff.desitka.JSON.client.MyJoiningRequests;
+import cz.cuni.mff.desitka.JSON.server.Answer;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
+import cz.cuni.mff.desitka.JSON.server.helper.Turn;
+import cz.cuni.mff.desitka.server.GameManager;
+import cz.cuni.mff.desitka.server.communication.CommunicationService;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.gameLogic.Game;
+import cz.cuni.mff.desitka.server.gameLogic.Player;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class measures the heap allocated and the CPU time spent by the thread of a game per processed answer.
+ * The players of the game answer at once from the thread of the game whenever their answer is expected,
+ * so the game plays as fast as it can and the thread does nothing but process the answers,
+ * send the answers, evaluations and starts of the rounds to the players, and schedule the deadlines.
+ * The players answer a sub-question right a quarter of the time and the game never ends,
+ * so its rounds are short and the evaluations are measured together with the answers.
+ * The sent messages are dropped by the connections of the players. Besides the allocated bytes, the benchmark reports
+ * the size of the encoded messages, which have to be allocated, because they are queued for sending.
+ * For comparison, it reports the CPU time of only encoding an answer for every player through Gson,
+ * the way the messages were encoded before the games got their {@code MessageEncoder}.
+ * Run it from the directory containing the questions.
+ */
+public class AnswerAllocationBenchmark {
+    private final static long WARMUP_MS = 3_000;
+    private final static long MEASURED_MS = 5_000;
+    private final static int GSON_WARMUP_ANSWERS = 200_000;
+    private final static int GSON_MEASURED_ANSWERS = 500_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final MyAnswer[] answers = new MyAnswer[40];
+    private static GameManager gameManager;
+    private static long blackhole;
+
+    /**
+     * The main method of the benchmark.
+     *
+     * @param args the command line arguments, optionally the directory containing the questions
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (System.getProperty("desitka.log.level") == null) {
+            System.setProperty("desitka.log.level", "WARN");
+        }
+        System.setProperty("desitka.gameThreads", "1");
+        QuestionRepository.load(args.length > 0 ? args[0] : "questions");
+        gameManager = new GameManager() {
+            @Override
+            public void connectPlayer(MyJoining myJoining, Player player) {
+                // the players are added to the benchmark game directly
+            }
+        };
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = new MyAnswer(i % 10, i % 4);
+        }
+
+        System.out.println("players  answers/s  CPU [ns/answer]  allocated [B/answer]  encoded [B/answer]  Gson CPU [ns/answer]");
+        for (int playerCount = 2; playerCount <= 5; playerCount++) {
+            BenchmarkGame game = new BenchmarkGame(playerCount);
+            game.play();
+            Thread.sleep(WARMUP_MS);
+            long threadId = game.threadId;
+            long answered = game.answered.get();
+            long encoded = game.encoded.get();
+            long cpuTime = threads.getThreadCpuTime(threadId);
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            Thread.sleep(MEASURED_MS);
+            answered = game.answered.get() - answered;
+            encoded = game.encoded.get() - encoded;
+            cpuTime = threads.getThreadCpuTime(threadId) - cpuTime;
+            allocated = threads.getThreadAllocatedBytes(threadId) - allocated;
+            game.stop();
+            encodeWithGson(playerCount, GSON_WARMUP_ANSWERS);
+            double gsonCpuTime = encodeWithGson(playerCount, GSON_MEASURED_ANSWERS);
+            System.out.printf("%7d  %9.0f  %15.0f  %20.1f  %18.1f  %20.0f%n", playerCount, answered * 1000.0 / MEASURED_MS,
+                    (double) cpuTime / answered, (double) allocated / answered, (double) encoded / answered, gsonCpuTime);
+        }
+        System.out.println("(checksum " + blackhole + ")");
+    }
+
+    /**
+     * Encodes a number of answers as whole messages for every player through Gson
+     * and returns the CPU time spent on one answer.
+     *
+     * @param playerCount the number of players in the game
+     * @param answerCount the number of answers
+     * @return the CPU time of one answer in nanoseconds
+     */
+    private static double encodeWithGson(int playerCount, int answerCount) {
+        String[] names = new String[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            names[i] = "player" + i;
+        }
+        long start = threads.getCurrentThreadCpuTime();
+        for (int answer = 0; answer < answerCount; answer++) {
+            long now = System.currentTimeMillis();
+            int next = (answer + 1) % playerCount;
+            Turn turn = new Turn(names[next], playerCount, playerCount);
+            Answer message = new Answer(answer % 10, names[answer % playerCount], answer % 4, 1,
+                    new Phase(GameStates.GameState.SHOW_ANSWER, now, now + Constants.ANSWER_TIME), turn);
+            for (int i = 0; i < playerCount; i++) {
+                turn.setMyTurn(i == next);
+                turn.setMyScore(i);
+                blackhole += GsonParser.toJson(message).getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return (double) (threads.getCurrentThreadCpuTime() - start) / answerCount;
+    }
+
+    /**
+     * This class represents a game which never ends, played by the benchmark until it is stopped.
+     */
+    private static class BenchmarkGame extends Game {
+        private final List<Player> players = new ArrayList<>();
+        private final AtomicLong answered = new AtomicLong();
+        private final AtomicLong encoded = new AtomicLong();
+        private volatile boolean stopped;
+        private volatile long threadId;
+
+        /**
+         * Constructs a new benchmark game with a specified player count.
+         *
+         * @param playerCount the number of players in the game
+         */
+        private BenchmarkGame(int playerCount) {
+            super(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                AnsweringConnection connection = new AnsweringConnection(this);
+                Player player = new Player(connection, gameManager);
+                connection.join("player" + i, playerCount);
+                connection.player = player;
+                players.add(player);
+            }
+        }
+
+        /**
+         * Starts the game.
+         */
+        private void play() {
+            startMatch(players);
+        }
+
+        /**
+         * Stops answering, so the game waits for the deadline of the next answer.
+         */
+        private void stop() {
+            stopped = true;
+        }
+
+        /**
+         * Checks if the game has ended, which it does only once the benchmark has stopped it.
+         *
+         * @return false while the benchmark plays the game
+         */
+        @Override
+        public boolean gameEnd() {
+            return stopped && super.gameEnd();
+        }
+    }
+
+    /**
+     * This class represents the connection of a player of the benchmark game.
+     * It drops the sent messages and answers as soon as an answer is expected.
+     */
+    private static class AnsweringConnection extends CommunicationService {
+        private final BenchmarkGame game;
+        private Player player;
+        private int answerCount;
+
+        /**
+         * Constructs a new connection of a player of a game.
+         *
+         * @param game the game of the player
+         */
+        private AnsweringConnection(BenchmarkGame game) {
+            this.game = game;
+        }
+
+        /**
+         * Receives the joining request of the player.
+         *
+         * @param name the name of the player
+         * @param playerCount the number of players in the game
+         */
+        private void join(String name, int playerCount) {
+            dataReceived(GsonParser.toJson(new MyJoining(MyJoiningRequests.RequestType.JOIN_ONLINE_GAME,
+                    name, null, playerCount)));
+        }
+
+        @Override
+        public void sendMessage(String message) {}
+
+        /**
+         * Drops a message, counting the size of the encoded messages once for all players.
+         *
+         * @param shared the part of the message shared by all recipients
+         * @param personal the UTF-8 encoded part of the message specific to the client
+         */
+        @Override
+        public void sendMessage(SharedMessage shared, byte[] personal) {
+            if (player == game.players.get(0)) {
+                game.encoded.addAndGet(shared.size());
+            }
+        }
+
+        /**
+         * Answers the expected answer at once, unless it is the joining message or the game has been stopped.
+         */
+        @Override
+        protected void onMessageExpected() {
+            if (player == null || game.stopped) {
+                return;
+            }
+            game.threadId = Thread.currentThread().getId();
+            game.answered.incrementAndGet();
+            game.processAnswer(answers[answerCount++ % answers.length], player);
+        }
+
+        @Override
+        public void close() {}
+
+        @Override
+        protected void failAsynchronously() {}
+    }
+}
\ No newline at end of file
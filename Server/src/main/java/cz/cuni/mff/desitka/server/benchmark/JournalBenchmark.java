@@ -0,0 +1,93 @@
+package cz.cuni.mff.desitka.server.benchmark;
+
+import cz.cuni.mff.desitka.server.journal.JournalWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This class measures the overhead of the journal per answer, the time a game thread spends on recording an answer.
+ * It compares the group commit, which forces the journal to the storage in the background once per sync interval,
+ * with forcing every record before the answer is processed further.
+ * Run it with the directory of the journal as the argument, a temporary directory is used otherwise.
+ */
+public class JournalBenchmark {
+    private final static int WARMUP_ANSWERS = 200_000;
+    private final static int MEASURED_ANSWERS = 1_000_000;
+    private final static int SYNCED_ANSWERS = 2_000;
+    private final static int SEGMENT_SIZE = 16 * 1024 * 1024;
+    private final static long SYNC_INTERVAL = 10;
+    private final static String[] NAMES = {"player0", "player1", "player2", "player3", "player4"};
+
+    /**
+     * The main method of the benchmark.
+     *
+     * @param args the command line arguments, optionally the directory of the journal
+     * @throws IOException if the journal cannot be written
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("desitka-journal");
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("mode                 threads  per answer [ns]  answers/s  answers per sync");
+
+        measure(directory, SYNC_INTERVAL, 1, WARMUP_ANSWERS, null);
+        measure(directory, SYNC_INTERVAL, 1, MEASURED_ANSWERS, "group commit");
+        measure(directory, SYNC_INTERVAL, Math.max(4, cores), MEASURED_ANSWERS, "group commit");
+        measure(directory, 0, 1, SYNCED_ANSWERS, "sync per answer");
+        measure(directory, 0, Math.max(4, cores), SYNCED_ANSWERS, "sync per answer");
+    }
+
+    /**
+     * Records answers by a number of threads, each of them playing its own game, and prints the results.
+     *
+     * @param directory the directory of the journal
+     * @param syncInterval the sync interval of the journal in milliseconds, 0 to force every record
+     * @param threads the number of threads
+     * @param answers the total number of answers
+     * @param mode the description of the measurement, or null for the warmup which is not printed
+     * @throws IOException if the journal cannot be written
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    private static void measure(Path directory, long syncInterval, int threads, int answers, String mode)
+            throws IOException, InterruptedException {
+        JournalWriter writer = new JournalWriter(directory, 1, SEGMENT_SIZE, syncInterval);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        int answersPerThread = answers / threads;
+        for (int thread = 0; thread < threads; thread++) {
+            int gameId = thread + 1;
+            Thread player = new Thread(() -> {
+                writer.gameCreated(gameId, null, NAMES.length, 0, System.currentTimeMillis());
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int answer = 0; answer < answersPerThread; answer++) {
+                    writer.answered(gameId, NAMES[answer % NAMES.length], answer % 10, answer & 3);
+                }
+                finished.countDown();
+            });
+            player.start();
+        }
+
+        long syncsBefore = writer.getSyncs();
+        long startTime = System.nanoTime();
+        start.countDown();
+        finished.await();
+        long elapsed = System.nanoTime() - startTime;
+        long syncs = writer.getSyncs() - syncsBefore;
+        writer.deleteSegments();
+
+        if (mode != null) {
+            long recorded = (long) answersPerThread * threads;
+            System.out.printf("%-19s  %7d  %15.0f  %9.0f  %16.1f%n", mode, threads,
+                    (double) elapsed * threads / recorded, recorded / (elapsed / 1e9), (double) recorded / Math.max(1, syncs));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package cz.cuni.mff.desitka.server.benchmark;
+
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.server.questions.QuestionPack;
+import cz.cuni.mff.desitka.server.questions.QuestionPackWriter;
+import cz.cuni.mff.desitka.server.questions.QuestionParser;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+import cz.cuni.mff.desitka.server.questions.QuestionStore;
+import cz.cuni.mff.desitka.server.questions.RecentQuestions;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * This class compares loading the questions by walking the JSON files with mapping a {@link QuestionPack}.
+ * It converts the JSON files into a temporary pack, then loads the repository from both several times
+ * and prints the fastest load, the heap footprint of the repository, the size of the mapped pack and the growth
+ * of the resident memory of the process after all questions have been used once, and the cost of decoding a question.
+ * Finally it measures the heap retained by the parsed questions and by their compact {@link QuestionStore}.
+ * Run it with the directory of the JSON files, including its subdirectories, as the argument, {@code questions} otherwise.
+ * The resident memory is read from {@code /proc/self/status}, so it is printed only on Linux.
+ */
+public class QuestionLoadBenchmark {
+    private final static int LOADS = 5;
+    private final static int DECODE_PASSES = 20;
+
+    private final static MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * The main method of the benchmark.
+     *
+     * @param args the command line arguments, optionally the directory of the JSON files
+     * @throws IOException if the pack cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        String directory = args.length > 0 ? args[0] : "questions";
+        // the repository computes the keys of the recently seen questions, their filters are not measured
+        RecentQuestions.getInstance();
+        Path pack = Files.createTempFile("desitka", ".pack");
+        try {
+            QuestionPackWriter writer = new QuestionPackWriter();
+            writer.addTiers(QuestionParser.getTieredQuestions(directory));
+            writer.write(pack);
+            System.out.printf("JSON files %d KiB, question pack %d KiB%n", directorySize(directory) / 1024, Files.size(pack) / 1024);
+            System.out.println("source      questions  load [ms]  heap [KiB]  mapped [KiB]  resident [KiB]");
+
+            measure("pack", pack.toString());
+            measure("JSON walk", directory);
+            measureDecoding(pack);
+            measureStore(directory);
+        }
+        finally {
+            Files.deleteIfExists(pack);
+        }
+    }
+
+    /**
+     * Loads the questions into the repository several times and prints the results.
+     * All questions are used once after the load, so the resident memory includes the touched pages of a mapped pack.
+     *
+     * @param source the description of the source of the questions
+     * @param path the file of the question pack, or the directory of the JSON files
+     */
+    private static void measure(String source, String path) {
+        long residentBefore = resident();
+        long fastest = Long.MAX_VALUE;
+        QuestionRepository repository = null;
+        for (int i = 0; i < LOADS; i++) {
+            long start = System.nanoTime();
+            repository = QuestionRepository.load(path);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        for (int i = 0; i < repository.size(); i++) {
+            repository.getQuestion(i);
+        }
+        System.gc();
+        System.out.printf("%-10s %10d %10.1f %11d %13d %15s%n", source, repository.size(), fastest / 1e6,
+                repository.getHeapFootprint() / 1024, repository.getMappedBytes() / 1024,
+                residentBefore == Long.MIN_VALUE ? "n/a" : Long.toString((resident() - residentBefore) / 1024));
+    }
+
+    /**
+     * Decodes all questions of the pack repeatedly and prints the average time of decoding a question.
+     *
+     * @param pack the file of the question pack
+     */
+    private static void measureDecoding(Path pack) {
+        QuestionPack questionPack = QuestionParser.getQuestionPack(pack.toString());
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int pass = 0; pass < DECODE_PASSES; pass++) {
+            for (int i = 0; i < questionPack.size(); i++) {
+                checksum += questionPack.getQuestion(i).getSubQuestions().length;
+            }
+        }
+        long duration = System.nanoTime() - start;
+        System.out.printf("decoding a question from the pack: %.1f us (%d sub-questions decoded)%n",
+                duration / 1e3 / DECODE_PASSES / questionPack.size(), checksum);
+    }
+
+    /**
+     * Measures the heap retained by the parsed questions and by the store of the same questions and prints the results.
+     *
+     * @param directory the directory of the JSON files
+     */
+    private static void measureStore(String directory) {
+        long baseline = usedHeap();
+        List<Question> questions = QuestionParser.getQuestions(directory);
+        long parsed = usedHeap() - baseline;
+        QuestionStore store = new QuestionStore(questions);
+        int questionCount = questions.size();
+        questions = null;
+        long stored = usedHeap() - baseline;
+        System.out.printf("heap of %d questions: parsed objects %d KiB, question store %d KiB (%d distinct strings), %.1fx smaller%n",
+                questionCount, parsed / 1024, stored / 1024, store.getStringCount(), (double) parsed / stored);
+    }
+
+    /**
+     * Returns the heap used after garbage collections, with the pending finalizers run in between,
+     * so the objects kept only by finalizers are collected too.
+     *
+     * @return the used heap in bytes
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            System.runFinalization();
+        }
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Returns the resident memory of the process.
+     *
+     * @return the resident memory in bytes, or {@code Long.MIN_VALUE} if it is not known
+     */
+    private static long resident() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+                }
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            // not Linux, the resident memory is not known
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the total size of the JSON files in a directory.
+     *
+     * @param directory the directory
+     * @return the size of the files in bytes
+     * @throws IOException if the directory cannot be walked
+     */
+    private static long directorySize(String directory) throws IOException {
+        try (Stream<Path> files = Files.walk(Paths.get(directory))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
\ No newline at end of file
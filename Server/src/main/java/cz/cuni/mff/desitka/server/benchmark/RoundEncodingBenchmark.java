@@ -0,0 +1,228 @@
+package cz.cuni.mff.desitka.server.benchmark;
+
+import cz.cuni.mff.desitka.JSON.GameStates;
+import cz.cuni.mff.desitka.JSON.GsonParser;
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.client.MyJoining;
+import cz.cuni.mff.desitka.JSON.client.MyJoiningRequests;
+import cz.cuni.mff.desitka.JSON.server.Evaluation;
+import cz.cuni.mff.desitka.JSON.server.Start;
+import cz.cuni.mff.desitka.JSON.server.helper.Phase;
+import cz.cuni.mff.desitka.JSON.server.helper.Turn;
+import cz.cuni.mff.desitka.server.GameManager;
+import cz.cuni.mff.desitka.server.communication.CommunicationService;
+import cz.cuni.mff.desitka.server.communication.Framing;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.gameLogic.MessageEncoder;
+import cz.cuni.mff.desitka.server.gameLogic.PhaseClock;
+import cz.cuni.mff.desitka.server.gameLogic.Player;
+import cz.cuni.mff.desitka.server.gameLogic.PreparedQuestion;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class measures the CPU time of encoding the messages carrying the question of a round,
+ * its start and its evaluation sent to every player of the game.
+ * It compares the {@link MessageEncoder}, which encodes the question once per round into a {@link PreparedQuestion}
+ * and each message once for all players, with encoding the whole messages for each player through Gson,
+ * the way the messages were encoded before the games got their encoder.
+ * Both ways materialize the question of the round from the repository, the rounds go through all questions.
+ * Run it from the directory containing the questions.
+ */
+public class RoundEncodingBenchmark {
+    private final static int WARMUP_ROUNDS = 20_000;
+    private final static int MEASURED_ROUNDS = 50_000;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static long blackhole;
+
+    /**
+     * The main method of the benchmark.
+     *
+     * @param args the command line arguments, optionally the directory containing the questions
+     */
+    public static void main(String[] args) {
+        if (System.getProperty("desitka.log.level") == null) {
+            System.setProperty("desitka.log.level", "WARN");
+        }
+        QuestionRepository.load(args.length > 0 ? args[0] : "questions");
+        QuestionRepository repository = QuestionRepository.getInstance();
+        GameManager gameManager = new GameManager() {
+            @Override
+            public void connectPlayer(MyJoining myJoining, Player player) {
+                // the players only give their names to the encoded messages
+            }
+        };
+
+        System.out.println("players  encoder [us/round]  Gson [us/round]  speedup");
+        for (int playerCount = 2; playerCount <= 5; playerCount++) {
+            List<Player> players = new ArrayList<>(playerCount);
+            for (int i = 0; i < playerCount; i++) {
+                NamedConnection connection = new NamedConnection();
+                players.add(new Player(connection, gameManager));
+                connection.join("player" + i, playerCount);
+            }
+
+            measure(repository, players, true, WARMUP_ROUNDS);
+            measure(repository, players, false, WARMUP_ROUNDS);
+            double encoder = measure(repository, players, true, MEASURED_ROUNDS);
+            double gson = measure(repository, players, false, MEASURED_ROUNDS);
+            System.out.printf("%7d  %18.2f  %15.2f  %6.2fx%n", playerCount, encoder, gson, gson / encoder);
+        }
+        System.out.println("(checksum " + blackhole + ")");
+    }
+
+    /**
+     * Encodes a number of rounds and returns the CPU time spent on one round.
+     *
+     * @param repository the repository of the questions of the rounds
+     * @param players the players of the game
+     * @param encoder true to encode the messages by the encoder of the games, false to encode them through Gson
+     * @param rounds the number of rounds
+     * @return the CPU time of one round in microseconds
+     */
+    private static double measure(QuestionRepository repository, List<Player> players, boolean encoder, int rounds) {
+        MessageEncoder messageEncoder = new MessageEncoder();
+        PhaseClock clock = new PhaseClock();
+        long start = threads.getCurrentThreadCpuTime();
+        for (int round = 0; round < rounds; round++) {
+            int index = round % repository.size();
+            if (encoder) {
+                encodeRound(messageEncoder, clock, PreparedQuestion.prepare(repository, index), players, round + 1);
+            }
+            else {
+                encodeRoundWithGson(repository.getQuestion(index), players, round + 1);
+            }
+        }
+        return (threads.getCurrentThreadCpuTime() - start) / 1000.0 / rounds;
+    }
+
+    /**
+     * Encodes the start and the evaluation of a round for all players by the encoder of the games.
+     *
+     * @param messageEncoder the encoder
+     * @param clock the clock of the game
+     * @param question the prepared question of the round
+     * @param players the players of the game
+     * @param roundNumber the number of the round
+     */
+    private static void encodeRound(MessageEncoder messageEncoder, PhaseClock clock, PreparedQuestion question,
+                                    List<Player> players, int roundNumber) {
+        int playerCount = players.size();
+        clock.startRound(roundNumber);
+        SharedMessage start = messageEncoder.encodeStart(roundNumber, question, clock,
+                players.get(0).getName(), playerCount, playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            consume(Framing.encode(start, MessageEncoder.turnData(i == 0, 0), false));
+        }
+
+        int[] scores = new int[playerCount];
+        int[] ranking = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            scores[i] = roundNumber + i;
+            ranking[i] = playerCount - 1 - i;
+        }
+        clock.evaluated(false);
+        SharedMessage evaluation = messageEncoder.encodeEvaluation(question, players, scores, ranking, false, clock);
+        for (int i = 0; i < playerCount; i++) {
+            consume(Framing.encode(evaluation, Framing.NO_PERSONAL_PART, false));
+        }
+    }
+
+    /**
+     * Encodes the start and the evaluation of a round as whole messages for each player through Gson.
+     *
+     * @param question the question of the round
+     * @param players the players of the game
+     * @param roundNumber the number of the round
+     */
+    private static void encodeRoundWithGson(Question question, List<Player> players, int roundNumber) {
+        int playerCount = players.size();
+        long now = System.currentTimeMillis();
+        Turn turn = new Turn(players.get(0).getName(), playerCount, playerCount);
+        Start start = new Start(roundNumber, withoutAnswers(question),
+                new Phase(GameStates.GameState.ROUND_START, now, now), turn);
+        for (int i = 0; i < playerCount; i++) {
+            turn.setMyTurn(i == 0);
+            turn.setMyScore(0);
+            consume(GsonParser.toJson(start).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Evaluation.PlayerScore[] scores = new Evaluation.PlayerScore[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            Player player = players.get(playerCount - 1 - i);
+            scores[i] = new Evaluation.PlayerScore(player.getName(), roundNumber + playerCount - 1 - i);
+        }
+        Evaluation evaluation = new Evaluation(question, scores, false,
+                new Phase(GameStates.GameState.SHOW_ANSWERS, now, 0));
+        for (int i = 0; i < playerCount; i++) {
+            consume(GsonParser.toJson(evaluation).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Copies a question without its correct answers, the question of a start.
+     *
+     * @param question the question
+     * @return the copy of the question with -1 instead of the correct answers
+     */
+    private static Question withoutAnswers(Question question) {
+        Question.SubQuestion[] subQuestions = question.getSubQuestions();
+        Question.SubQuestion[] copied = new Question.SubQuestion[subQuestions.length];
+        for (int i = 0; i < subQuestions.length; i++) {
+            copied[i] = new Question.SubQuestion(subQuestions[i].getKey(), subQuestions[i].getValues(), -1);
+        }
+        return new Question(question.getText(), copied);
+    }
+
+    /**
+     * Keeps the encoded message alive, so the encoding cannot be optimized away.
+     *
+     * @param segments the segments of the encoded message
+     */
+    private static void consume(ByteBuffer[] segments) {
+        for (ByteBuffer segment : segments) {
+            blackhole += segment.remaining();
+        }
+    }
+
+    /**
+     * Keeps the encoded message alive, so the encoding cannot be optimized away.
+     *
+     * @param bytes the encoded message
+     */
+    private static void consume(byte[] bytes) {
+        blackhole += bytes.length;
+    }
+
+    /**
+     * This class represents the connection of a player of the benchmark, which only tells the name of the player.
+     */
+    private static class NamedConnection extends CommunicationService {
+        /**
+         * Receives the joining request of the player.
+         *
+         * @param name the name of the player
+         * @param playerCount the number of players in the game
+         */
+        private void join(String name, int playerCount) {
+            dataReceived(GsonParser.toJson(new MyJoining(MyJoiningRequests.RequestType.JOIN_ONLINE_GAME,
+                    name, null, playerCount)));
+        }
+
+        @Override
+        public void sendMessage(String message) {}
+
+        @Override
+        public void close() {}
+
+        @Override
+        protected void failAsynchronously() {}
+    }
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+/**
+ * This package contains benchmarks of the server, each runnable by its own main method.
+ */
+package cz.cuni.mff.desitka.server.benchmark;
\ No newline at end of file
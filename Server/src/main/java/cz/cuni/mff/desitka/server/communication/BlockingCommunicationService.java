@@ -0,0 +1,277 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class handles the communication with a client using blocking I/O on a reader and a writer thread.
+ * The threads are virtual threads if the JVM supports them, see {@link VirtualThreads}.
+ * Both threads park while there is nothing to do, so an idle connection costs no CPU time.
+ */
+public class BlockingCommunicationService extends CommunicationService {
+    /**
+     * The message which wakes up and stops the writer thread.
+     */
+    private final static ByteBuffer[] CLOSE_WRITER = new ByteBuffer[0];
+
+    /**
+     * The size of the buffer of the reader thread.
+     */
+    private final static int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final Socket client;
+    private final OutboundQueue sendQueue = new OutboundQueue();
+    private final ProtocolDecoder decoder = new ProtocolDecoder(Framing.MAX_MESSAGE_BYTES);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition messageExpectedCondition = lock.newCondition();
+
+    /**
+     * Constructs a new communication service with a specified client socket.
+     *
+     * @param client the client socket
+     */
+    public BlockingCommunicationService(Socket client) {
+        this.client = client;
+    }
+
+    /**
+     * Starts the reader and the writer thread of the communication service.
+     */
+    @Override
+    public void start() {
+        super.start();
+        VirtualThreads.start(new ReaderThread());
+        VirtualThreads.start(new WriterThread());
+    }
+
+    /**
+     * Sends a message to the client.
+     *
+     * @param message the message to be sent
+     */
+    @Override
+    public void sendMessage(String message) {
+        if (isServiceOpen()) {
+            enqueue(ByteBuffer.wrap(encode(message)));
+        }
+    }
+
+    /**
+     * Sends a message consisting of a shared and a personal part to the client.
+     *
+     * @param shared the part of the message shared by all recipients
+     * @param personal the UTF-8 encoded part of the message specific to the client
+     */
+    @Override
+    public void sendMessage(SharedMessage shared, byte[] personal) {
+        if (isServiceOpen()) {
+            enqueue(encode(shared, personal));
+        }
+    }
+
+    /**
+     * Sets the high-water mark of the queue of unsent messages of the client.
+     *
+     * @param maxQueuedBytes the maximum number of bytes waiting for being sent to the client
+     */
+    @Override
+    public void limitQueuedBytes(long maxQueuedBytes) {
+        sendQueue.setHighWaterMark(maxQueuedBytes);
+    }
+
+    /**
+     * Wakes up the reader thread.
+     */
+    @Override
+    protected void onMessageExpected() {
+        signalReader();
+    }
+
+    /**
+     * Closes the communication service and its socket, which stops both threads.
+     */
+    @Override
+    public void close() {
+        super.close();
+        sendQueue.offerControl(CLOSE_WRITER);
+        signalReader();
+        closeSocket();
+    }
+
+    /**
+     * Returns the description of the connection.
+     *
+     * @return the description of the connection
+     */
+    @Override
+    public String toString() {
+        return client.toString();
+    }
+
+    /**
+     * Closes the socket, so both threads fail and report the connection error.
+     */
+    @Override
+    protected void failAsynchronously() {
+        closeSocket();
+    }
+
+    /**
+     * Returns the number of bytes waiting for being sent to the client.
+     *
+     * @return the number of queued bytes
+     */
+    public long getQueuedBytes() {
+        return sendQueue.getQueuedBytes();
+    }
+
+    /**
+     * Queues the segments of an encoded message for the writer thread.
+     *
+     * @param segments the segments to be sent
+     */
+    private void enqueue(ByteBuffer... segments) {
+        if (!sendQueue.offer(segments)) {
+            queueOverflowed(sendQueue.getQueuedBytes());
+        }
+    }
+
+    /**
+     * Wakes up the reader thread waiting for an expected message.
+     */
+    private void signalReader() {
+        lock.lock();
+        try {
+            messageExpectedCondition.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the socket of the client.
+     */
+    private void closeSocket() {
+        try {
+            client.close();
+        }
+        catch (IOException e) {
+            // the socket is closed anyway
+        }
+    }
+
+    /**
+     * This class represents the thread which blocks on reading the messages of the client.
+     */
+    private class ReaderThread implements Runnable {
+
+        /**
+         * Runs the reader thread.
+         */
+        @Override
+        public void run() {
+            try (InputStream input = client.getInputStream()) {
+                byte[] buffer = new byte[READ_BUFFER_SIZE];
+
+                while (awaitMessageExpected()) {
+                    String message = decoder.nextMessage();
+                    if (message == null) {
+                        read(input, buffer);
+                        continue;
+                    }
+                    dataReceived(message);
+                }
+            }
+            catch (IOException e) {
+                connectionFailed();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                connectionFailed();
+            }
+        }
+
+        /**
+         * Blocks until bytes arrive from the client and passes them to the decoder.
+         *
+         * @param input the input stream of the client
+         * @param buffer the buffer to read the bytes into
+         * @throws IOException if the connection fails or the client violates the protocol
+         */
+        private void read(InputStream input, byte[] buffer) throws IOException {
+            int length = input.read(buffer);
+            if (length < 0) {
+                throw new IOException("Connection closed by the client");
+            }
+            boolean negotiated = decoder.isNegotiated();
+            if (!decoder.feed(buffer, 0, length)) {
+                throw new IOException("Message too long");
+            }
+            if (!negotiated && decoder.isFramed()) {
+                setFramed(true);
+                enqueue(ByteBuffer.wrap(Framing.MAGIC.clone()));
+            }
+        }
+
+        /**
+         * Parks the thread until a message is expected, so unexpected messages stay in the socket.
+         *
+         * @return true if a message is expected, false if the service has been closed
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        private boolean awaitMessageExpected() throws InterruptedException {
+            lock.lock();
+            try {
+                while (isServiceOpen() && !isMessageExpected()) {
+                    messageExpectedCondition.await();
+                }
+                return isServiceOpen();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * This class represents the thread which parks until a message is queued and then writes it to the client.
+     */
+    private class WriterThread implements Runnable {
+
+        /**
+         * Runs the writer thread.
+         */
+        @Override
+        public void run() {
+            try (OutputStream output = new BufferedOutputStream(client.getOutputStream())) {
+
+                ByteBuffer[] segments;
+                while ((segments = sendQueue.take()) != CLOSE_WRITER) {
+                    for (ByteBuffer segment : segments) {
+                        output.write(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+                    }
+                    if (sendQueue.isEmpty()) {
+                        output.flush();
+                    }
+                }
+            }
+            catch (IOException e) {
+                connectionFailed();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                connectionFailed();
+            }
+            finally {
+                sendQueue.clear();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,34 +1,29 @@
 package cz.cuni.mff.desitka.server.communication;
 
-import cz.cuni.mff.desitka.JSON.Constants;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class handles the communication between the server and the client.
+ * Subclasses provide the transport which moves the messages over the network.
  */
-public class CommunicationService {
-    private final Socket client;
-    private final Deque<String> sendMessages = new ConcurrentLinkedDeque<>();
-    private CommunicationListener listener;
-    private volatile boolean serviceOpen;
-    private volatile boolean messageExpected;
-    private volatile long messageTimeout;
-
+public abstract class CommunicationService {
     /**
-     * Constructs a new communication service with a specified client socket.
-     *
-     * @param client the client socket
+     * The message passed to the listener when the connection fails while a message is expected.
      */
-    public CommunicationService(Socket client) {
-        this.client = client;
-    }
+    public final static String CONNECTION_ERROR = "Connection error";
+
+    private CommunicationListener listener;
+    private final AtomicBoolean serviceOpen = new AtomicBoolean();
+    private final AtomicBoolean evicted = new AtomicBoolean();
+    private final AtomicBoolean counted = new AtomicBoolean();
+    private volatile boolean messageExpected;
+    private volatile boolean framed;
 
     /**
      * Sets the listener for the communication service.
@@ -43,9 +38,10 @@ public class CommunicationService {
      * Starts the communication service.
      */
     public void start() {
-        serviceOpen = true;
-        Thread communicationThread = new Thread(new CommunicationThread());
-        communicationThread.start();
+        serviceOpen.set(true);
+        if (counted.compareAndSet(false, true)) {
+            ServerMetrics.connectionOpened();
+        }
     }
 
     /**
@@ -53,24 +49,47 @@ public class CommunicationService {
      *
      * @param message the message to be sent
      */
-    public void sendMessage(String message) {
-        sendMessages.addFirst(message);
+    public abstract void sendMessage(String message);
+
+    /**
+     * Sends a message consisting of a part shared by all recipients and a part specific to the client.
+     * Transports which can write the shared bytes directly override this method.
+     *
+     * @param shared the part of the message shared by all recipients
+     * @param personal the UTF-8 encoded part of the message specific to the client
+     */
+    public void sendMessage(SharedMessage shared, byte[] personal) {
+        sendMessage(shared.getText() + new String(personal, StandardCharsets.UTF_8));
     }
 
     /**
-     * Expects a message from the client with a specified timeout.
+     * Lowers the high-water mark of the queue of unsent messages of the client, see {@link OutboundQueue}.
+     * Transports which queue the messages override this method.
      *
-     * @param timeout the timeout for the message
+     * @param maxQueuedBytes the maximum number of bytes waiting for being sent to the client
+     */
+    public void limitQueuedBytes(long maxQueuedBytes) {}
+
+    /**
+     * Expects a message from the client.
+     * The deadline of the message is enforced by the game, see {@link cz.cuni.mff.desitka.server.gameLogic.GameTimer}.
      */
-    public void expectMessage(long timeout) {
-        messageTimeout = System.currentTimeMillis() + Constants.EXTRA_TIME + timeout;
+    public void expectMessage() {
         messageExpected = true;
 
-        if (!serviceOpen) {
-            listener.onDataReceived("Connection error");
+        if (!serviceOpen.get()) {
+            listener.onDataReceived(CONNECTION_ERROR);
+            return;
         }
+        onMessageExpected();
     }
 
+    /**
+     * Called after a message has been expected on an open service.
+     * Transports which do not poll for the messages use this hook to deliver or read them.
+     */
+    protected void onMessageExpected() {}
+
     /**
      * Confirms the receipt of a message from the client.
      */
@@ -82,74 +101,109 @@ public class CommunicationService {
      * Closes the communication service.
      */
     public void close() {
-        serviceOpen = false;
+        serviceOpen.set(false);
+        if (counted.compareAndSet(true, false)) {
+            ServerMetrics.connectionClosed();
+        }
     }
 
     /**
-     * This class represents a communication thread for the communication service.
-     */
-    private class CommunicationThread implements Runnable {
-
-        /**
-         * Runs the communication thread.
-         */
-        @Override
-        public void run() {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
-                 PrintWriter printer = new PrintWriter(client.getOutputStream(), true)) {
-
-                while (serviceOpen) {
-                    if (messageExpected) {
-                        checkMessageTimeout();
-                        getMessages(reader);
-                    }
-                    sendMessages(printer);
-                    Thread.yield();
-                }
-            }
-            catch (IOException e) {
-                if (messageExpected) {
-                    listener.onDataReceived("Connection error");
-                }
-                close();
-            }
-        }
+     * Checks if the client uses the framed format of the messages described in {@link Framing}.
+     *
+     * @return true if the client uses frames, false if it uses lines
+     */
+    public boolean isFramed() {
+        return framed;
+    }
 
-        /**
-         * Checks if the message timeout has been reached.
-         *
-         * @throws IOException if the message timeout has been reached
-         */
-        private void checkMessageTimeout() throws IOException {
-            if (messageTimeout < System.currentTimeMillis()) {
-                throw new IOException("Message timeout");
-            }
-        }
+    /**
+     * Sets the format of the messages chosen by the client.
+     *
+     * @param framed true if the client uses frames, false if it uses lines
+     */
+    protected void setFramed(boolean framed) {
+        this.framed = framed;
+    }
+
+    /**
+     * Encodes a message in the format chosen by the client.
+     *
+     * @param message the message to be encoded
+     * @return the encoded message
+     */
+    protected byte[] encode(String message) {
+        return Framing.encode(message, framed);
+    }
+
+    /**
+     * Encodes a message consisting of a shared and a personal part in the format chosen by the client.
+     *
+     * @param shared the part of the message shared by all recipients
+     * @param personal the UTF-8 encoded part of the message specific to the client
+     * @return the segments of the encoded message
+     */
+    protected ByteBuffer[] encode(SharedMessage shared, byte[] personal) {
+        return Framing.encode(shared, personal, framed);
+    }
+
+    /**
+     * Checks if the communication service is open.
+     *
+     * @return true if the service is open, false otherwise
+     */
+    public boolean isServiceOpen() {
+        return serviceOpen.get();
+    }
+
+    /**
+     * Checks if a message from the client is expected.
+     *
+     * @return true if a message is expected, false otherwise
+     */
+    protected boolean isMessageExpected() {
+        return messageExpected;
+    }
+
+    /**
+     * Passes received data to the listener.
+     *
+     * @param data the received data
+     */
+    protected void dataReceived(String data) {
+        listener.onDataReceived(data);
+    }
 
-        /**
-         * Gets messages from the client.
-         *
-         * @param reader the reader to read the messages
-         * @throws IOException if an I/O error occurs
-         */
-        private void getMessages(BufferedReader reader) throws IOException {
-            if (reader.ready()) {
-                String message = reader.readLine();
-                System.out.println("Received message: " + message);
-                listener.onDataReceived(message);
-            }
+    /**
+     * Evicts the client whose queue of unsent messages has exceeded the high-water mark of {@link OutboundQueue}.
+     * The connection fails on a thread of the transport, so the listener is not called in the middle of a broadcast,
+     * and the player is dropped by the game like any other disconnected player.
+     *
+     * @param queuedBytes the number of bytes waiting for being sent to the client
+     */
+    protected void queueOverflowed(long queuedBytes) {
+        if (evicted.compareAndSet(false, true)) {
+            Log.warn(LogCategory.CONNECTION, "evict").connection(this).field("queued_bytes", queuedBytes).publish();
+            failAsynchronously();
         }
+    }
+
+    /**
+     * Makes the connection fail on a thread of the transport, which then calls {@link #connectionFailed()}.
+     */
+    protected abstract void failAsynchronously();
 
-        /**
-         * Sends messages to the client.
-         *
-         * @param printer the printer to send the messages
-         */
-        private void sendMessages(PrintWriter printer) {
-            while (!sendMessages.isEmpty()) {
-                System.out.println("Sending message: " + sendMessages.peekLast());
-                printer.println(sendMessages.removeLast());
-            }
+    /**
+     * Closes the service and reports the failed connection to the listener if a message is expected.
+     * The failure is reported at most once, even if several threads of the transport fail at the same time.
+     */
+    protected void connectionFailed() {
+        boolean wasOpen = serviceOpen.getAndSet(false);
+        close();
+        if (wasOpen) {
+            Log.info(LogCategory.CONNECTION, "disconnect").connection(this).publish();
+        }
+        if (wasOpen && messageExpected) {
+            listener.onDataReceived(CONNECTION_ERROR);
         }
     }
 }
\ No newline at end of file
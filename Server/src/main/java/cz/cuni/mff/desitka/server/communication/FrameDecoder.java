@@ -0,0 +1,43 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.IOException;
+
+/**
+ * This class decodes length-prefixed frames received from a client.
+ * Each frame is a 4 byte big-endian length followed by exactly one UTF-8 encoded JSON message.
+ */
+public class FrameDecoder extends MessageDecoder {
+    private final int maxFrameBytes;
+
+    /**
+     * Constructs a new frame decoder.
+     *
+     * @param maxFrameBytes the maximum number of bytes of a frame body
+     */
+    public FrameDecoder(int maxFrameBytes) {
+        super(Framing.HEADER_BYTES + maxFrameBytes);
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    /**
+     * Returns the body of the next complete frame.
+     *
+     * @return the body of the next complete frame, or null if no complete frame has been received
+     * @throws IOException if the frame is empty or larger than the maximum frame size
+     */
+    @Override
+    public String nextMessage() throws IOException {
+        if (bufferedBytes() < Framing.HEADER_BYTES) {
+            return null;
+        }
+        int length = (byteAt(0) & 0xFF) << 24 | (byteAt(1) & 0xFF) << 16 | (byteAt(2) & 0xFF) << 8 | byteAt(3) & 0xFF;
+        if (length <= 0 || length > maxFrameBytes) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        if (bufferedBytes() < Framing.HEADER_BYTES + length) {
+            return null;
+        }
+        skip(Framing.HEADER_BYTES);
+        return consume(length, 0);
+    }
+}
\ No newline at end of file
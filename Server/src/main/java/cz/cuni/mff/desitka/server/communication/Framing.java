@@ -0,0 +1,90 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class describes the two wire formats of the messages.
+ * Newline clients send and receive one JSON message per line. A client opts in to the framed format
+ * by sending the {@link #MAGIC} bytes before its joining message; afterwards both sides exchange frames
+ * of a 4 byte big-endian length followed by the UTF-8 encoded JSON message.
+ * The server confirms the framed format by sending the same magic bytes before its first frame.
+ */
+public class Framing {
+    /**
+     * The bytes which select the framed format at the start of a connection.
+     */
+    public final static byte[] MAGIC = {'D', 'S', 'K', 'F'};
+
+    /**
+     * The number of bytes of the length prefix of a frame.
+     */
+    public final static int HEADER_BYTES = 4;
+
+    /**
+     * The system property setting the maximum number of bytes of a received message.
+     */
+    public final static String MAX_MESSAGE_BYTES_PROPERTY = "desitka.maxMessageBytes";
+
+    /**
+     * The maximum number of bytes of a received message, a frame body or a line.
+     */
+    public final static int MAX_MESSAGE_BYTES = Integer.getInteger(MAX_MESSAGE_BYTES_PROPERTY, 64 * 1024);
+
+    /**
+     * The personal part of a message which is the same for all its recipients.
+     */
+    public final static byte[] NO_PERSONAL_PART = {};
+
+    private final static byte[] NEWLINE = {'\n'};
+
+    /**
+     * Encodes a message for sending.
+     *
+     * @param message the message to be encoded
+     * @param framed true to encode the message as a frame, false to encode it as a line
+     * @return the encoded message
+     */
+    public static byte[] encode(String message, boolean framed) {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        if (!framed) {
+            byte[] line = new byte[body.length + 1];
+            System.arraycopy(body, 0, line, 0, body.length);
+            line[body.length] = '\n';
+            return line;
+        }
+        byte[] frame = new byte[HEADER_BYTES + body.length];
+        frame[0] = (byte) (body.length >>> 24);
+        frame[1] = (byte) (body.length >>> 16);
+        frame[2] = (byte) (body.length >>> 8);
+        frame[3] = (byte) body.length;
+        System.arraycopy(body, 0, frame, HEADER_BYTES, body.length);
+        return frame;
+    }
+
+    /**
+     * Encodes a message consisting of a shared part and a part specific to its recipient.
+     * Neither part is copied, so the returned segments should be sent by a gathering write,
+     * and the arrays of both parts must not be modified.
+     *
+     * @param shared the part of the message shared by all recipients
+     * @param personal the UTF-8 encoded part of the message specific to the recipient,
+     *                 {@link #NO_PERSONAL_PART} if there is none
+     * @param framed true to encode the message as a frame, false to encode it as a line
+     * @return the segments of the encoded message
+     */
+    public static ByteBuffer[] encode(SharedMessage shared, byte[] personal, boolean framed) {
+        byte[] sharedBytes = shared.getBytes();
+        if (!framed) {
+            if (personal.length == 0) {
+                return new ByteBuffer[] {ByteBuffer.wrap(sharedBytes), ByteBuffer.wrap(NEWLINE)};
+            }
+            return new ByteBuffer[] {ByteBuffer.wrap(sharedBytes), ByteBuffer.wrap(personal), ByteBuffer.wrap(NEWLINE)};
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(0, sharedBytes.length + personal.length);
+        if (personal.length == 0) {
+            return new ByteBuffer[] {header, ByteBuffer.wrap(sharedBytes)};
+        }
+        return new ByteBuffer[] {header, ByteBuffer.wrap(sharedBytes), ByteBuffer.wrap(personal)};
+    }
+}
\ No newline at end of file
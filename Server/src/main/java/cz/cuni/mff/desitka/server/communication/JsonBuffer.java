@@ -0,0 +1,412 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a reusable buffer into which a message is written as JSON encoded in UTF-8.
+ * The values are written straight into the buffer, without building strings or objects of the message,
+ * so a message is written without allocating once the buffer has grown to the size of the messages.
+ * The strings are escaped like by Gson, so the written message has the same bytes as the one encoded by Gson.
+ * A buffer is not thread-safe.
+ */
+public class JsonBuffer {
+    private final static byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private final static byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private final static byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private final static byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private byte[] bytes;
+    private int size;
+    // true if the next value follows the start of an object or an array, or a name, so it needs no comma
+    private boolean separated = true;
+
+    /**
+     * Constructs a new buffer with a specified initial capacity.
+     *
+     * @param capacity the initial capacity in bytes, the buffer grows if a message does not fit into it
+     */
+    public JsonBuffer(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    /**
+     * Clears the buffer for writing a new message.
+     *
+     * @return this buffer
+     */
+    public JsonBuffer clear() {
+        size = 0;
+        separated = true;
+        return this;
+    }
+
+    /**
+     * Starts an object, or an object value of a field or an array.
+     *
+     * @return this buffer
+     */
+    public JsonBuffer beginObject() {
+        separate();
+        put((byte) '{');
+        separated = true;
+        return this;
+    }
+
+    /**
+     * Ends an object.
+     *
+     * @return this buffer
+     */
+    public JsonBuffer endObject() {
+        put((byte) '}');
+        separated = false;
+        return this;
+    }
+
+    /**
+     * Starts an array, or an array value of a field or an array.
+     *
+     * @return this buffer
+     */
+    public JsonBuffer beginArray() {
+        separate();
+        put((byte) '[');
+        separated = true;
+        return this;
+    }
+
+    /**
+     * Ends an array.
+     *
+     * @return this buffer
+     */
+    public JsonBuffer endArray() {
+        put((byte) ']');
+        separated = false;
+        return this;
+    }
+
+    /**
+     * Writes the name of a field, which must be followed by its value.
+     *
+     * @param name the name of the field, which needs no escaping
+     * @return this buffer
+     */
+    public JsonBuffer name(String name) {
+        separate();
+        put((byte) '"');
+        for (int i = 0; i < name.length(); i++) {
+            put((byte) name.charAt(i));
+        }
+        put((byte) '"');
+        put((byte) ':');
+        separated = true;
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value the value
+     * @return this buffer
+     */
+    public JsonBuffer value(int value) {
+        return value((long) value);
+    }
+
+    /**
+     * Writes a long integer value.
+     *
+     * @param value the value
+     * @return this buffer
+     */
+    public JsonBuffer value(long value) {
+        separate();
+        if (value == Long.MIN_VALUE) {
+            return raw(Long.toString(value));
+        }
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value
+     * @return this buffer
+     */
+    public JsonBuffer value(boolean value) {
+        separate();
+        put(value ? TRUE : FALSE);
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value the value, may be null
+     * @return this buffer
+     */
+    public JsonBuffer value(String value) {
+        separate();
+        if (value == null) {
+            put(NULL);
+            return this;
+        }
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                putAscii(c);
+            }
+            else if (c < 0x800) {
+                put((byte) (0xC0 | c >> 6));
+                put((byte) (0x80 | c & 0x3F));
+            }
+            else if (c == '\u2028' || c == '\u2029') {
+                putUnicodeEscape(c);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                put((byte) (0xF0 | codePoint >> 18));
+                put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                put((byte) (0x80 | codePoint & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is replaced like by String.getBytes
+                put((byte) '?');
+            }
+            else {
+                put((byte) (0xE0 | c >> 12));
+                put((byte) (0x80 | c >> 6 & 0x3F));
+                put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        put((byte) '"');
+        return this;
+    }
+
+    /**
+     * Writes a field with a string value, or nothing if the value is null, like Gson does.
+     *
+     * @param name the name of the field
+     * @param value the value of the field, may be null
+     * @return this buffer
+     */
+    public JsonBuffer field(String name, String value) {
+        return value == null ? this : name(name).value(value);
+    }
+
+    /**
+     * Writes a field with an integer value.
+     *
+     * @param name the name of the field
+     * @param value the value of the field
+     * @return this buffer
+     */
+    public JsonBuffer field(String name, int value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a field with a long integer value.
+     *
+     * @param name the name of the field
+     * @param value the value of the field
+     * @return this buffer
+     */
+    public JsonBuffer field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a field with a boolean value.
+     *
+     * @param name the name of the field
+     * @param value the value of the field
+     * @return this buffer
+     */
+    public JsonBuffer field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    /**
+     * Writes a value encoded beforehand, e.g. by another buffer, as an object value of a field or an array.
+     *
+     * @param json the UTF-8 encoded JSON of the value
+     * @return this buffer
+     */
+    public JsonBuffer encodedValue(byte[] json) {
+        separate();
+        ensureCapacity(json.length);
+        System.arraycopy(json, 0, bytes, size, json.length);
+        size += json.length;
+        return this;
+    }
+
+    /**
+     * Returns the number of the written bytes.
+     *
+     * @return the size of the message
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the written message into a message shared by all its recipients.
+     * The copy is needed, because the shared message is sent after the buffer has been reused.
+     *
+     * @param type the type of the message
+     * @return the shared message
+     */
+    public SharedMessage toSharedMessage(String type) {
+        return new SharedMessage(Arrays.copyOf(bytes, size), type);
+    }
+
+    /**
+     * Copies the written value, so it can be written into other messages by {@link #encodedValue(byte[])}.
+     *
+     * @return the UTF-8 encoded JSON
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    /**
+     * Writes the separator of the values if a value precedes the written one.
+     */
+    private void separate() {
+        if (!separated) {
+            put((byte) ',');
+        }
+        separated = false;
+    }
+
+    /**
+     * Writes ASCII characters which need no escaping.
+     *
+     * @param text the characters
+     * @return this buffer
+     */
+    private JsonBuffer raw(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            put((byte) text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes an ASCII character of a string, escaped if needed.
+     *
+     * @param c the character
+     */
+    private void putAscii(char c) {
+        switch (c) {
+            case '"':
+            case '\\':
+                put((byte) '\\');
+                put((byte) c);
+                return;
+            case '\t':
+                putEscape('t');
+                return;
+            case '\b':
+                putEscape('b');
+                return;
+            case '\n':
+                putEscape('n');
+                return;
+            case '\r':
+                putEscape('r');
+                return;
+            case '\f':
+                putEscape('f');
+                return;
+            case '<':
+            case '>':
+            case '&':
+            case '=':
+            case '\'':
+                // escaped for embedding into HTML like by Gson
+                putUnicodeEscape(c);
+                return;
+            default:
+                if (c < 0x20) {
+                    putUnicodeEscape(c);
+                    return;
+                }
+                put((byte) c);
+        }
+    }
+
+    /**
+     * Writes a backslash escape of a character.
+     *
+     * @param c the escaped form of the character
+     */
+    private void putEscape(char c) {
+        put((byte) '\\');
+        put((byte) c);
+    }
+
+    /**
+     * Writes a unicode escape of a character.
+     *
+     * @param c the character
+     */
+    private void putUnicodeEscape(char c) {
+        put((byte) '\\');
+        put((byte) 'u');
+        put(HEX[c >> 12 & 0xF]);
+        put(HEX[c >> 8 & 0xF]);
+        put(HEX[c >> 4 & 0xF]);
+        put(HEX[c & 0xF]);
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte
+     */
+    private void put(byte b) {
+        ensureCapacity(1);
+        bytes[size++] = b;
+    }
+
+    /**
+     * Writes bytes.
+     *
+     * @param source the bytes
+     */
+    private void put(byte[] source) {
+        ensureCapacity(source.length);
+        System.arraycopy(source, 0, bytes, size, source.length);
+        size += source.length;
+    }
+
+    /**
+     * Grows the buffer if a number of bytes do not fit into it.
+     *
+     * @param length the number of bytes to be written
+     */
+    private void ensureCapacity(int length) {
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package cz.cuni.mff.desitka.server.communication;
+
+/**
+ * This class splits the bytes received from a client into UTF-8 encoded lines.
+ */
+public class LineDecoder extends MessageDecoder {
+    private int scanned;
+
+    /**
+     * Constructs a new line decoder.
+     *
+     * @param maxBufferedBytes the maximum number of bytes which can wait for being decoded
+     */
+    public LineDecoder(int maxBufferedBytes) {
+        super(maxBufferedBytes);
+    }
+
+    /**
+     * Returns the next complete line without the line terminator.
+     *
+     * @return the next complete line, or null if no complete line has been received
+     */
+    @Override
+    public String nextMessage() {
+        int buffered = bufferedBytes();
+        for (int i = scanned; i < buffered; i++) {
+            if (byteAt(i) == '\n') {
+                int length = i > 0 && byteAt(i - 1) == '\r' ? i - 1 : i;
+                scanned = 0;
+                return consume(length, i + 1 - length);
+            }
+        }
+        scanned = buffered;
+        return null;
+    }
+}
\ No newline at end of file
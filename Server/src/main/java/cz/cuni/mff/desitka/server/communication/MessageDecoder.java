@@ -0,0 +1,133 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class incrementally decodes the bytes received from a client into messages.
+ * Only the bytes of an incomplete message are kept between reads.
+ */
+public abstract class MessageDecoder {
+    private final static int INITIAL_CAPACITY = 256;
+
+    private final int maxBufferedBytes;
+    private byte[] buffer = new byte[0];
+    private int start;
+    private int end;
+
+    /**
+     * Constructs a new message decoder.
+     *
+     * @param maxBufferedBytes the maximum number of bytes which can wait for being decoded
+     */
+    protected MessageDecoder(int maxBufferedBytes) {
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Appends received bytes to the decoder.
+     *
+     * @param bytes the received bytes, the buffer is fully consumed
+     * @return false if the decoder would have to hold more than the maximum number of bytes, true otherwise
+     */
+    public boolean feed(ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (bufferedBytes() + length > maxBufferedBytes) {
+            return false;
+        }
+        ensureCapacity(length);
+        bytes.get(buffer, end, length);
+        end += length;
+        return true;
+    }
+
+    /**
+     * Appends received bytes to the decoder.
+     *
+     * @param bytes the array holding the received bytes
+     * @param offset the offset of the first received byte
+     * @param length the number of received bytes
+     * @return false if the decoder would have to hold more than the maximum number of bytes, true otherwise
+     */
+    public boolean feed(byte[] bytes, int offset, int length) {
+        return feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Returns the next complete message.
+     *
+     * @return the next complete message, or null if no complete message has been received
+     * @throws IOException if the received bytes violate the protocol
+     */
+    public abstract String nextMessage() throws IOException;
+
+    /**
+     * Returns the number of bytes waiting for being decoded.
+     *
+     * @return the number of buffered bytes
+     */
+    public int bufferedBytes() {
+        return end - start;
+    }
+
+    /**
+     * Returns the buffered byte at a specified position relative to the first buffered byte.
+     *
+     * @param index the position of the byte
+     * @return the byte at the position
+     */
+    protected byte byteAt(int index) {
+        return buffer[start + index];
+    }
+
+    /**
+     * Removes a specified number of bytes from the front of the buffer and decodes them as UTF-8.
+     *
+     * @param length the number of bytes of the text
+     * @param skip the number of bytes following the text which are removed as well
+     * @return the decoded text
+     */
+    protected String consume(int length, int skip) {
+        String text = new String(buffer, start, length, StandardCharsets.UTF_8);
+        skip(length + skip);
+        return text;
+    }
+
+    /**
+     * Removes a specified number of bytes from the front of the buffer.
+     * A grown buffer is dropped once all its bytes have been decoded, so idle connections hold no large buffers.
+     *
+     * @param length the number of removed bytes
+     */
+    protected void skip(int length) {
+        start += length;
+        if (start == end) {
+            start = 0;
+            end = 0;
+            if (buffer.length > INITIAL_CAPACITY) {
+                buffer = new byte[0];
+            }
+        }
+    }
+
+    /**
+     * Makes room for a specified number of bytes, compacting or growing the buffer.
+     *
+     * @param length the number of bytes to be appended
+     */
+    private void ensureCapacity(int length) {
+        if (end + length <= buffer.length) {
+            return;
+        }
+        int buffered = bufferedBytes();
+        byte[] target = buffer;
+        if (buffered + length > buffer.length) {
+            target = new byte[Math.max(INITIAL_CAPACITY, Math.max(buffer.length * 2, buffered + length))];
+        }
+        System.arraycopy(buffer, start, target, 0, buffered);
+        buffer = target;
+        start = 0;
+        end = buffered;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents the queue of the encoded messages waiting for being sent to a client.
+ * The queue counts the bytes of its messages and refuses new messages once the count would exceed
+ * the high-water mark, so a client which does not read its messages cannot exhaust the heap.
+ * The messages are stored as the segments of {@link Framing#encode(SharedMessage, byte[], boolean)},
+ * the count includes the shared bytes, even though they are not copied for the connection.
+ */
+public class OutboundQueue {
+    /**
+     * The system property setting the high-water mark of a queue in bytes.
+     */
+    public final static String MAX_QUEUED_BYTES_PROPERTY = "desitka.maxQueuedBytes";
+
+    /**
+     * The maximum number of bytes waiting for being sent to a client.
+     */
+    public final static long MAX_QUEUED_BYTES = Long.getLong(MAX_QUEUED_BYTES_PROPERTY, 512 * 1024);
+
+    private final static AtomicLong totalQueuedBytes = new AtomicLong();
+    private final static AtomicLong maxQueuedBytes = new AtomicLong();
+    private final static LongAdder overflows = new LongAdder();
+
+    private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private volatile long highWaterMark = MAX_QUEUED_BYTES;
+    private volatile boolean overflowed;
+
+    /**
+     * Appends an encoded message to the queue.
+     *
+     * @param segments the segments of the encoded message
+     * @return false if the message would exceed the high-water mark and has been dropped, true otherwise
+     */
+    public boolean offer(ByteBuffer... segments) {
+        if (overflowed) {
+            return false;
+        }
+        long size = size(segments);
+        long queued = queuedBytes.addAndGet(size);
+        if (queued > highWaterMark) {
+            queuedBytes.addAndGet(-size);
+            overflowed = true;
+            overflows.increment();
+            return false;
+        }
+        totalQueuedBytes.addAndGet(size);
+        maxQueuedBytes.accumulateAndGet(queued, Math::max);
+        messages.add(new Message(segments, size));
+        return true;
+    }
+
+    /**
+     * Sets the high-water mark of this queue, e.g. a lower one for a client which only watches a game.
+     *
+     * @param highWaterMark the maximum number of bytes waiting for being sent to the client
+     */
+    public void setHighWaterMark(long highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Appends a message which does not count into the high-water mark, e.g. a marker stopping a writer thread.
+     *
+     * @param segments the segments of the message
+     */
+    public void offerControl(ByteBuffer... segments) {
+        messages.add(new Message(segments, 0));
+    }
+
+    /**
+     * Returns the first message of the queue without removing it.
+     *
+     * @return the first message, or null if the queue is empty
+     */
+    public ByteBuffer[] peek() {
+        Message message = messages.peek();
+        return message == null ? null : message.segments;
+    }
+
+    /**
+     * Removes the first message of the queue.
+     *
+     * @return the removed message, or null if the queue is empty
+     */
+    public ByteBuffer[] poll() {
+        Message message = messages.poll();
+        if (message == null) {
+            return null;
+        }
+        released(message);
+        return message.segments;
+    }
+
+    /**
+     * Removes the first message of the queue, waiting for a message if the queue is empty.
+     *
+     * @return the removed message
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public ByteBuffer[] take() throws InterruptedException {
+        Message message = messages.take();
+        released(message);
+        return message.segments;
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return true if the queue is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * Drops all queued messages.
+     */
+    public void clear() {
+        Message message;
+        while ((message = messages.poll()) != null) {
+            released(message);
+        }
+    }
+
+    /**
+     * Returns the number of bytes waiting for being sent to the client.
+     *
+     * @return the number of queued bytes
+     */
+    public long getQueuedBytes() {
+        return queuedBytes.get();
+    }
+
+    /**
+     * Returns the number of bytes waiting for being sent to all clients.
+     *
+     * @return the number of queued bytes of all connections
+     */
+    public static long getTotalQueuedBytes() {
+        return totalQueuedBytes.get();
+    }
+
+    /**
+     * Returns the largest number of bytes which have been waiting for being sent to a single client.
+     *
+     * @return the maximum depth of a queue in bytes
+     */
+    public static long getMaxQueuedBytes() {
+        return maxQueuedBytes.get();
+    }
+
+    /**
+     * Returns the number of queues which have exceeded the high-water mark.
+     *
+     * @return the number of overflowed queues
+     */
+    public static long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Subtracts the bytes of a removed message from the counts.
+     *
+     * @param message the removed message
+     */
+    private void released(Message message) {
+        if (message.size > 0) {
+            queuedBytes.addAndGet(-message.size);
+            totalQueuedBytes.addAndGet(-message.size);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of a message.
+     *
+     * @param segments the segments of the message
+     * @return the number of bytes of the message
+     */
+    private static long size(ByteBuffer[] segments) {
+        long size = 0;
+        for (ByteBuffer segment : segments) {
+            size += segment.remaining();
+        }
+        return size;
+    }
+
+    /**
+     * This class represents a queued message together with its size at the time it was queued.
+     */
+    private static class Message {
+        private final ByteBuffer[] segments;
+        private final long size;
+
+        /**
+         * Constructs a new queued message.
+         *
+         * @param segments the segments of the message
+         * @param size the number of bytes of the message
+         */
+        private Message(ByteBuffer[] segments, long size) {
+            this.segments = segments;
+            this.size = size;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class detects the wire format chosen by the client from the first received bytes
+ * and then decodes the messages using the {@link LineDecoder} or the {@link FrameDecoder}.
+ * See {@link Framing} for the description of both formats.
+ */
+public class ProtocolDecoder {
+    private final int maxMessageBytes;
+    private final byte[] magic = new byte[Framing.MAGIC.length];
+    private int magicBytes;
+    private MessageDecoder decoder;
+
+    /**
+     * Constructs a new protocol decoder.
+     *
+     * @param maxMessageBytes the maximum number of bytes of a received message
+     */
+    public ProtocolDecoder(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * Appends received bytes to the decoder.
+     *
+     * @param bytes the received bytes, the buffer is fully consumed
+     * @return false if the decoder would have to hold more than the maximum message size, true otherwise
+     * @throws IOException if the client starts the magic bytes of the framed format but does not finish them
+     */
+    public boolean feed(ByteBuffer bytes) throws IOException {
+        if (decoder == null) {
+            detect(bytes);
+            if (decoder == null) {
+                return true;
+            }
+        }
+        return decoder.feed(bytes);
+    }
+
+    /**
+     * Appends received bytes to the decoder.
+     *
+     * @param bytes the array holding the received bytes
+     * @param offset the offset of the first received byte
+     * @param length the number of received bytes
+     * @return false if the decoder would have to hold more than the maximum message size, true otherwise
+     * @throws IOException if the client starts the magic bytes of the framed format but does not finish them
+     */
+    public boolean feed(byte[] bytes, int offset, int length) throws IOException {
+        return feed(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Returns the next complete message.
+     *
+     * @return the next complete message, or null if no complete message has been received
+     * @throws IOException if the received bytes violate the protocol
+     */
+    public String nextMessage() throws IOException {
+        return decoder == null ? null : decoder.nextMessage();
+    }
+
+    /**
+     * Checks if the client has chosen the wire format.
+     *
+     * @return true if the wire format is known, false otherwise
+     */
+    public boolean isNegotiated() {
+        return decoder != null;
+    }
+
+    /**
+     * Checks if the client has chosen the framed format.
+     *
+     * @return true if the client uses frames, false otherwise
+     */
+    public boolean isFramed() {
+        return decoder instanceof FrameDecoder;
+    }
+
+    /**
+     * Consumes the magic bytes of the framed format or chooses the line format if the client does not send them.
+     *
+     * @param bytes the received bytes
+     * @throws IOException if the client starts the magic bytes but does not finish them
+     */
+    private void detect(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining() && magicBytes < magic.length) {
+            byte next = bytes.get(bytes.position());
+            if (next != Framing.MAGIC[magicBytes]) {
+                if (magicBytes > 0) {
+                    throw new IOException("Invalid protocol header");
+                }
+                decoder = new LineDecoder(maxMessageBytes);
+                return;
+            }
+            magic[magicBytes++] = bytes.get();
+        }
+        if (magicBytes == magic.length) {
+            decoder = new FrameDecoder(maxMessageBytes);
+        }
+    }
+}
\ No newline at end of file
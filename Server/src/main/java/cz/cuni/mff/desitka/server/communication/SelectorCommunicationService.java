@@ -0,0 +1,266 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class handles the communication with a client over a non-blocking channel served by a {@link SelectorLoop}.
+ * The connection is only processed when the channel is ready, so an idle connection costs no CPU time.
+ */
+public class SelectorCommunicationService extends CommunicationService {
+    /**
+     * The size of the buffer shared by all connections of a selector loop for reading.
+     */
+    private final static int READ_BUFFER_SIZE = 16 * 1024;
+
+    private final static ThreadLocal<ByteBuffer> readBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(READ_BUFFER_SIZE));
+
+    private final SocketChannel channel;
+    private final SelectorLoop loop;
+    private final ProtocolDecoder decoder = new ProtocolDecoder(Framing.MAX_MESSAGE_BYTES);
+    private final OutboundQueue sendQueue = new OutboundQueue();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private SelectionKey key;
+
+    /**
+     * Constructs a new communication service with a specified client channel.
+     *
+     * @param channel the client channel
+     */
+    public SelectorCommunicationService(SocketChannel channel) {
+        this.channel = channel;
+        this.loop = SelectorLoop.next();
+    }
+
+    /**
+     * Starts the communication service by registering the channel with its selector loop.
+     */
+    @Override
+    public void start() {
+        super.start();
+        loop.execute(this::register);
+    }
+
+    /**
+     * Sends a message to the client.
+     *
+     * @param message the message to be sent
+     */
+    @Override
+    public void sendMessage(String message) {
+        if (!isServiceOpen()) {
+            return;
+        }
+        enqueue(ByteBuffer.wrap(encode(message)));
+    }
+
+    /**
+     * Sends a message consisting of a shared and a personal part to the client.
+     * The shared bytes are written directly from the shared message by a gathering write.
+     *
+     * @param shared the part of the message shared by all recipients
+     * @param personal the UTF-8 encoded part of the message specific to the client
+     */
+    @Override
+    public void sendMessage(SharedMessage shared, byte[] personal) {
+        if (!isServiceOpen()) {
+            return;
+        }
+        enqueue(encode(shared, personal));
+    }
+
+    /**
+     * Sets the high-water mark of the queue of unsent messages of the client.
+     *
+     * @param maxQueuedBytes the maximum number of bytes waiting for being sent to the client
+     */
+    @Override
+    public void limitQueuedBytes(long maxQueuedBytes) {
+        sendQueue.setHighWaterMark(maxQueuedBytes);
+    }
+
+    /**
+     * Delivers a message which may have already been received.
+     */
+    @Override
+    protected void onMessageExpected() {
+        loop.execute(this::deliverMessages);
+    }
+
+    /**
+     * Closes the communication service and its channel.
+     */
+    @Override
+    public void close() {
+        super.close();
+        loop.execute(this::closeChannel);
+    }
+
+    /**
+     * Fails the connection on the thread of the selector loop.
+     */
+    @Override
+    protected void failAsynchronously() {
+        loop.execute(this::connectionFailed);
+    }
+
+    /**
+     * Returns the number of bytes waiting for being sent to the client.
+     *
+     * @return the number of queued bytes
+     */
+    public long getQueuedBytes() {
+        return sendQueue.getQueuedBytes();
+    }
+
+    /**
+     * Handles the readiness of the channel. Called on the thread of the selector loop.
+     *
+     * @param key the selection key of the channel
+     */
+    void handleReady(SelectionKey key) {
+        if (key.isReadable()) {
+            read();
+        }
+        if (key.isValid() && key.isWritable()) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the description of the connection.
+     *
+     * @return the description of the connection
+     */
+    @Override
+    public String toString() {
+        Socket socket = channel.socket();
+        return "Channel[addr=" + socket.getRemoteSocketAddress() + ",localport=" + socket.getLocalPort() + "]";
+    }
+
+    /**
+     * Registers the channel with the selector of the loop.
+     */
+    private void register() {
+        try {
+            channel.configureBlocking(false);
+            key = channel.register(loop.getSelector(), SelectionKey.OP_READ, this);
+        }
+        catch (IOException e) {
+            connectionFailed();
+        }
+    }
+
+    /**
+     * Reads the available bytes from the channel and delivers the complete messages.
+     */
+    private void read() {
+        ByteBuffer buffer = readBuffer.get();
+        buffer.clear();
+        try {
+            if (channel.read(buffer) < 0) {
+                connectionFailed();
+                return;
+            }
+        }
+        catch (IOException e) {
+            connectionFailed();
+            return;
+        }
+        buffer.flip();
+        try {
+            boolean negotiated = decoder.isNegotiated();
+            if (!decoder.feed(buffer)) {
+                throw new IOException("Message too long");
+            }
+            if (!negotiated && decoder.isFramed()) {
+                setFramed(true);
+                enqueue(ByteBuffer.wrap(Framing.MAGIC.clone()));
+            }
+        }
+        catch (IOException e) {
+            connectionFailed();
+            return;
+        }
+        deliverMessages();
+    }
+
+    /**
+     * Delivers the received messages to the listener while messages are expected.
+     */
+    private void deliverMessages() {
+        try {
+            while (isServiceOpen() && isMessageExpected()) {
+                String message = decoder.nextMessage();
+                if (message == null) {
+                    return;
+                }
+                dataReceived(message);
+            }
+        }
+        catch (IOException e) {
+            connectionFailed();
+        }
+    }
+
+    /**
+     * Queues the segments of an encoded message for sending and schedules their writing on the loop.
+     *
+     * @param segments the segments to be sent
+     */
+    private void enqueue(ByteBuffer... segments) {
+        if (!sendQueue.offer(segments)) {
+            queueOverflowed(sendQueue.getQueuedBytes());
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes the queued messages to the channel, waiting for the channel to become writable if it is full.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        try {
+            ByteBuffer[] segments;
+            while ((segments = sendQueue.peek()) != null) {
+                channel.write(segments);
+                if (segments[segments.length - 1].hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                sendQueue.poll();
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+        catch (IOException e) {
+            connectionFailed();
+        }
+    }
+
+    /**
+     * Closes the channel and drops the unsent messages.
+     */
+    private void closeChannel() {
+        if (key != null) {
+            key.cancel();
+        }
+        sendQueue.clear();
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            // the channel is closed anyway
+        }
+    }
+}
\ No newline at end of file
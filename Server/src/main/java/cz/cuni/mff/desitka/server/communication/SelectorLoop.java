@@ -0,0 +1,142 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents an event loop which serves many non-blocking connections on a single thread.
+ * Idle connections cost no CPU time, the thread only wakes up when a connection is ready or a task is submitted.
+ */
+public class SelectorLoop implements Runnable {
+    private static volatile SelectorLoop[] loops;
+    private final static AtomicInteger nextLoop = new AtomicInteger();
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs a new selector loop.
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    private SelectorLoop() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Starts a specified number of selector loops, each on its own daemon thread.
+     *
+     * @param count the number of selector loops
+     */
+    public static synchronized void startLoops(int count) {
+        if (loops != null) {
+            return;
+        }
+        SelectorLoop[] startedLoops = new SelectorLoop[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                startedLoops[i] = new SelectorLoop();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Thread thread = new Thread(startedLoops[i], "selector-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        loops = startedLoops;
+    }
+
+    /**
+     * Returns the next selector loop in a round-robin fashion, starting one loop per core if none are running.
+     *
+     * @return the next selector loop
+     */
+    public static SelectorLoop next() {
+        if (loops == null) {
+            startLoops(Runtime.getRuntime().availableProcessors());
+        }
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    /**
+     * Returns the selector of the loop.
+     *
+     * @return the selector of the loop
+     */
+    public Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Runs a task on the thread of the loop.
+     *
+     * @param task the task to be run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the loop, dispatching ready connections and submitted tasks.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            runTasks();
+            dispatchReadyKeys();
+        }
+    }
+
+    /**
+     * Runs all submitted tasks.
+     */
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            }
+            catch (RuntimeException e) {
+                // a failing task must not stop the other connections of the loop
+                Log.error(LogCategory.SYSTEM, "task.failed").exception(e).publish();
+            }
+        }
+    }
+
+    /**
+     * Dispatches the ready connections to their communication services.
+     */
+    private void dispatchReadyKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            try {
+                if (key.isValid()) {
+                    ((SelectorCommunicationService) key.attachment()).handleReady(key);
+                }
+            }
+            catch (RuntimeException e) {
+                // a failing connection must not stop the other connections of the loop
+                Log.error(LogCategory.SYSTEM, "connection.failed").exception(e).publish();
+            }
+        }
+    }
+}
\ No newline at end of file
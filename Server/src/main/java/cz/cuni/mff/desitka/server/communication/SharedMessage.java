@@ -0,0 +1,74 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class represents the part of a message which is the same for all its recipients.
+ * The part is encoded only once and its bytes are sent to every recipient,
+ * followed by a short part specific to the recipient.
+ */
+public class SharedMessage {
+    private final String text;
+    private final String type;
+    private final byte[] bytes;
+
+    /**
+     * Constructs a new shared message.
+     *
+     * @param text the text shared by all recipients
+     * @param type the type of the message
+     */
+    public SharedMessage(String text, String type) {
+        this.text = text;
+        this.type = type;
+        this.bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs a new shared message from its encoded bytes, which are decoded only if its text is needed.
+     *
+     * @param bytes the UTF-8 encoded text shared by all recipients, which must not be modified
+     * @param type the type of the message
+     */
+    public SharedMessage(byte[] bytes, String type) {
+        this.text = null;
+        this.type = type;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Returns the text shared by all recipients.
+     *
+     * @return the shared text
+     */
+    public String getText() {
+        return text != null ? text : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the type of the message.
+     *
+     * @return the type of the message
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of bytes shared by all recipients.
+     *
+     * @return the number of shared bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * Returns the UTF-8 encoded text shared by all recipients. The array must not be modified.
+     *
+     * @return the shared bytes
+     */
+    byte[] getBytes() {
+        return bytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * This class handles the communication with a client on its own platform thread,
+ * which polls the socket for incoming messages.
+ * It only supports the line format of the messages, see {@link Framing}.
+ */
+public class ThreadCommunicationService extends CommunicationService {
+    private final Socket client;
+    private final OutboundQueue sendQueue = new OutboundQueue();
+
+    /**
+     * Constructs a new communication service with a specified client socket.
+     *
+     * @param client the client socket
+     */
+    public ThreadCommunicationService(Socket client) {
+        this.client = client;
+    }
+
+    /**
+     * Starts the communication service.
+     */
+    @Override
+    public void start() {
+        super.start();
+        Thread communicationThread = new Thread(new CommunicationThread());
+        communicationThread.start();
+    }
+
+    /**
+     * Sends a message to the client.
+     *
+     * @param message the message to be sent
+     */
+    @Override
+    public void sendMessage(String message) {
+        if (!isServiceOpen()) {
+            return;
+        }
+        if (!sendQueue.offer(ByteBuffer.wrap(encode(message)))) {
+            queueOverflowed(sendQueue.getQueuedBytes());
+        }
+    }
+
+    /**
+     * Sets the high-water mark of the queue of unsent messages of the client.
+     *
+     * @param maxQueuedBytes the maximum number of bytes waiting for being sent to the client
+     */
+    @Override
+    public void limitQueuedBytes(long maxQueuedBytes) {
+        sendQueue.setHighWaterMark(maxQueuedBytes);
+    }
+
+    /**
+     * Closes the socket, so the communication thread fails and reports the connection error.
+     */
+    @Override
+    protected void failAsynchronously() {
+        try {
+            client.close();
+        }
+        catch (IOException e) {
+            // the socket is closed anyway
+        }
+    }
+
+    /**
+     * Returns the number of bytes waiting for being sent to the client.
+     *
+     * @return the number of queued bytes
+     */
+    public long getQueuedBytes() {
+        return sendQueue.getQueuedBytes();
+    }
+
+    /**
+     * Returns the description of the connection.
+     *
+     * @return the description of the connection
+     */
+    @Override
+    public String toString() {
+        return client.toString();
+    }
+
+    /**
+     * This class represents a communication thread for the communication service.
+     */
+    private class CommunicationThread implements Runnable {
+
+        /**
+         * Runs the communication thread.
+         */
+        @Override
+        public void run() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
+                 OutputStream output = new BufferedOutputStream(client.getOutputStream())) {
+
+                while (isServiceOpen()) {
+                    if (isMessageExpected()) {
+                        getMessages(reader);
+                    }
+                    sendMessages(output);
+                    Thread.yield();
+                }
+            }
+            catch (IOException e) {
+                connectionFailed();
+            }
+            finally {
+                sendQueue.clear();
+            }
+        }
+
+        /**
+         * Gets messages from the client.
+         *
+         * @param reader the reader to read the messages
+         * @throws IOException if an I/O error occurs
+         */
+        private void getMessages(BufferedReader reader) throws IOException {
+            if (reader.ready()) {
+                String message = reader.readLine();
+                dataReceived(message);
+            }
+        }
+
+        /**
+         * Sends the queued messages to the client.
+         *
+         * @param output the output stream of the client
+         * @throws IOException if an I/O error occurs
+         */
+        private void sendMessages(OutputStream output) throws IOException {
+            if (sendQueue.isEmpty()) {
+                return;
+            }
+            ByteBuffer[] segments;
+            while ((segments = sendQueue.poll()) != null) {
+                for (ByteBuffer segment : segments) {
+                    output.write(segment.array(), segment.arrayOffset() + segment.position(), segment.remaining());
+                }
+            }
+            output.flush();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package cz.cuni.mff.desitka.server.communication;
+
+/**
+ * The Transport enum represents the ways the server can serve the connections of the clients.
+ */
+public enum Transport {
+    /**
+     * Each connection is served by its own platform thread which polls the socket.
+     */
+    THREAD,
+
+    /**
+     * Each connection is served by a reader and a writer thread blocking on the socket.
+     * The threads are virtual threads if the JVM supports them.
+     */
+    VIRTUAL,
+
+    /**
+     * All connections are served by a few selector loops using non-blocking channels.
+     */
+    SELECTOR;
+
+    /**
+     * The system property selecting the transport.
+     */
+    public final static String PROPERTY = "desitka.transport";
+
+    /**
+     * Returns the transport selected by the system property, {@link #SELECTOR} by default.
+     *
+     * @return the selected transport
+     * @throws IllegalArgumentException if the property names an unknown transport
+     */
+    public static Transport fromSystemProperty() {
+        return valueOf(System.getProperty(PROPERTY, SELECTOR.name()).toUpperCase());
+    }
+}
\ No newline at end of file
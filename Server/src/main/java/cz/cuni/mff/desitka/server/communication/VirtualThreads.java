@@ -0,0 +1,56 @@
+package cz.cuni.mff.desitka.server.communication;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class creates virtual threads when the running JVM supports them (Java 21 or newer).
+ * The server is compiled for Java 8, so the virtual thread builder is looked up reflectively
+ * and daemon platform threads are used on older JVMs.
+ */
+public class VirtualThreads {
+    private static boolean supported;
+    private final static ThreadFactory factory = createFactory();
+
+    /**
+     * Creates the factory for the connection threads.
+     *
+     * @return a factory of virtual threads, or of daemon platform threads if virtual threads are not supported
+     */
+    private static ThreadFactory createFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "connection-", 0L);
+            ThreadFactory virtualFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            supported = true;
+            return virtualFactory;
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicLong threadNumber = new AtomicLong();
+            return runnable -> {
+                Thread thread = new Thread(runnable, "connection-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * Checks if the connection threads are virtual threads.
+     *
+     * @return true if the running JVM supports virtual threads, false otherwise
+     */
+    public static boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Starts a new connection thread.
+     *
+     * @param task the task run by the thread
+     */
+    public static void start(Runnable task) {
+        factory.newThread(task).start();
+    }
+}
\ No newline at end of file
@@ -15,10 +15,11 @@ public class FriendGame extends Game {
      * Constructs a new friend game with a generated game code.
      *
      * @param playerCount the number of players in the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
      * @param gameManager the game manager of the server
      */
-    public FriendGame(int playerCount, GameManager gameManager) {
-        super(playerCount);
+    public FriendGame(int playerCount, int viewsLimit, GameManager gameManager) {
+        super(playerCount, viewsLimit);
         this.gameManager = gameManager;
         gameCode = generateGameCode();
     }
@@ -27,11 +28,12 @@ public class FriendGame extends Game {
      * Constructs a new friend game with a specific game code.
      *
      * @param playerCount the number of players in the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
      * @param gameManager the game manager of the server
      * @param gameCode the code of the game
      */
-    public FriendGame(int playerCount, GameManager gameManager, String gameCode) {
-        super(playerCount);
+    public FriendGame(int playerCount, int viewsLimit, GameManager gameManager, String gameCode) {
+        super(playerCount, viewsLimit);
         this.gameManager = gameManager;
         this.gameCode = gameCode;
     }
@@ -46,6 +48,16 @@ public class FriendGame extends Game {
         return gameCode;
     }
 
+    /**
+     * Removes the game from the games waiting for players.
+     *
+     * @param expired true if the game has waited for its players for too long, false if it is full
+     */
+    @Override
+    protected void lobbyClosed(boolean expired) {
+        gameManager.lobbyClosed(this, expired);
+    }
+
     /**
      * Deals with the end of the game.
      *
@@ -54,7 +66,7 @@ public class FriendGame extends Game {
     @Override
     public void dealGameEnd(int playerCount) {
         if (playerCount > 1) {
-            MyJoining myJoining = new MyJoining(null, null, gameCode, playerCount);
+            MyJoining myJoining = new MyJoining(null, null, gameCode, playerCount, getViewsLimit());
             gameManager.connectPlayer(myJoining, null);
         }
     }
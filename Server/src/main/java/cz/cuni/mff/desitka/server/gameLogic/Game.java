@@ -1,71 +1,360 @@
 package cz.cuni.mff.desitka.server.gameLogic;
 
 import cz.cuni.mff.desitka.JSON.Constants;
-import cz.cuni.mff.desitka.JSON.Question;
 import cz.cuni.mff.desitka.JSON.client.MyAnswer;
-import cz.cuni.mff.desitka.JSON.server.Answer;
-import cz.cuni.mff.desitka.JSON.server.Evaluation;
-import cz.cuni.mff.desitka.JSON.server.Start;
-import cz.cuni.mff.desitka.JSON.server.Waiting;
-import cz.cuni.mff.desitka.JSON.server.helper.Turn;
-import cz.cuni.mff.desitka.server.questions.QuestionParser;
+import cz.cuni.mff.desitka.JSON.server.Joining;
+import cz.cuni.mff.desitka.JSON.server.JoiningResults;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.journal.Journal;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.logging.LogEvent;
+import cz.cuni.mff.desitka.server.logging.LogLevel;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+import cz.cuni.mff.desitka.server.questions.QuestionBag;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+import cz.cuni.mff.desitka.server.questions.QuestionTiers;
+import cz.cuni.mff.desitka.server.questions.RecentQuestions;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This abstract class represents a game in the server.
+ * The state of a game is confined to its {@link Mailbox}: the joins, answers and timeouts only put tasks into it,
+ * and the tasks of a game run one at a time on a shared thread, so a game needs no lock
+ * and the games proceed in parallel on all cores.
+ * The messages of the rounds are encoded by the {@link MessageEncoder} of the game into a reused buffer
+ * and the scores are ranked in reused arrays, so processing an answer allocates little besides the sent bytes.
+ * The question of the next round is chosen once a round has started and prepared in the background,
+ * see {@link PreparedQuestion}, so the transition between the rounds neither materializes nor encodes a question.
+ * A running game may be watched by spectators, who get the same encoded messages from their {@link SpectatorGroup}.
  */
-public abstract class Game {
+public abstract class Game implements JoiningResults {
+    private final static AtomicInteger gameCounter = new AtomicInteger();
+    private final static ConcurrentMap<String, Game> runningGames = new ConcurrentHashMap<>();
+
+    private final int gameId = gameCounter.incrementAndGet();
     private final int MAX_SCORE = 20;
-    private final String QUESTION_DIRECTORY = "questions";
     private final int PLAYER_COUNT;
+    private final int viewsLimit;
     private final long creationTime;
     private final List<Player> players = new ArrayList<>();
-    private final List<Question> questions;
+    private final Mailbox mailbox = new Mailbox(this);
+    private final PhaseClock clock = new PhaseClock();
+    private final MessageEncoder encoder = new MessageEncoder();
+    private final int[] scores;
+    private final int[] ranking;
 
+    private QuestionBag[] questionBags;
+    private boolean lobbyClosed;
+    private volatile GameTimer.Timeout lobbyTimeout;
     private int roundNumber;
+    private int answerNumber;
     private Round round;
-    private Question question;
+    private PreparedQuestion question;
+    private PreparedQuestion nextQuestion;
+    private Map<String, Integer> restoredScores;
+    private int restoredQuestion = -1;
+    private boolean ended;
+    private SpectatorGroup spectators;
 
     /**
-     * Constructs a new game with a specified player count.
+     * Constructs a new game with a specified player count, whose difficulty ramps up with its rounds.
      *
      * @param playerCount the number of players in the game
      */
     public Game(int playerCount) {
+        this(playerCount, 0);
+    }
+
+    /**
+     * Constructs a new game with a specified player count and difficulty.
+     *
+     * @param playerCount the number of players in the game
+     * @param viewsLimit the views limit of the tier of the questions, see {@link QuestionTiers#tierOf(int)},
+     * or 0 if the difficulty ramps up with the rounds, see {@link QuestionTiers#rampTier(int)}
+     */
+    public Game(int playerCount, int viewsLimit) {
         this.PLAYER_COUNT = playerCount;
+        this.viewsLimit = viewsLimit;
         creationTime = System.currentTimeMillis();
-        questions = QuestionParser.getQuestions(QUESTION_DIRECTORY);
+        scores = new int[playerCount];
+        ranking = new int[playerCount];
     }
 
     /**
-     * Chooses a question for the game.
+     * Chooses a question for the game from the shared question repository: the question prefetched
+     * during the previous round if it has been prepared in time from the current repository,
+     * the question of the interrupted round if the game has been recovered in the middle of a round,
+     * or a question chosen and prepared now otherwise. The players remember the question as recently seen.
+     * The repository is read once, so a repository reloaded meanwhile is used from the next round on.
      *
      * @return the chosen question
      */
-    private Question chooseQuestion() {
-        if (questions.isEmpty()) {
-            questions.addAll(QuestionParser.getQuestions(QUESTION_DIRECTORY));
+    private PreparedQuestion chooseQuestion() {
+        QuestionRepository repository = QuestionRepository.getInstance();
+        PreparedQuestion chosen;
+        if (restoredQuestion >= 0 && restoredQuestion < repository.size()) {
+            chosen = PreparedQuestion.prepare(repository, restoredQuestion);
+        }
+        else if (nextQuestion != null && nextQuestion.getRepository() == repository) {
+            ServerMetrics.QUESTION_PREFETCHES.increment("used");
+            chosen = nextQuestion;
+        }
+        else {
+            if (round != null) {
+                ServerMetrics.QUESTION_PREFETCHES.increment(nextQuestion == null ? "late" : "stale");
+            }
+            chosen = PreparedQuestion.prepare(repository, chooseQuestionIndex(repository, roundNumber + 1));
+        }
+        restoredQuestion = -1;
+        nextQuestion = null;
+        int key = repository.getKey(chosen.getIndex());
+        RecentQuestions recentQuestions = RecentQuestions.getInstance();
+        for (int i = 0; i < players.size(); i++) {
+            recentQuestions.add(players.get(i).getName(), key);
         }
-        int randomIndex = (int) (Math.random() * questions.size());
-        return questions.get(randomIndex);
+        return chosen;
     }
 
+    /**
+     * Chooses the question of the next round and prepares it in the background while the current round is played.
+     * The prepared question is handed over through the mailbox and kept only if the current round is still played,
+     * otherwise the next round has already chosen its question itself.
+     */
+    private void prefetchQuestion() {
+        QuestionRepository repository = QuestionRepository.getInstance();
+        Round prefetchingRound = round;
+        PreparedQuestion.prefetch(repository, chooseQuestionIndex(repository, roundNumber + 1),
+                prepared -> mailbox.execute(() -> {
+                    if (round == prefetchingRound) {
+                        nextQuestion = prepared;
+                    }
+                }));
+    }
+
+    /**
+     * Chooses the question of a round, by default a question of the tier of the game not asked in the game yet
+     * and preferably not seen recently by any of its players, see {@link QuestionBag}.
+     * Every tier has its own bag, so the choice costs the same in any tier.
+     *
+     * @param repository the shared question repository
+     * @param round the number of the round
+     * @return the index of the question in the repository
+     */
+    protected int chooseQuestionIndex(QuestionRepository repository, int round) {
+        QuestionTiers tiers = repository.getTiers();
+        int tier = viewsLimit > 0 ? tiers.tierOf(viewsLimit) : tiers.rampTier(round);
+        if (questionBags == null || questionBags.length != tiers.count()) {
+            questionBags = new QuestionBag[tiers.count()];
+        }
+        if (questionBags[tier] == null) {
+            questionBags[tier] = new QuestionBag();
+        }
+        int start = tiers.getStart(tier);
+        return start + questionBags[tier].draw(tiers.size(tier), position -> recentlySeen(repository, start + position));
+    }
+
+    /**
+     * Checks if any player of the game might have seen a question recently.
+     *
+     * @param repository the shared question repository
+     * @param index the index of the question in the repository
+     * @return true if a player might have seen the question, false otherwise
+     */
+    private boolean recentlySeen(QuestionRepository repository, int index) {
+        int key = repository.getKey(index);
+        RecentQuestions recentQuestions = RecentQuestions.getInstance();
+        for (int i = 0; i < players.size(); i++) {
+            if (recentQuestions.mightContain(players.get(i).getName(), key)) {
+                ServerMetrics.QUESTIONS_RECENTLY_SEEN.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Restores the state of a game recovered from the journal before it accepts its players again.
+     * Only the players who remained in the game may join it, and they get back their game scores.
+     * The game continues with the round after the evaluated ones, with the question of the interrupted round if any.
+     *
+     * @param evaluatedRounds the number of the evaluated rounds
+     * @param scores the game scores of the remaining players by their names
+     * @param interruptedQuestion the index of the question of the interrupted round, or -1 if no round was in progress
+     */
+    public void restore(int evaluatedRounds, Map<String, Integer> scores, int interruptedQuestion) {
+        roundNumber = evaluatedRounds;
+        restoredScores = new LinkedHashMap<>(scores);
+        restoredQuestion = interruptedQuestion;
+        Journal.roundEvaluated(gameId, evaluatedRounds, scores);
+        if (interruptedQuestion >= 0) {
+            Journal.roundStarted(gameId, evaluatedRounds + 1, interruptedQuestion);
+        }
+    }
+
+    /**
+     * Adds a player to the game if it is still waiting for players, and starts the game once it is full.
+     * The player is told the result of the joining, {@code NAME_ALREADY_JOINED} if a player of the same name
+     * has already joined, or {@code GAME_NOT_FOUND} if the game no longer accepts players.
+     *
+     * @param player the player to be added
+     */
+    public void join(Player player) {
+        mailbox.execute(() -> {
+            if (lobbyClosed || restoredScores != null && !restoredScores.containsKey(player.getName())) {
+                player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+                return;
+            }
+            if (nameAlreadyJoined(player.getName())) {
+                player.sendMessage(new Joining(JoiningResult.NAME_ALREADY_JOINED, null, 0, 0));
+                return;
+            }
+            player.setGame(this);
+            if (restoredScores != null) {
+                player.restoreGameScore(restoredScores.get(player.getName()));
+            }
+            Journal.playerJoined(gameId, player.getName());
+            addWaitingPlayer(player);
+            if (readyToStart()) {
+                closeLobby(false);
+                GameTimer.Timeout timeout = lobbyTimeout;
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                startRound();
+            }
+        });
+    }
+
+    /**
+     * Starts the game with a complete group of players, who have already been told they joined a game.
+     *
+     * @param matchedPlayers the players of the game, as many as the player count of the game
+     */
+    public void startMatch(List<Player> matchedPlayers) {
+        mailbox.execute(() -> {
+            lobbyClosed = true;
+            Journal.gameCreated(gameId, null, PLAYER_COUNT, viewsLimit, creationTime);
+            for (Player player : matchedPlayers) {
+                player.assignGame(this);
+                players.add(player);
+                Journal.playerJoined(gameId, player.getName());
+            }
+            sendWaitingPlayers();
+            startRound();
+        });
+    }
+
+    /**
+     * Adds a spectator to the game if it is still running. The spectator is told the result of the joining,
+     * with the name of the game, and receives the messages of the game from the current round on.
+     *
+     * @param player the client who wants to watch the game
+     */
+    public void spectate(Player player) {
+        mailbox.execute(() -> {
+            if (ended) {
+                player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+                return;
+            }
+            if (spectators == null) {
+                spectators = new SpectatorGroup(this);
+            }
+            spectators.add(player.becomeSpectator(),
+                    new Joining(JoiningResult.JOINED, toString(), PLAYER_COUNT, creationTime));
+        });
+    }
+
+    /**
+     * Finds a running game by its name, the code of a friend game or the name of an online game.
+     *
+     * @param name the name of the game as given by {@link #toString()}
+     * @return the running game, or null if no such game is running
+     */
+    public static Game findRunningGame(String name) {
+        return runningGames.get(name);
+    }
+
+    /**
+     * Returns any of the running games.
+     *
+     * @return a running game, or null if no game is running
+     */
+    public static Game anyRunningGame() {
+        Iterator<Game> games = runningGames.values().iterator();
+        return games.hasNext() ? games.next() : null;
+    }
+
+    /**
+     * Sets the timeout expiring the game if it does not start in time.
+     *
+     * @param lobbyTimeout the timeout, cancelled when the game starts
+     */
+    public void setLobbyTimeout(GameTimer.Timeout lobbyTimeout) {
+        this.lobbyTimeout = lobbyTimeout;
+    }
+
+    /**
+     * Stops accepting players if the game has waited for them for too long,
+     * and disconnects the waiting players. Their clients report the game could not be started.
+     * Nothing happens if the game has already started.
+     */
+    public void expireLobby() {
+        mailbox.execute(() -> {
+            if (lobbyClosed) {
+                return;
+            }
+            closeLobby(true);
+            players.forEach(Player::disconnect);
+        });
+    }
+
+    /**
+     * Stops accepting players.
+     *
+     * @param expired true if the game has waited for its players for too long, false if it is full
+     */
+    private void closeLobby(boolean expired) {
+        lobbyClosed = true;
+        if (expired) {
+            Journal.gameEnded(gameId);
+        }
+        lobbyClosed(expired);
+    }
+
+    /**
+     * Called on the thread of the game once the game stops accepting players.
+     *
+     * @param expired true if the game has waited for its players for too long, false if it is full
+     */
+    protected void lobbyClosed(boolean expired) {}
+
     /**
      * Adds a player to the waiting list of the game.
      *
      * @param player the player to be added
      */
-    public void addWaitingPlayer(Player player) {
+    private void addWaitingPlayer(Player player) {
         players.add(player);
-        List<Waiting.WaitingPlayer> waitingPlayers = players.stream()
-                .map(p -> new Waiting.WaitingPlayer(p.getName()))
-                .collect(Collectors.toList());
+        sendWaitingPlayers();
+    }
 
-        Waiting waiting = new Waiting(readyToStart(), waitingPlayers);
-        players.forEach(p -> p.sendMessage(waiting));
+    /**
+     * Sends the list of the players who have joined the game to the players.
+     */
+    private void sendWaitingPlayers() {
+        long start = System.nanoTime();
+        SharedMessage waiting = encoder.encodeWaiting(readyToStart(), PLAYER_COUNT, players);
+        logBroadcast(waiting, System.nanoTime() - start);
+        sendToPlayers(waiting);
     }
 
     /**
@@ -83,8 +372,13 @@ public abstract class Game {
      * @param playerName the name of the player
      * @return true if the player has already joined, false otherwise
      */
-    public boolean nameAlreadyJoined(String playerName) {
-        return players.stream().anyMatch(player -> player.getName().equals(playerName));
+    private boolean nameAlreadyJoined(String playerName) {
+        for (Player player : players) {
+            if (player.getName().equals(playerName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -111,27 +405,69 @@ public abstract class Game {
      * @return true if the game has ended, false otherwise
      */
     public boolean gameEnd() {
-        return players.stream().anyMatch(player -> player.getGameScore() >= MAX_SCORE) || players.size() <= 1;
+        for (int i = 0; i < players.size(); i++) {
+            if (players.get(i).getGameScore() >= MAX_SCORE) {
+                return true;
+            }
+        }
+        return players.size() <= 1;
     }
 
     /**
      * Starts a new round of the game.
      */
     public void startRound() {
+        if (round == null) {
+            ServerMetrics.GAMES.increment();
+            players.forEach(Player::gameStarted);
+            runningGames.put(toString(), this);
+        }
+        ServerMetrics.ROUNDS.increment();
         players.forEach(Player::resetScore);
         question = chooseQuestion();
-        round = new Round(++roundNumber, players, question, this);
+        Journal.roundStarted(gameId, ++roundNumber, question.getIndex());
+        round = new Round(roundNumber, players, question, this);
+        Log.info(LogCategory.GAME, "round.start").game(this)
+                .field("round", roundNumber).field("players", players.size()).publish();
         round.start();
+        prefetchQuestion();
     }
 
     /**
-     * Processes the answer of a player.
+     * Processes the answer of a player. Called on the thread which received the answer, the answer is stamped
+     * with the number of the answer expected from the player then and processed on the thread of the game,
+     * where the round ignores it if it is no longer expected.
      *
      * @param answer the answer of the player
      * @param player the player who answered
      */
     public void processAnswer(MyAnswer answer, Player player) {
-        round.processAnswer(answer, player);
+        int expectedAnswer = player.getExpectedAnswer();
+        mailbox.execute(() -> round.processAnswer(answer, player, expectedAnswer));
+    }
+
+    /**
+     * Returns the number of the next expected answer, unique in the game. Called on the thread of the game.
+     *
+     * @return the number of the answer, starting from 1
+     */
+    int nextAnswerNumber() {
+        return ++answerNumber;
+    }
+
+    /**
+     * Processes the timeout of an answer expected in a specified round.
+     * Called on the thread of the {@link GameTimer}, the timeout is processed on the thread of the game.
+     *
+     * @param timedOutRound the round expecting the answer
+     * @param answer the number of the expected answer
+     */
+    public void answerTimedOut(Round timedOutRound, int answer) {
+        mailbox.execute(() -> {
+            if (timedOutRound == round) {
+                round.answerTimedOut(answer);
+            }
+        });
     }
 
     /**
@@ -139,8 +475,21 @@ public abstract class Game {
      */
     public void evaluateRound() {
         players.forEach(Player::evaluateRoundScore);
-        Evaluation evaluation = new Evaluation(question, getPlayerScore(), gameEnd());
-        players.forEach(player -> player.sendMessage(evaluation));
+        if (Journal.isEnabled()) {
+            Map<String, Integer> scores = new LinkedHashMap<>();
+            players.forEach(player -> scores.put(player.getName(), player.getGameScore()));
+            Journal.roundEvaluated(gameId, roundNumber, scores);
+        }
+        boolean gameOver = gameEnd();
+        clock.evaluated(gameOver);
+        rankPlayers();
+        long start = System.nanoTime();
+        SharedMessage evaluation = encoder.encodeEvaluation(question, players, scores, ranking, gameOver, clock);
+        logBroadcast(evaluation, System.nanoTime() - start);
+        sendToPlayers(evaluation);
+        if (spectators != null) {
+            spectators.publishEvaluation(evaluation);
+        }
         checkGameEnd();
     }
 
@@ -152,19 +501,32 @@ public abstract class Game {
             startRound();
             return;
         }
+        Log.info(LogCategory.GAME, "game.end").game(this)
+                .field("rounds", roundNumber).field("players", players.size()).publish();
+        Journal.gameEnded(gameId);
+        ended = true;
+        runningGames.remove(toString(), this);
+        if (spectators != null) {
+            spectators.close();
+        }
         dealGameEnd(players.size());
     }
 
     /**
-     * Returns the scores of the players.
-     *
-     * @return an array of player scores
+     * Ranks the players by their game scores from the best one. The scores are copied by the positions
+     * of the players in the game, and the positions are sorted by the scores into the ranking.
+     * The sort is stable, so the players of the same score keep their order in the game.
      */
-    private Evaluation.PlayerScore[] getPlayerScore() {
-        return players.stream()
-                .sorted((p1, p2) -> p2.getGameScore() - p1.getGameScore())
-                .map(player -> new Evaluation.PlayerScore(player.getName(), player.getGameScore()))
-                .toArray(Evaluation.PlayerScore[]::new);
+    private void rankPlayers() {
+        for (int i = 0; i < players.size(); i++) {
+            scores[i] = players.get(i).getGameScore();
+            int rank = i;
+            while (rank > 0 && scores[ranking[rank - 1]] < scores[i]) {
+                ranking[rank] = ranking[rank - 1];
+                rank--;
+            }
+            ranking[rank] = i;
+        }
     }
 
     /**
@@ -187,6 +549,24 @@ public abstract class Game {
      */
     public void dealGameEnd(int playerCount) {}
 
+    /**
+     * Returns the number of the game, unique within a run of the server.
+     *
+     * @return the number of the game
+     */
+    public int getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Returns the clock of the game, which schedules the phases of the rounds.
+     *
+     * @return the clock of the game
+     */
+    public PhaseClock getClock() {
+        return clock;
+    }
+
     /**
      * Returns the game code of the game.
      *
@@ -197,30 +577,93 @@ public abstract class Game {
     }
 
     /**
-     * Sends an answer to the players.
+     * Sends the answer of a player with the turn of the next player to the players.
      *
-     * @param answer the answer to be sent
+     * @param answerID the ID of the answer
+     * @param playerName the name of the player who answered
+     * @param playerAnswerIndex the index of the player's answer
+     * @param correctAnswerIndex the index of the correct answer
+     * @param playerOnMove the name of the next player on move, or null if the round has finished
+     * @param roundPlayers the number of players in the round
      */
-    public void sendAnswer(Answer answer) {
-        Turn turn = answer.getTurn();
-        players.forEach(player -> {
-            updateTurnData(turn, player);
-            player.sendMessage(answer);
-        });
+    public void sendAnswer(int answerID, String playerName, int playerAnswerIndex, int correctAnswerIndex,
+                           String playerOnMove, int roundPlayers) {
+        long start = System.nanoTime();
+        SharedMessage answer = encoder.encodeAnswer(answerID, playerName, playerAnswerIndex, correctAnswerIndex,
+                clock, playerOnMove, roundPlayers, players.size());
+        sendTurnMessage(answer, playerOnMove, start);
+        if (spectators != null) {
+            spectators.publishAnswer(answer);
+        }
+    }
+
+    /**
+     * Sends the start of a round with the turn of its first player to the players.
+     *
+     * @param roundNumber the number of the round
+     * @param question the prepared question of the round, sent without its correct answers
+     * @param playerOnMove the name of the player on move
+     * @param roundPlayers the number of players in the round
+     */
+    void sendStart(int roundNumber, PreparedQuestion question, String playerOnMove, int roundPlayers) {
+        long start = System.nanoTime();
+        SharedMessage message = encoder.encodeStart(roundNumber, question, clock, playerOnMove, roundPlayers, players.size());
+        sendTurnMessage(message, playerOnMove, start);
+        if (spectators != null) {
+            spectators.publishStart(message);
+        }
+    }
+
+    /**
+     * Sends a message ending with a turn to the players.
+     * The message is encoded once, only the data of the turn specific to a player are added for each player.
+     *
+     * @param message the message without the data of the turn specific to a player
+     * @param playerOnMove the name of the player on move
+     * @param encodingStart the time the encoding of the message started in nanoseconds
+     */
+    private void sendTurnMessage(SharedMessage message, String playerOnMove, long encodingStart) {
+        logBroadcast(message, System.nanoTime() - encodingStart);
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).sendTurnMessage(message, playerOnMove);
+        }
+    }
+
+    /**
+     * Sends a message which is the same for all players to the players.
+     *
+     * @param message the message to be sent
+     */
+    private void sendToPlayers(SharedMessage message) {
+        for (int i = 0; i < players.size(); i++) {
+            players.get(i).sendMessage(message);
+        }
     }
 
     /**
-     * Updates the turn data of a player.
+     * Logs a message broadcast to the players of the game and records the time of its encoding.
      *
-     * @param turn the turn to be updated
-     * @param player the player whose turn data is to be updated
+     * @param message the broadcast message
+     * @param encodingTime the time of encoding the message in nanoseconds
      */
-    private void updateTurnData(Turn turn, Player player) {
-        String playerName = player.getName();
-        String roundPlayer = turn.getRoundPlayer();
+    private void logBroadcast(SharedMessage message, long encodingTime) {
+        ServerMetrics.SERIALIZATION.observe(encodingTime);
+        LogEvent event = Log.event(LogCategory.GAME, LogLevel.DEBUG, "broadcast");
+        if (event.isEnabled()) {
+            event.game(this).type(message.getType()).size(message.size()).latency(encodingTime)
+                    .field("players", players.size()).publish();
+        }
+    }
 
-        turn.setMyTurn(playerName.equals(roundPlayer));
-        turn.setMyScore(player.getRoundScore());
+    /**
+     * Returns the description of the game for the log, its code or its number if it has no code.
+     *
+     * @return the description of the game
+     */
+    @Override
+    public String toString() {
+        String gameCode = getGameCode();
+        return gameCode != null ? gameCode : "online-" + gameId;
     }
 
     /**
@@ -233,15 +676,32 @@ public abstract class Game {
     }
 
     /**
-     * Sends the start of the game to the players.
+     * Returns the number of the current round, the number of played rounds once the game has ended.
+     * Called on the thread of the game.
      *
-     * @param start the start of the game
+     * @return the number of the current round
      */
-    public void sendStart(Start start) {
-        Turn turn = start.getTurn();
-        players.forEach(player -> {
-            updateTurnData(turn, player);
-            player.sendMessage(start);
-        });
+    protected int getRoundNumber() {
+        return roundNumber;
     }
+
+    /**
+     * Returns the views limit of the tier of the questions of the game.
+     *
+     * @return the views limit, or 0 if the difficulty ramps up with the rounds
+     */
+    public int getViewsLimit() {
+        return viewsLimit;
+    }
+
+    /**
+     * Returns the player with the best game score, the first player of the last evaluation.
+     * Called on the thread of the game after an evaluation.
+     *
+     * @return the leading player, or null if no player remains in the game
+     */
+    protected Player getLeader() {
+        return players.isEmpty() ? null : players.get(ranking[0]);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class fires the deadlines of all games of the server using a hashed timing wheel.
+ * The wheel is an array of buckets, each holding the timeouts which expire in the same tick modulo the wheel size.
+ * Scheduling and cancelling a timeout costs O(1) regardless of the number of pending timeouts,
+ * and a single thread advances the wheel once per tick, so there is no polling per connection or per game.
+ */
+public class GameTimer implements Runnable {
+    /**
+     * The duration of a tick of the wheel in milliseconds, the precision of the timeouts.
+     */
+    private final static long TICK_MS = 10;
+
+    /**
+     * The number of buckets of the wheel, a power of two. One revolution of the wheel takes about 5 seconds.
+     */
+    private final static int WHEEL_SIZE = 512;
+
+    private static volatile GameTimer instance;
+
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private long tick;
+
+    /**
+     * Constructs a new game timer.
+     */
+    private GameTimer() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Returns the game timer of the server, starting its thread on the first call.
+     *
+     * @return the game timer
+     */
+    private static GameTimer getInstance() {
+        GameTimer timer = instance;
+        if (timer == null) {
+            synchronized (GameTimer.class) {
+                timer = instance;
+                if (timer == null) {
+                    timer = new GameTimer();
+                    Thread thread = new Thread(timer, "game-timer");
+                    thread.setDaemon(true);
+                    thread.start();
+                    instance = timer;
+                }
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Schedules a task to be run on the timer thread after a specified delay.
+     * The task should be short, it delays the other timeouts of the server.
+     *
+     * @param task the task to be run
+     * @param delay the delay in milliseconds
+     * @return the timeout which can be used for cancelling the task
+     */
+    public static Timeout schedule(Runnable task, long delay) {
+        GameTimer timer = getInstance();
+        Timeout timeout = new Timeout(timer, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        timer.scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs the timer, advancing the wheel once per tick.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            waitForNextTick();
+            removeCancelledTimeouts();
+            addScheduledTimeouts();
+            wheel[(int) (tick & (WHEEL_SIZE - 1))].expireTimeouts();
+            tick++;
+        }
+    }
+
+    /**
+     * Sleeps until the end of the current tick.
+     */
+    private void waitForNextTick() {
+        long deadline = startTime + (tick + 1) * tickNanos;
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            }
+            catch (InterruptedException e) {
+                // the timer thread runs as long as the server
+            }
+        }
+    }
+
+    /**
+     * Unlinks the cancelled timeouts from their buckets.
+     */
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Moves the newly scheduled timeouts into the buckets of their deadlines.
+     */
+    private void addScheduledTimeouts() {
+        Timeout timeout;
+        while ((timeout = scheduledTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, (timeout.deadline - startTime + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (deadlineTick - tick) / WHEEL_SIZE;
+            wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(timeout);
+        }
+    }
+
+    /**
+     * This class represents a task scheduled by the game timer.
+     */
+    public static class Timeout {
+        private final static int PENDING = 0;
+        private final static int CANCELLED = 1;
+        private final static int EXPIRED = 2;
+
+        private final GameTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // accessed only by the timer thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        /**
+         * Constructs a new timeout.
+         *
+         * @param timer the timer of the timeout
+         * @param task the task to be run
+         * @param deadline the time of the deadline as given by {@link System#nanoTime()}
+         */
+        private Timeout(GameTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout, so its task is not run.
+         *
+         * @return true if the timeout has been cancelled, false if it has already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /**
+         * Checks if the timeout has been cancelled.
+         *
+         * @return true if the timeout has been cancelled, false otherwise
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Runs the task unless the timeout has been cancelled.
+         */
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            }
+            catch (RuntimeException e) {
+                // a failing task must not stop the other timeouts
+                Log.error(LogCategory.SYSTEM, "timeout.failed").exception(e).publish();
+            }
+        }
+    }
+
+    /**
+     * This class represents a bucket of the wheel, a doubly linked list of timeouts.
+     * It is accessed only by the timer thread.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        /**
+         * Appends a timeout to the bucket.
+         *
+         * @param timeout the timeout to be appended
+         */
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+                return;
+            }
+            tail.next = timeout;
+            timeout.previous = tail;
+            tail = timeout;
+        }
+
+        /**
+         * Unlinks a timeout from the bucket.
+         *
+         * @param timeout the timeout to be unlinked
+         */
+        private void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            }
+            else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Runs the timeouts of the bucket which expire in the current revolution of the wheel.
+         */
+        private void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                }
+                else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
\ No newline at end of file
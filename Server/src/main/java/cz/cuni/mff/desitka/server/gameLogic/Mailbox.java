@@ -0,0 +1,115 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents the mailbox of a game. The network and timer threads only put tasks into the mailbox,
+ * the tasks of a game are run one at a time by a thread of a shared executor with one thread per core.
+ * The state of a game is thus confined to one thread at a time without any lock,
+ * and a game with many tasks yields its thread to the other games after a batch of tasks.
+ * A mailbox may also run on another executor, e.g. the spectators of a game are served by their own mailbox
+ * on the executor of the spectators, so sending to them never holds up the threads of the games.
+ */
+public class Mailbox implements Runnable {
+    /**
+     * The system property setting the number of threads running the games.
+     */
+    public final static String THREADS_PROPERTY = "desitka.gameThreads";
+
+    /**
+     * The maximum number of tasks run at once before the game yields its thread.
+     */
+    private final static int BATCH_SIZE = 64;
+
+    private final static ExecutorService gameExecutor = createExecutor(THREADS_PROPERTY, "game-");
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Object owner;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new mailbox run by the executor shared by all games.
+     *
+     * @param owner the owner of the mailbox, described in the log if a task fails
+     */
+    public Mailbox(Object owner) {
+        this(owner, gameExecutor);
+    }
+
+    /**
+     * Constructs a new mailbox run by a specified executor.
+     *
+     * @param owner the owner of the mailbox, described in the log if a task fails
+     * @param executor the executor running the tasks of the mailbox
+     */
+    public Mailbox(Object owner, ExecutorService executor) {
+        this.owner = owner;
+        this.executor = executor;
+    }
+
+    /**
+     * Creates an executor shared by many mailboxes, with one thread per core unless a system property sets the count.
+     *
+     * @param threadsProperty the system property setting the number of threads
+     * @param threadPrefix the prefix of the names of the threads
+     * @return the executor with daemon threads
+     */
+    static ExecutorService createExecutor(String threadsProperty, String threadPrefix) {
+        int threads = Integer.getInteger(threadsProperty, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Puts a task into the mailbox. The task runs after all tasks put into the mailbox before it.
+     *
+     * @param task the task to be run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        schedule();
+    }
+
+    /**
+     * Runs a batch of tasks of the mailbox and schedules the mailbox again if more tasks are waiting.
+     */
+    @Override
+    public void run() {
+        Runnable task;
+        for (int i = 0; i < BATCH_SIZE && (task = tasks.poll()) != null; i++) {
+            try {
+                task.run();
+            }
+            catch (RuntimeException e) {
+                // a failing task must not stop the other tasks of the game
+                Log.error(LogCategory.GAME, "task.failed").game(owner).exception(e).publish();
+            }
+        }
+        scheduled.set(false);
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Submits the mailbox to the executor unless it is already submitted or running.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,225 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.server.Answer;
+import cz.cuni.mff.desitka.JSON.server.Evaluation;
+import cz.cuni.mff.desitka.JSON.server.Start;
+import cz.cuni.mff.desitka.JSON.server.Waiting;
+import cz.cuni.mff.desitka.JSON.server.helper.Turn;
+import cz.cuni.mff.desitka.server.communication.JsonBuffer;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * This class encodes the messages a game broadcasts to its players into a reusable buffer.
+ * It writes the fields of {@link Start}, {@link Answer}, {@link Evaluation} and {@link Waiting}
+ * in the order of their declaration, the order in which Gson writes them, so the clients parse the messages as before,
+ * but no objects of the messages are built and the only allocation is the copy of the encoded message.
+ * A message ending with a turn is encoded without the fields of the turn specific to a recipient,
+ * which are sent after it as one of the precomputed {@link #turnData(boolean, int)}.
+ * The questions are encoded beforehand by {@link #encodeQuestion(JsonBuffer, Question, boolean)}
+ * into a {@link PreparedQuestion} and only copied into the messages.
+ * An encoder belongs to one game and is used only on the thread of the game.
+ * It is public for the benchmarks, which compare it with encoding the messages through Gson.
+ */
+public class MessageEncoder {
+    private final static int INITIAL_CAPACITY = 4096;
+
+    /**
+     * The highest round score whose turn data are precomputed, the score of answering all sub-questions.
+     */
+    private final static int MAX_ROUND_SCORE = 10;
+
+    private final static String START = Start.class.getSimpleName();
+    private final static String ANSWER = Answer.class.getSimpleName();
+    private final static String EVALUATION = Evaluation.class.getSimpleName();
+    private final static String WAITING = Waiting.class.getSimpleName();
+
+    private final static byte[][] turnData = new byte[2 * (MAX_ROUND_SCORE + 1)][];
+
+    static {
+        for (int score = 0; score <= MAX_ROUND_SCORE; score++) {
+            turnData[2 * score] = encodeTurnData(false, score);
+            turnData[2 * score + 1] = encodeTurnData(true, score);
+        }
+    }
+
+    private final JsonBuffer buffer = new JsonBuffer(INITIAL_CAPACITY);
+
+    /**
+     * Returns the fields of a turn specific to a recipient, which close the turn and the message ending with it.
+     * The returned array is shared and must not be modified.
+     *
+     * @param myTurn true if it is the recipient's turn, false otherwise
+     * @param myScore the round score of the recipient
+     * @return the UTF-8 encoded fields of the recipient
+     */
+    public static byte[] turnData(boolean myTurn, int myScore) {
+        if (myScore < 0 || myScore > MAX_ROUND_SCORE) {
+            return encodeTurnData(myTurn, myScore);
+        }
+        return turnData[2 * myScore + (myTurn ? 1 : 0)];
+    }
+
+    /**
+     * Encodes the fields of a turn specific to a recipient.
+     *
+     * @param myTurn true if it is the recipient's turn, false otherwise
+     * @param myScore the round score of the recipient
+     * @return the UTF-8 encoded fields of the recipient
+     */
+    private static byte[] encodeTurnData(boolean myTurn, int myScore) {
+        return (Turn.recipientJson(myTurn, myScore) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the start of a round, whose question is sent without its correct answers.
+     *
+     * @param roundNumber the number of the round
+     * @param question the prepared question of the round
+     * @param clock the clock of the game
+     * @param playerOnMove the name of the player on move
+     * @param roundPlayers the number of players in the round
+     * @param gamePlayers the number of players in the game
+     * @return the start without the turn data of the recipients
+     */
+    public SharedMessage encodeStart(int roundNumber, PreparedQuestion question, PhaseClock clock,
+                                     String playerOnMove, int roundPlayers, int gamePlayers) {
+        buffer.clear().beginObject().field("roundNumber", roundNumber).name("question")
+                .encodedValue(question.getRedactedJson());
+        writePhase(clock);
+        writeTurn(playerOnMove, roundPlayers, gamePlayers);
+        return buffer.toSharedMessage(START);
+    }
+
+    /**
+     * Encodes the answer of a player.
+     *
+     * @param answerID the ID of the answer
+     * @param playerName the name of the player
+     * @param playerAnswerIndex the index of the player's answer
+     * @param correctAnswerIndex the index of the correct answer
+     * @param clock the clock of the game
+     * @param playerOnMove the name of the next player on move, or null if the round has finished
+     * @param roundPlayers the number of players in the round
+     * @param gamePlayers the number of players in the game
+     * @return the answer without the turn data of the recipients
+     */
+    SharedMessage encodeAnswer(int answerID, String playerName, int playerAnswerIndex, int correctAnswerIndex,
+                               PhaseClock clock, String playerOnMove, int roundPlayers, int gamePlayers) {
+        buffer.clear().beginObject()
+                .field("answerID", answerID)
+                .field("playerName", playerName)
+                .field("playerAnswerIndex", playerAnswerIndex)
+                .field("correctAnswerIndex", correctAnswerIndex);
+        writePhase(clock);
+        writeTurn(playerOnMove, roundPlayers, gamePlayers);
+        return buffer.toSharedMessage(ANSWER);
+    }
+
+    /**
+     * Encodes the evaluation of a round with the game scores of the players from the best one.
+     *
+     * @param question the prepared question of the round, sent solved
+     * @param players the players of the game
+     * @param scores the game scores of the players by their positions in the game
+     * @param ranking the positions of the players in the order of their game scores
+     * @param gameOver true if the game has ended, false otherwise
+     * @param clock the clock of the game
+     * @return the evaluation
+     */
+    public SharedMessage encodeEvaluation(PreparedQuestion question, List<Player> players, int[] scores, int[] ranking,
+                                          boolean gameOver, PhaseClock clock) {
+        buffer.clear().beginObject().name("solvedQuestion").encodedValue(question.getSolvedJson());
+        buffer.name("playerScores").beginArray();
+        for (int i = 0; i < players.size(); i++) {
+            int position = ranking[i];
+            buffer.beginObject()
+                    .field("name", players.get(position).getName())
+                    .field("score", scores[position])
+                    .endObject();
+        }
+        buffer.endArray().field("gameOver", gameOver);
+        writePhase(clock);
+        buffer.endObject();
+        return buffer.toSharedMessage(EVALUATION);
+    }
+
+    /**
+     * Encodes the list of the players who have joined a game.
+     *
+     * @param startReady true if the game is ready to start, false otherwise
+     * @param playerCount the number of players of the game
+     * @param players the players who have joined the game
+     * @return the list of the waiting players
+     */
+    SharedMessage encodeWaiting(boolean startReady, int playerCount, List<Player> players) {
+        buffer.clear().beginObject().field("startReady", startReady).field("playerCount", playerCount)
+                .name("waitingPlayers").beginArray();
+        for (int i = 0; i < players.size(); i++) {
+            buffer.beginObject().field("playerName", players.get(i).getName()).endObject();
+        }
+        buffer.endArray().endObject();
+        return buffer.toSharedMessage(WAITING);
+    }
+
+    /**
+     * Encodes a question as the value of the question of a {@link Start} or an {@link Evaluation}.
+     *
+     * @param buffer the buffer to encode the question with, cleared first
+     * @param question the question
+     * @param solved true to write the correct answers, false to write -1 instead of them
+     * @return the UTF-8 encoded question
+     */
+    static byte[] encodeQuestion(JsonBuffer buffer, Question question, boolean solved) {
+        buffer.clear().beginObject().field("text", question.getText());
+        Question.SubQuestion[] subQuestions = question.getSubQuestions();
+        if (subQuestions != null) {
+            buffer.name("questions").beginArray();
+            for (Question.SubQuestion subQuestion : subQuestions) {
+                buffer.beginObject().field("key", subQuestion.getKey());
+                String[] values = subQuestion.getValues();
+                if (values != null) {
+                    buffer.name("values").beginArray();
+                    for (String value : values) {
+                        buffer.value(value);
+                    }
+                    buffer.endArray();
+                }
+                buffer.field("correctIndex", solved ? subQuestion.getCorrectIndex() : -1).endObject();
+            }
+            buffer.endArray();
+        }
+        return buffer.endObject().toByteArray();
+    }
+
+    /**
+     * Writes the current phase of the game clock.
+     *
+     * @param clock the clock of the game
+     */
+    private void writePhase(PhaseClock clock) {
+        buffer.name("phase").beginObject()
+                .field("name", clock.getPhase().name())
+                .field("deadline", clock.getPhaseDeadline())
+                .field("answerDeadline", clock.getAnswerDeadline())
+                .endObject();
+    }
+
+    /**
+     * Writes the fields of a turn which are the same for all recipients. The turn is the last field of its message,
+     * so the message is closed by the turn data of the recipient.
+     *
+     * @param playerOnMove the name of the player on move, or null if the round has finished
+     * @param roundPlayers the number of players in the round
+     * @param gamePlayers the number of players in the game
+     */
+    private void writeTurn(String playerOnMove, int roundPlayers, int gamePlayers) {
+        buffer.name("turn").beginObject()
+                .field("playerOnMove", playerOnMove)
+                .field("roundPlayers", roundPlayers)
+                .field("gamePlayers", gamePlayers);
+    }
+}
\ No newline at end of file
@@ -2,14 +2,15 @@ package cz.cuni.mff.desitka.server.gameLogic;
 
 /**
  * This class represents an online game in the server.
+ * Its players are chosen by the {@link cz.cuni.mff.desitka.server.Matchmaker}.
  */
 public class OnlineGame extends Game {
-    private final static int PLAYER_COUNT = 2;
-
     /**
-     * Constructs a new online game with a fixed player count.
+     * Constructs a new online game with a specified player count.
+     *
+     * @param playerCount the number of players in the game
      */
-    public OnlineGame() {
-        super(PLAYER_COUNT);
+    public OnlineGame(int playerCount) {
+        super(playerCount);
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.Constants;
+import cz.cuni.mff.desitka.JSON.GameStates;
+
+import static cz.cuni.mff.desitka.JSON.GameStates.GameState.*;
+
+/**
+ * This class represents the authoritative clock of a game. It follows the phases the clients go through,
+ * each lasting its scene time given by {@link Constants#getSceneTime(GameState)}, and tells the absolute deadlines
+ * of the phases, so the clients and the server agree on the time left regardless of the network latency.
+ * The clock advances as soon as a player acts: an answer starts the next phases at the time it arrives
+ * instead of at the deadline of the answer. The clock is used only on the thread of its game.
+ */
+public class PhaseClock implements GameStates {
+    // the sequences of the phases are kept, so scheduling them allocates no arrays
+    private final static GameState[] GAME_STARTS = {GAME_START, ROUND_START, ROUND_PLAYER, PLAYER_ANSWERS};
+    private final static GameState[] ROUND_STARTS = {ROUND_START, ROUND_PLAYER, PLAYER_ANSWERS};
+    private final static GameState[] ANSWER_SHOWN = {SHOW_ANSWER};
+    private final static GameState[] NEXT_PLAYER_ANSWERS = {SHOW_ANSWER, ROUND_PLAYER, PLAYER_ANSWERS};
+    private final static GameState[] ROUND_ENDS = {SHOW_ANSWERS, ROUND_END};
+    private final static GameState[] GAME_ENDS = {SHOW_ANSWERS, GAME_END};
+
+    private GameState phase = WAITING_FOR_PLAYERS;
+    private long phaseDeadline;
+    private long answerDeadline;
+    private long scheduleEnd;
+
+    /**
+     * Schedules the phases of a round up to the answer of its first player.
+     * The first round of the game, or of a game recovered after a restart, starts now with the start of the game,
+     * a later round starts once the evaluation of the previous round has been shown.
+     *
+     * @param roundNumber the number of the round
+     */
+    public void startRound(int roundNumber) {
+        if (roundNumber == 1 || phase == WAITING_FOR_PLAYERS) {
+            scheduleEnd = System.currentTimeMillis();
+            schedule(GAME_STARTS);
+            return;
+        }
+        schedule(ROUND_STARTS);
+    }
+
+    /**
+     * Schedules the phases following an answer which has just arrived, showing the answer
+     * and, unless the round has finished, the answer of the next player.
+     *
+     * @param roundFinished true if the answer has finished the round, false otherwise
+     */
+    public void answered(boolean roundFinished) {
+        scheduleEnd = System.currentTimeMillis();
+        if (roundFinished) {
+            schedule(ANSWER_SHOWN);
+            return;
+        }
+        schedule(NEXT_PLAYER_ANSWERS);
+    }
+
+    /**
+     * Schedules the phases showing the evaluation of a round after its last answer has been shown.
+     *
+     * @param gameOver true if the game has ended, false otherwise
+     */
+    public void evaluated(boolean gameOver) {
+        schedule(gameOver ? GAME_ENDS : ROUND_ENDS);
+    }
+
+    /**
+     * Schedules phases following each other from the end of the previously scheduled phases.
+     * The first of them becomes the current phase.
+     *
+     * @param phases the phases to be scheduled
+     */
+    private void schedule(GameState[] phases) {
+        phase = phases[0];
+        phaseDeadline = scheduleEnd + Constants.getSceneTime(phase);
+        answerDeadline = 0;
+        for (GameState scheduledPhase : phases) {
+            scheduleEnd += Constants.getSceneTime(scheduledPhase);
+            if (scheduledPhase == PLAYER_ANSWERS) {
+                answerDeadline = scheduleEnd;
+            }
+        }
+    }
+
+    /**
+     * Returns the current phase, the one the clients enter when they receive the next message.
+     *
+     * @return the current phase
+     */
+    public GameState getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the end of the current phase.
+     *
+     * @return the end of the current phase in milliseconds since the epoch
+     */
+    public long getPhaseDeadline() {
+        return phaseDeadline;
+    }
+
+    /**
+     * Returns the end of the scheduled answer.
+     *
+     * @return the end of the answer in milliseconds since the epoch, or 0 if no answer is scheduled
+     */
+    public long getAnswerDeadline() {
+        return answerDeadline;
+    }
+
+    /**
+     * Returns the time left for the scheduled answer, to which the server adds {@link Constants#EXTRA_TIME}
+     * for the latency of the answer.
+     *
+     * @return the time left for the answer in milliseconds, at least 0
+     */
+    public long getAnswerTimeLeft() {
+        return Math.max(0, answerDeadline - System.currentTimeMillis());
+    }
+}
\ No newline at end of file
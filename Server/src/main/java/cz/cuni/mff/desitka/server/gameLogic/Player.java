@@ -12,8 +12,14 @@ import cz.cuni.mff.desitka.JSON.server.Joining;
 import cz.cuni.mff.desitka.JSON.server.JoiningResults;
 import cz.cuni.mff.desitka.server.GameManager;
 import cz.cuni.mff.desitka.server.communication.CommunicationService;
+import cz.cuni.mff.desitka.server.communication.Framing;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.logging.LogEvent;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
 
-import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class represents a player in the server.
@@ -21,22 +27,31 @@ import java.net.Socket;
 public class Player implements JoiningResults, MyJoiningRequests {
     private String name;
     private String message = "";
+    private int messageBytes;
     private int roundScore;
     private int gameScore;
     private int noActivity = 0;
     private final CommunicationService communicationService;
+    private final GameTimer.Timeout joiningTimeout;
+    private volatile Game game;
+    private volatile long expectedSince;
+    private volatile int expectedAnswer;
+    private volatile long joinedSince;
+    private volatile long receivedSince;
 
     /**
-     * Constructs a new player with a specified socket and game manager.
+     * Constructs a new player with a specified communication service and game manager.
      *
-     * @param socket the socket of the player
+     * @param communicationService the communication service of the player
      * @param gameManager the game manager of the server
      */
-    public Player(Socket socket, GameManager gameManager) {
-        communicationService = new CommunicationService(socket);
+    public Player(CommunicationService communicationService, GameManager gameManager) {
+        this.communicationService = communicationService;
         setJoiningListener(gameManager);
         communicationService.start();
-        communicationService.expectMessage(0);
+        joiningTimeout = GameTimer.schedule(communicationService::close, Constants.EXTRA_TIME);
+        expectedSince = System.nanoTime();
+        communicationService.expectMessage();
     }
 
     /**
@@ -46,24 +61,82 @@ public class Player implements JoiningResults, MyJoiningRequests {
      */
     private void setJoiningListener(GameManager gameManager) {
         communicationService.setListener(data -> {
-            if (!data.equals("Connection error")) {
+            if (!data.equals(CommunicationService.CONNECTION_ERROR)) {
+                logReceivedMessage(MyJoining.class, data);
                 try {
-                    MyJoining myJoining = GsonParser.fromJson(message + data, MyJoining.class);
+                    MyJoining myJoining = parseMessage(data, MyJoining.class);
                     validateJoining(myJoining);
                     processJoining(gameManager, myJoining);
                 }
                 catch (JsonSyntaxException e) {
                     // message is not complete
-                    message += data;
+                    appendLine(data);
                 }
                 catch (JsonParseException e) {
                     // message is not valid
+                    logInvalidMessage(e);
                     communicationService.close();
                 }
             }
         });
     }
 
+    /**
+     * Parses a received message.
+     * A frame always holds a whole message. A line may hold only a part of a message,
+     * so the lines are accumulated until they form a message of at most {@link Framing#MAX_MESSAGE_BYTES}
+     * in UTF-8, the limit of a frame body.
+     *
+     * @param data the received data
+     * @param type the type of the message
+     * @param <T> the type of the message
+     * @return the parsed message
+     * @throws JsonSyntaxException if the accumulated lines do not form a complete message yet
+     * @throws JsonParseException if the message is not valid
+     */
+    private <T extends JSON> T parseMessage(String data, Class<T> type) throws JsonParseException {
+        if (communicationService.isFramed()) {
+            T result;
+            try {
+                result = GsonParser.fromJson(data, type);
+            }
+            catch (JsonSyntaxException e) {
+                throw new JsonParseException(e);
+            }
+            if (result == null) {
+                throw new JsonParseException("Empty message");
+            }
+            return result;
+        }
+
+        if (messageBytes + data.getBytes(StandardCharsets.UTF_8).length > Framing.MAX_MESSAGE_BYTES) {
+            throw new JsonParseException("Message too long");
+        }
+        T result = GsonParser.fromJson(message + data, type);
+        if (result == null) {
+            throw new JsonSyntaxException("Empty message");
+        }
+        return result;
+    }
+
+    /**
+     * Appends a line to the incomplete message.
+     *
+     * @param data the received line
+     */
+    private void appendLine(String data) {
+        message += data;
+        messageBytes += data.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Clears the accumulated message once it has been received.
+     */
+    private void clearMessage() {
+        message = "";
+        messageBytes = 0;
+    }
+
     /**
      * Processes the joining of the player.
      *
@@ -71,10 +144,15 @@ public class Player implements JoiningResults, MyJoiningRequests {
      * @param myJoining the joining request of the player
      */
     private void processJoining(GameManager gameManager, MyJoining myJoining) {
-        message = "";
+        clearMessage();
         communicationService.confirmMessageReceive();
+        if (!joiningTimeout.cancel()) {
+            // the joining request arrived too late and the connection is being closed
+            return;
+        }
 
         name = myJoining.getPlayerName();
+        joinedSince = System.nanoTime();
         gameManager.connectPlayer(myJoining, this);
     }
 
@@ -98,7 +176,15 @@ public class Player implements JoiningResults, MyJoiningRequests {
     private boolean invalidPlayerCount(MyJoining myJoining) {
         RequestType requestType = myJoining.getRequestType();
         int playerCount = myJoining.getPlayerCount();
-        return requestType == RequestType.CREATE_FRIEND_GAME && (playerCount < 2 || playerCount > 5);
+        if (requestType == RequestType.JOIN_ONLINE_GAME && playerCount == 0) {
+            // clients which do not choose the size of an online game play with one opponent
+            return false;
+        }
+        if (requestType == RequestType.CREATE_TOURNAMENT) {
+            return playerCount < 2 || playerCount > Tournament.MAX_PLAYERS;
+        }
+        return requestType != RequestType.JOIN_FRIEND_GAME && requestType != RequestType.SPECTATE_GAME
+                && requestType != RequestType.JOIN_TOURNAMENT && (playerCount < 2 || playerCount > 5);
     }
 
     /**
@@ -112,15 +198,43 @@ public class Player implements JoiningResults, MyJoiningRequests {
     }
 
     /**
-     * Sets the game for the player.
+     * Sets the game for the player and tells the player they joined it.
      *
      * @param game the game to be set
      */
     public void setGame(Game game) {
+        assignGame(game);
         sendMessage(new Joining(JoiningResult.JOINED, game.getGameCode(), game.PLAYER_COUNT(), game.getCreationTime()));
+    }
+
+    /**
+     * Turns the joined client into a spectator of a game, which only receives the messages of the game.
+     *
+     * @return the spectator using the connection of the player
+     */
+    Spectator becomeSpectator() {
+        return new Spectator(communicationService, name);
+    }
+
+    /**
+     * Sets the game for the player without telling the player, who has already been told they joined a game.
+     *
+     * @param game the game to be set
+     */
+    public void assignGame(Game game) {
+        this.game = game;
         setAnswerListener(game);
     }
 
+    /**
+     * Checks if the connection of the player is open.
+     *
+     * @return true if the connection is open, false otherwise
+     */
+    public boolean isConnected() {
+        return communicationService.isServiceOpen();
+    }
+
     /**
      * Sets the answer listener for the player.
      *
@@ -128,9 +242,12 @@ public class Player implements JoiningResults, MyJoiningRequests {
      */
     private void setAnswerListener(Game game) {
         communicationService.setListener(data -> {
-            if (data.equals("Connection error")) {
+            if (data.equals(CommunicationService.CONNECTION_ERROR)) {
                 game.processAnswer(new MyAnswer(Constants.PLAYER_DISCONNECTED, -1), this);
+                return;
             }
+            receivedSince = System.nanoTime();
+            logReceivedMessage(MyAnswer.class, data);
             parseAnswer(game, data);
         });
     }
@@ -143,16 +260,17 @@ public class Player implements JoiningResults, MyJoiningRequests {
      */
     private void parseAnswer(Game game, String data) {
         try {
-            MyAnswer myAnswer = GsonParser.fromJson(message + data, MyAnswer.class);
+            MyAnswer myAnswer = parseMessage(data, MyAnswer.class);
             validateAnswer(myAnswer);
             processAnswer(game, myAnswer);
         }
         catch (JsonSyntaxException e) {
             // message is not complete
-            message += data;
+            appendLine(data);
         }
         catch (JsonParseException e) {
             // message is not valid
+            logInvalidMessage(e);
             communicationService.close();
             game.processAnswer(new MyAnswer(Constants.PLAYER_DISCONNECTED, -1), this);
         }
@@ -165,7 +283,7 @@ public class Player implements JoiningResults, MyJoiningRequests {
      * @param myAnswer the answer of the player
      */
     private void processAnswer(Game game, MyAnswer myAnswer) {
-        message = "";
+        clearMessage();
         communicationService.confirmMessageReceive();
         game.processAnswer(myAnswer, this);
     }
@@ -230,6 +348,24 @@ public class Player implements JoiningResults, MyJoiningRequests {
         return gameScore;
     }
 
+    /**
+     * Clears the scores and the inactivity of a player who advances to another game of a tournament.
+     */
+    void resetGame() {
+        roundScore = 0;
+        gameScore = 0;
+        noActivity = 0;
+    }
+
+    /**
+     * Restores the game score of a player who has joined a game recovered after a restart of the server.
+     *
+     * @param gameScore the game score of the player before the restart
+     */
+    public void restoreGameScore(int gameScore) {
+        this.gameScore = gameScore;
+    }
+
     /**
      * Increases the score of the player.
      */
@@ -243,16 +379,128 @@ public class Player implements JoiningResults, MyJoiningRequests {
      * @param json the message to be sent
      */
     public void sendMessage(JSON json) {
-        communicationService.sendMessage(GsonParser.toJson(json));
+        long start = System.nanoTime();
+        String text = GsonParser.toJson(json);
+        ServerMetrics.SERIALIZATION.observeSince(start);
+        String type = json.getClass().getSimpleName();
+        ServerMetrics.MESSAGES_OUT.increment(type);
+        LogEvent event = Log.info(LogCategory.MESSAGE_OUT, "send");
+        if (event.isEnabled()) {
+            logSentMessage(event, type, text);
+        }
+        communicationService.sendMessage(text);
+    }
+
+    /**
+     * Sends a message shared by all players of the game to the player.
+     *
+     * @param message the message to be sent
+     */
+    public void sendMessage(SharedMessage message) {
+        ServerMetrics.MESSAGES_OUT.increment(message.getType());
+        LogEvent event = Log.info(LogCategory.MESSAGE_OUT, "send");
+        if (event.isEnabled()) {
+            logSentMessage(event, message.getType(), message.getText());
+        }
+        communicationService.sendMessage(message, Framing.NO_PERSONAL_PART);
+    }
+
+    /**
+     * Sends a message ending with a turn to the player, completing the turn with the data of the player.
+     * The data are precomputed, so nothing is encoded for the player.
+     *
+     * @param message the message without the closing braces of its turn and of itself
+     * @param playerOnMove the name of the player on move
+     */
+    public void sendTurnMessage(SharedMessage message, String playerOnMove) {
+        byte[] turnData = MessageEncoder.turnData(name.equals(playerOnMove), roundScore);
+        ServerMetrics.MESSAGES_OUT.increment(message.getType());
+        LogEvent event = Log.info(LogCategory.MESSAGE_OUT, "send");
+        if (event.isEnabled()) {
+            logSentMessage(event, message.getType(), message.getText() + new String(turnData, StandardCharsets.UTF_8));
+        }
+        communicationService.sendMessage(message, turnData);
     }
 
     /**
-     * Expects an answer message from the player.
+     * Fills and publishes the log event of a sent message.
      *
-     * @param timeout the timeout for the message
+     * @param event the enabled log event
+     * @param type the type of the message
+     * @param text the text of the message
+     */
+    private void logSentMessage(LogEvent event, String type, String text) {
+        event.game(game).player(name).type(type).message(text).connection(communicationService).publish();
+    }
+
+    /**
+     * Records the time the player has waited from the joining request for the start of the game.
      */
-    public void expectAnswerMessage(long timeout) {
-        communicationService.expectMessage(timeout);
+    public void gameStarted() {
+        ServerMetrics.TIME_TO_MATCH.observeSince(joinedSince);
+    }
+
+    /**
+     * Returns the time the last answer message of the player has been received.
+     *
+     * @return the time of receiving the answer as given by {@link System#nanoTime()}
+     */
+    public long getReceivedSince() {
+        return receivedSince;
+    }
+
+    /**
+     * Logs a message received from the player together with the time the player took to send it.
+     *
+     * @param type the expected type of the message
+     * @param data the received data
+     */
+    private void logReceivedMessage(Class<? extends JSON> type, String data) {
+        ServerMetrics.MESSAGES_IN.increment(type.getSimpleName());
+        LogEvent event = Log.info(LogCategory.MESSAGE_IN, "receive");
+        if (event.isEnabled()) {
+            event.game(game).player(name).type(type.getSimpleName()).message(data)
+                    .latency(System.nanoTime() - expectedSince).connection(communicationService).publish();
+        }
+    }
+
+    /**
+     * Logs an invalid message received from the player, whose connection is closed.
+     *
+     * @param e the exception describing the problem of the message
+     */
+    private void logInvalidMessage(JsonParseException e) {
+        Log.warn(LogCategory.MESSAGE_IN, "invalid").game(game).player(name)
+                .connection(communicationService).field("error", e.getMessage()).publish();
+    }
+
+    /**
+     * Expects an answer message from the player. The deadline of the answer is enforced by the round.
+     * The number of the answer is set before the message is expected, so the received message is stamped with it.
+     *
+     * @param answer the number of the expected answer, unique in the game
+     */
+    public void expectAnswerMessage(int answer) {
+        expectedAnswer = answer;
+        expectedSince = System.nanoTime();
+        communicationService.expectMessage();
+    }
+
+    /**
+     * Returns the number of the answer last expected from the player.
+     *
+     * @return the number of the expected answer, or 0 if no answer has been expected
+     */
+    int getExpectedAnswer() {
+        return expectedAnswer;
+    }
+
+    /**
+     * Disconnects the player who has not answered in time.
+     */
+    public void disconnect() {
+        communicationService.confirmMessageReceive();
+        communicationService.close();
     }
 
     /**
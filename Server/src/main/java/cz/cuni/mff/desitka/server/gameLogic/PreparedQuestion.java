@@ -0,0 +1,136 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.server.Evaluation;
+import cz.cuni.mff.desitka.JSON.server.Start;
+import cz.cuni.mff.desitka.server.communication.JsonBuffer;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * This class represents the question of a round prepared before the round starts: the question materialized
+ * from the repository with its value in the {@link Start}, without the correct answers, and in the {@link Evaluation}
+ * encoded once, so starting and evaluating the round only copy the encoded bytes into the messages.
+ * A game prefetches the question of its next round while its current round is played: it chooses the question
+ * on its own thread and the question is prepared on the executor of the prefetching, see {@link #prefetch}.
+ * A prepared question is immutable and is handed over to the game through its mailbox.
+ */
+public class PreparedQuestion {
+    /**
+     * The system property setting the number of threads preparing the prefetched questions.
+     */
+    public final static String THREADS_PROPERTY = "desitka.prefetchThreads";
+
+    private final static int INITIAL_CAPACITY = 2048;
+
+    private final static ExecutorService executor = Mailbox.createExecutor(THREADS_PROPERTY, "prefetch-");
+
+    private final QuestionRepository repository;
+    private final int index;
+    private final Question question;
+    private final byte[] redactedJson;
+    private final byte[] solvedJson;
+
+    /**
+     * Constructs a new prepared question.
+     *
+     * @param repository the repository of the question
+     * @param index the index of the question in the repository
+     * @param question the materialized question
+     * @param redactedJson the encoded question without the correct answers
+     * @param solvedJson the encoded question with the correct answers
+     */
+    private PreparedQuestion(QuestionRepository repository, int index, Question question,
+                             byte[] redactedJson, byte[] solvedJson) {
+        this.repository = repository;
+        this.index = index;
+        this.question = question;
+        this.redactedJson = redactedJson;
+        this.solvedJson = solvedJson;
+    }
+
+    /**
+     * Materializes a question of a repository and encodes it on the calling thread.
+     *
+     * @param repository the repository of the question
+     * @param index the index of the question in the repository
+     * @return the prepared question
+     */
+    public static PreparedQuestion prepare(QuestionRepository repository, int index) {
+        Question question = repository.getQuestion(index);
+        JsonBuffer buffer = new JsonBuffer(INITIAL_CAPACITY);
+        byte[] redactedJson = MessageEncoder.encodeQuestion(buffer, question, false);
+        byte[] solvedJson = MessageEncoder.encodeQuestion(buffer, question, true);
+        return new PreparedQuestion(repository, index, question, redactedJson, solvedJson);
+    }
+
+    /**
+     * Prepares a question of a repository on the executor of the prefetching.
+     * Nothing is delivered if the question cannot be prepared, the game then prepares its next question itself.
+     *
+     * @param repository the repository of the question
+     * @param index the index of the question in the repository
+     * @param prepared receives the prepared question on a thread of the executor
+     */
+    static void prefetch(QuestionRepository repository, int index, Consumer<PreparedQuestion> prepared) {
+        executor.execute(() -> {
+            try {
+                prepared.accept(prepare(repository, index));
+            }
+            catch (RuntimeException e) {
+                Log.warn(LogCategory.GAME, "question.prefetch_failed").field("question", index).exception(e).publish();
+            }
+        });
+    }
+
+    /**
+     * Returns the repository the question has been prepared from.
+     *
+     * @return the repository of the question
+     */
+    QuestionRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Returns the index of the question in its repository.
+     *
+     * @return the index of the question
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the materialized question, which must not be modified.
+     *
+     * @return the question
+     */
+    Question getQuestion() {
+        return question;
+    }
+
+    /**
+     * Returns the encoded question without the correct answers, the question of the {@link Start}.
+     * The returned array is shared and must not be modified.
+     *
+     * @return the UTF-8 encoded question
+     */
+    byte[] getRedactedJson() {
+        return redactedJson;
+    }
+
+    /**
+     * Returns the encoded question with the correct answers, the solved question of the {@link Evaluation}.
+     * The returned array is shared and must not be modified.
+     *
+     * @return the UTF-8 encoded question
+     */
+    byte[] getSolvedJson() {
+        return solvedJson;
+    }
+}
\ No newline at end of file
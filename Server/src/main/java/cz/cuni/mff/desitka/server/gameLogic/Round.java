@@ -1,14 +1,13 @@
 package cz.cuni.mff.desitka.server.gameLogic;
 
 import cz.cuni.mff.desitka.JSON.Constants;
-import cz.cuni.mff.desitka.JSON.Question;
 import cz.cuni.mff.desitka.JSON.client.MyAnswer;
-import cz.cuni.mff.desitka.JSON.server.Answer;
-import cz.cuni.mff.desitka.JSON.server.Start;
-import cz.cuni.mff.desitka.JSON.server.helper.Turn;
+import cz.cuni.mff.desitka.server.journal.Journal;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import static cz.cuni.mff.desitka.JSON.Constants.PLAYER_PASSES;
@@ -16,24 +15,27 @@ import static cz.cuni.mff.desitka.JSON.Constants.playerNoAnswer;
 
 /**
  * This class represents a round in the game.
+ * The answers are processed without building their messages, the game encodes them straight from the round.
  */
 public class Round {
     private final int roundNumber;
     private int playerIndex;
     private final Game game;
-    private final Question question;
+    private final PreparedQuestion question;
     private final List<Player> roundPlayers = new ArrayList<>();
     private int totalAnswers = 0;
+    private int expectedAnswer = 0;
+    private GameTimer.Timeout answerTimeout;
 
     /**
      * Constructs a new round with a specified round number, list of players, question, and game.
      *
      * @param roundNumber the round number
      * @param roundPlayers the list of players
-     * @param question the question for the round
+     * @param question the prepared question for the round
      * @param game the game of the round
      */
-    public Round(int roundNumber, List<Player> roundPlayers, Question question, Game game) {
+    Round(int roundNumber, List<Player> roundPlayers, PreparedQuestion question, Game game) {
         this.roundNumber = roundNumber;
         this.roundPlayers.addAll(roundPlayers);
         this.question = question;
@@ -80,63 +82,86 @@ public class Round {
      * Starts the round.
      */
     public void start() {
-        Question emptyQuestion = createEmptyQuestion(question);
-        Turn turn = new Turn(getCurrentPlayer().getName(), roundPlayers.size(), game.getGamePlayers());
-        Start start = new Start(roundNumber, emptyQuestion, turn);
-        game.sendStart(start);
+        game.getClock().startRound(roundNumber);
+        game.sendStart(roundNumber, question, getCurrentPlayer().getName(), roundPlayers.size());
 
-        long timeout = Constants.getRoundAnswerTime(roundNumber);
-        getCurrentPlayer().expectAnswerMessage(timeout);
+        expectAnswer();
     }
 
     /**
-     * Creates an empty question based on a specified question.
+     * Expects an answer from the current player and schedules its deadline, the answer deadline of the game clock
+     * extended by {@link Constants#EXTRA_TIME} for the latency of the answer.
+     * The deadline is scheduled first, because a disconnected player answers immediately.
+     * The expected answer gets a number unique in the game, which stamps the answer of the player and the deadline,
+     * so whichever of them comes second is ignored.
+     */
+    private void expectAnswer() {
+        int answer = expectedAnswer = game.nextAnswerNumber();
+        long timeout = Constants.EXTRA_TIME + game.getClock().getAnswerTimeLeft();
+        answerTimeout = GameTimer.schedule(() -> game.answerTimedOut(this, answer), timeout);
+        getCurrentPlayer().expectAnswerMessage(answer);
+    }
+
+    /**
+     * Disconnects the current player if a specified expected answer has not arrived in time.
+     * The answer is identified, because the timeout may fire while the answer is being processed.
      *
-     * @param question the question to be copied
-     * @return the created empty question
-     */
-    private Question createEmptyQuestion(Question question) {
-        Question.SubQuestion[] originalSubQuestions = question.getSubQuestions();
-        Question.SubQuestion[] copiedSubQuestions = new Question.SubQuestion[10];
-
-        for (int i = 0; i < 10; i++) {
-            Question.SubQuestion originalSubQuestion = originalSubQuestions[i];
-            String key = originalSubQuestion.getKey();
-            String[] values = Arrays.copyOf(originalSubQuestion.getValues(), 4);
-            copiedSubQuestions[i] = new Question.SubQuestion(key, values, -1);
+     * @param answer the number of the expected answer
+     */
+    public void answerTimedOut(int answer) {
+        if (answer != expectedAnswer || roundFinished()) {
+            return;
         }
-        return new Question(question.getText(), copiedSubQuestions);
+        Player player = getCurrentPlayer();
+        Log.info(LogCategory.GAME, "answer.timeout").game(game).player(player.getName())
+                .field("round", roundNumber).publish();
+        player.disconnect();
+        processAnswer(new MyAnswer(Constants.PLAYER_DISCONNECTED, -1), player, answer);
     }
 
     /**
-     * Processes the answer of a player.
+     * Processes the answer of a player, unless it is not the expected one: the answer of a player
+     * who has already timed out, a disconnection reported after the deadline, or an answer left over from an earlier round.
      *
      * @param myAnswer the answer of the player
      * @param player the player who answered
+     * @param answer the number of the expected answer the player answered, see {@link Player#getExpectedAnswer()}
      */
-    public void processAnswer(MyAnswer myAnswer, Player player) {
-        Answer answer = parseAnswer(myAnswer, player);
-        game.sendAnswer(answer);
+    public void processAnswer(MyAnswer myAnswer, Player player, int answer) {
+        if (answer != expectedAnswer || roundFinished() || player != getCurrentPlayer()) {
+            Log.info(LogCategory.GAME, "answer.ignored").game(game).player(player.getName())
+                    .field("round", roundNumber).field("answerID", myAnswer.getAnswerID()).publish();
+            return;
+        }
+        expectedAnswer = 0;
+        if (answerTimeout != null) {
+            answerTimeout.cancel();
+        }
+        Journal.answered(game.getGameId(), player.getName(), myAnswer.getAnswerID(), myAnswer.getPlayerAnswerIndex());
+        parseAnswer(myAnswer, player);
+        if (!Constants.playerDisconnected(myAnswer.getAnswerID())) {
+            ServerMetrics.ANSWER_TO_BROADCAST.observeSince(player.getReceivedSince());
+        }
         checkRoundEnd();
     }
 
     /**
-     * Parses the answer of a player.
+     * Parses the answer of a player and sends it to the players.
      *
      * @param myAnswer the answer of the player
      * @param player the player who answered
-     * @return the parsed answer
      */
-    private Answer parseAnswer(MyAnswer myAnswer, Player player) {
+    private void parseAnswer(MyAnswer myAnswer, Player player) {
         int answerID = myAnswer.getAnswerID();
         if (!playerNoAnswer(answerID)) {
             totalAnswers++;
             int playerAnswerIndex = myAnswer.getPlayerAnswerIndex();
-            int correctAnswerIndex = question.getSubQuestions()[answerID].getCorrectIndex();
+            int correctAnswerIndex = question.getQuestion().getSubQuestions()[answerID].getCorrectIndex();
             evaluateAnswer(playerAnswerIndex, correctAnswerIndex, player);
-            return new Answer(answerID, player.getName(), playerAnswerIndex, correctAnswerIndex, makeTurn());
+            sendAnswer(answerID, player, playerAnswerIndex, correctAnswerIndex);
+            return;
         }
-        return handleNoAnswer(answerID, player);
+        handleNoAnswer(answerID, player);
     }
 
     /**
@@ -144,21 +169,26 @@ public class Round {
      *
      * @param answerID the ID of the answer
      * @param player the player who did not answer
-     * @return the answer
      */
-    private Answer handleNoAnswer(int answerID, Player player) {
+    private void handleNoAnswer(int answerID, Player player) {
         removePlayer();
         checkPossibleNoActivity(answerID, player);
-        return new Answer(answerID, player.getName(), -1, -1, makeTurn());
+        sendAnswer(answerID, player, -1, -1);
     }
 
     /**
-     * Makes a turn for the next player.
+     * Advances the game clock after an answer, so the next phases start now instead of at the answer deadline,
+     * and sends the answer with the turn of the next player to the players.
      *
-     * @return the turn for the next player
+     * @param answerID the ID of the answer
+     * @param player the player who answered
+     * @param playerAnswerIndex the index of the player's answer, -1 if the player did not answer
+     * @param correctAnswerIndex the index of the correct answer, -1 if the player did not answer
      */
-    private Turn makeTurn() {
-        return new Turn(nextPlayerName(), roundPlayers.size(), game.getGamePlayers());
+    private void sendAnswer(int answerID, Player player, int playerAnswerIndex, int correctAnswerIndex) {
+        game.getClock().answered(roundFinished());
+        game.sendAnswer(answerID, player.getName(), playerAnswerIndex, correctAnswerIndex,
+                nextPlayerName(), roundPlayers.size());
     }
 
     /**
@@ -169,8 +199,7 @@ public class Round {
             game.evaluateRound();
             return;
         }
-        long timeout = Constants.getRegularAnswerTime();
-        getCurrentPlayer().expectAnswerMessage(timeout);
+        expectAnswer();
     }
 
     /**
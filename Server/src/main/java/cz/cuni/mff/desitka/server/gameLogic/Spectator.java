@@ -0,0 +1,83 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.GsonParser;
+import cz.cuni.mff.desitka.JSON.JSON;
+import cz.cuni.mff.desitka.server.communication.CommunicationService;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+
+/**
+ * This class represents a client watching a running game without playing it.
+ * A spectator only receives the messages of the rounds, anything it sends is ignored.
+ * The queue of its unsent messages has the lower high-water mark of {@link SpectatorGroup#MAX_QUEUED_BYTES},
+ * so a spectator which does not read its messages is evicted without holding much memory.
+ */
+class Spectator {
+    private final CommunicationService communicationService;
+    private final String name;
+
+    /**
+     * Constructs a new spectator with a specified communication service.
+     *
+     * @param communicationService the communication service of the spectator
+     * @param name the name the spectator has joined with
+     */
+    Spectator(CommunicationService communicationService, String name) {
+        this.communicationService = communicationService;
+        this.name = name;
+    }
+
+    /**
+     * Starts watching the game of a group of spectators. The spectator leaves the group once its connection fails.
+     *
+     * @param group the spectators of the game
+     */
+    void watch(SpectatorGroup group) {
+        communicationService.limitQueuedBytes(SpectatorGroup.MAX_QUEUED_BYTES);
+        communicationService.setListener(data -> {
+            if (data.equals(CommunicationService.CONNECTION_ERROR)) {
+                group.remove(this);
+            }
+        });
+        // the spectator never answers, the expected message only reports the failure of the connection
+        communicationService.expectMessage();
+    }
+
+    /**
+     * Sends a message to the spectator.
+     *
+     * @param json the message to be sent
+     */
+    void sendMessage(JSON json) {
+        ServerMetrics.MESSAGES_OUT.increment(json.getClass().getSimpleName());
+        communicationService.sendMessage(GsonParser.toJson(json));
+    }
+
+    /**
+     * Sends a message broadcast to the spectators of a game. The bytes of the message are shared by all spectators.
+     *
+     * @param message the encoded message
+     * @param ending the UTF-8 encoded end of the message which is the same for all spectators
+     */
+    void sendMessage(SharedMessage message, byte[] ending) {
+        communicationService.sendMessage(message, ending);
+    }
+
+    /**
+     * Returns the name of the spectator.
+     *
+     * @return the name of the spectator
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the communication service of the spectator, described in the log.
+     *
+     * @return the communication service of the spectator
+     */
+    CommunicationService getCommunicationService() {
+        return communicationService;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.server.Joining;
+import cz.cuni.mff.desitka.server.communication.Framing;
+import cz.cuni.mff.desitka.server.communication.SharedMessage;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This class represents the spectators of a game.
+ * The thread of the game only puts the encoded messages of the rounds into the mailbox of the group,
+ * which runs on the executor of the spectators, so the game never waits for its spectators however many they are.
+ * The messages are encoded once by the game and the same bytes are queued for every spectator,
+ * a message ending with a turn is closed by the same two braces for all of them, because a spectator is never on move.
+ * A spectator which joins in the middle of a round is first sent the messages of the round,
+ * so it can show the question and the answers given so far.
+ * The state of the group is confined to its mailbox.
+ */
+class SpectatorGroup {
+    /**
+     * The system property setting the number of threads sending the messages to the spectators.
+     */
+    public final static String THREADS_PROPERTY = "desitka.spectatorThreads";
+
+    /**
+     * The system property setting the high-water mark of the queue of a spectator in bytes.
+     */
+    public final static String MAX_QUEUED_BYTES_PROPERTY = "desitka.spectators.maxQueuedBytes";
+
+    /**
+     * The maximum number of bytes waiting for being sent to a spectator.
+     */
+    public final static long MAX_QUEUED_BYTES = Long.getLong(MAX_QUEUED_BYTES_PROPERTY, 128 * 1024);
+
+    /**
+     * The end of a message ending with a turn for the spectators, which closes the turn and the message.
+     */
+    private final static byte[] TURN_END = {'}', '}'};
+
+    private final static ExecutorService executor = Mailbox.createExecutor(THREADS_PROPERTY, "spectators-");
+
+    private final Game game;
+    private final Mailbox mailbox;
+    private final List<Spectator> spectators = new ArrayList<>();
+    private final List<SharedMessage> roundMessages = new ArrayList<>();
+
+    /**
+     * Constructs a new group of the spectators of a game.
+     *
+     * @param game the watched game
+     */
+    SpectatorGroup(Game game) {
+        this.game = game;
+        this.mailbox = new Mailbox(game, executor);
+    }
+
+    /**
+     * Adds a spectator to the group, tells it it has joined and sends it the messages of the current round.
+     *
+     * @param spectator the spectator to be added
+     * @param joined the reply to the joining request of the spectator
+     */
+    void add(Spectator spectator, Joining joined) {
+        mailbox.execute(() -> {
+            spectator.sendMessage(joined);
+            for (int i = 0; i < roundMessages.size(); i++) {
+                spectator.sendMessage(roundMessages.get(i), TURN_END);
+            }
+            ServerMetrics.SPECTATOR_MESSAGES.add(roundMessages.size());
+            spectators.add(spectator);
+            ServerMetrics.spectatorJoined();
+            Log.info(LogCategory.GAME, "spectator.join").game(game).player(spectator.getName())
+                    .connection(spectator.getCommunicationService()).field("spectators", spectators.size()).publish();
+            spectator.watch(this);
+        });
+    }
+
+    /**
+     * Removes a spectator whose connection has failed.
+     *
+     * @param spectator the spectator to be removed
+     */
+    void remove(Spectator spectator) {
+        mailbox.execute(() -> {
+            if (spectators.remove(spectator)) {
+                ServerMetrics.spectatorLeft();
+                Log.info(LogCategory.GAME, "spectator.leave").game(game).player(spectator.getName())
+                        .field("spectators", spectators.size()).publish();
+            }
+        });
+    }
+
+    /**
+     * Sends the start of a round to the spectators.
+     *
+     * @param start the start without the turn data of the recipients
+     */
+    void publishStart(SharedMessage start) {
+        mailbox.execute(() -> {
+            roundMessages.clear();
+            roundMessages.add(start);
+            sendToSpectators(start, TURN_END);
+        });
+    }
+
+    /**
+     * Sends the answer of a player to the spectators.
+     *
+     * @param answer the answer without the turn data of the recipients
+     */
+    void publishAnswer(SharedMessage answer) {
+        mailbox.execute(() -> {
+            roundMessages.add(answer);
+            sendToSpectators(answer, TURN_END);
+        });
+    }
+
+    /**
+     * Sends the evaluation of a round to the spectators.
+     *
+     * @param evaluation the evaluation
+     */
+    void publishEvaluation(SharedMessage evaluation) {
+        mailbox.execute(() -> {
+            roundMessages.clear();
+            sendToSpectators(evaluation, Framing.NO_PERSONAL_PART);
+        });
+    }
+
+    /**
+     * Releases the spectators once the game has ended. Their connections are not closed,
+     * the unsent messages would be dropped, the clients disconnect after the last evaluation like the players do.
+     */
+    void close() {
+        mailbox.execute(() -> {
+            for (int i = 0; i < spectators.size(); i++) {
+                ServerMetrics.spectatorLeft();
+            }
+            spectators.clear();
+            roundMessages.clear();
+        });
+    }
+
+    /**
+     * Queues a message for all spectators.
+     *
+     * @param message the encoded message
+     * @param ending the end of the message which is the same for all spectators
+     */
+    private void sendToSpectators(SharedMessage message, byte[] ending) {
+        for (int i = 0; i < spectators.size(); i++) {
+            spectators.get(i).sendMessage(message, ending);
+        }
+        ServerMetrics.SPECTATOR_MESSAGES.add(spectators.size());
+    }
+}
\ No newline at end of file
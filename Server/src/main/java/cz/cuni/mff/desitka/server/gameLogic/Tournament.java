@@ -0,0 +1,266 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.JSON.server.Joining;
+import cz.cuni.mff.desitka.JSON.server.JoiningResults;
+import cz.cuni.mff.desitka.server.GameManager;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+import cz.cuni.mff.desitka.server.questions.QuestionTiers;
+import org.apache.commons.lang3.RandomStringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class represents a knockout tournament in the server.
+ * The players register by the code of the tournament, and once it is full, or its registration expires
+ * with at least two players, the tournament plays its bracket: the players are paired in the order of their registration,
+ * all games of a round of the bracket start at once and the leader of the last evaluation of every game advances.
+ * A player left without an opponent advances without playing. The next round starts once all games of a round have ended,
+ * until a single player, the champion, remains.
+ * The games run on the shared executor of the games like any other game, so the tournament only starts them
+ * and collects their winners. The state of the tournament is confined to its own {@link Mailbox}.
+ * All games of a round of the bracket play the same questions, derived from the seed of the tournament
+ * without any shared state, so the games choose their questions in parallel.
+ */
+public class Tournament implements JoiningResults {
+    /**
+     * The maximum number of players of a tournament.
+     */
+    public final static int MAX_PLAYERS = 256;
+
+    // spreads the seeds of the rounds of the bracket apart, the golden ratio in fixed point
+    private final static long ROUND_SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final GameManager gameManager;
+    private final String code;
+    private final int playerCount;
+    private final long creationTime;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final Mailbox mailbox = new Mailbox(this);
+    private final List<Player> players = new ArrayList<>();
+
+    private volatile GameTimer.Timeout registrationTimeout;
+    private boolean started;
+    private int bracketRound;
+    private Player[] winners;
+    private int pendingGames;
+    private int games;
+    private int rounds;
+    private long startTime;
+    private long roundStartTime;
+
+    /**
+     * Constructs a new tournament with a generated code.
+     *
+     * @param playerCount the maximum number of players in the tournament
+     * @param gameManager the game manager of the server
+     */
+    public Tournament(int playerCount, GameManager gameManager) {
+        this.playerCount = playerCount;
+        this.gameManager = gameManager;
+        code = RandomStringUtils.randomAlphabetic(8).toLowerCase();
+        creationTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Registers a player for the tournament if it has not started yet, and starts the tournament once it is full.
+     * The player is told the result of the registration, {@code NAME_ALREADY_JOINED} if a player of the same name
+     * has already registered, or {@code GAME_NOT_FOUND} if the tournament no longer accepts players.
+     *
+     * @param player the player to be registered
+     */
+    public void join(Player player) {
+        mailbox.execute(() -> {
+            if (started) {
+                player.sendMessage(new Joining(JoiningResult.GAME_NOT_FOUND, null, 0, 0));
+                return;
+            }
+            for (Player registered : players) {
+                if (registered.getName().equals(player.getName())) {
+                    player.sendMessage(new Joining(JoiningResult.NAME_ALREADY_JOINED, null, 0, 0));
+                    return;
+                }
+            }
+            players.add(player);
+            player.sendMessage(new Joining(JoiningResult.JOINED, code, playerCount, creationTime));
+            if (players.size() == playerCount) {
+                GameTimer.Timeout timeout = registrationTimeout;
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                start();
+            }
+        });
+    }
+
+    /**
+     * Sets the timeout ending the registration of the tournament.
+     *
+     * @param registrationTimeout the timeout, cancelled when the tournament is full
+     */
+    public void setRegistrationTimeout(GameTimer.Timeout registrationTimeout) {
+        this.registrationTimeout = registrationTimeout;
+    }
+
+    /**
+     * Ends the registration once the tournament has waited for its players for too long.
+     * The tournament starts with the registered players if there are at least two of them,
+     * otherwise the registered player is disconnected. Nothing happens if the tournament has already started.
+     */
+    public void expireRegistration() {
+        mailbox.execute(() -> {
+            if (started) {
+                return;
+            }
+            if (players.size() >= TournamentGame.PLAYERS_PER_GAME) {
+                start();
+                return;
+            }
+            started = true;
+            gameManager.tournamentClosed(this, true);
+            players.forEach(Player::disconnect);
+        });
+    }
+
+    /**
+     * Starts the first round of the bracket with the registered players.
+     */
+    private void start() {
+        started = true;
+        gameManager.tournamentClosed(this, false);
+        ServerMetrics.TOURNAMENTS.increment();
+        startTime = System.nanoTime();
+        Log.info(LogCategory.GAME, "tournament.start").game(this).field("players", players.size()).publish();
+        playBracketRound(players);
+    }
+
+    /**
+     * Starts a round of the bracket, a game for every pair of the advancing players,
+     * or ends the tournament if at most one player advances.
+     *
+     * @param entrants the players advancing to the round in the order of the bracket
+     */
+    private void playBracketRound(List<Player> entrants) {
+        if (entrants.size() < TournamentGame.PLAYERS_PER_GAME) {
+            finish(entrants.isEmpty() ? null : entrants.get(0));
+            return;
+        }
+        bracketRound++;
+        roundStartTime = System.nanoTime();
+        pendingGames = entrants.size() / TournamentGame.PLAYERS_PER_GAME;
+        winners = new Player[(entrants.size() + 1) / TournamentGame.PLAYERS_PER_GAME];
+        if (entrants.size() % TournamentGame.PLAYERS_PER_GAME != 0) {
+            // the last player has no opponent and advances without playing
+            winners[winners.length - 1] = entrants.get(entrants.size() - 1);
+        }
+        Log.info(LogCategory.GAME, "tournament.round").game(this).field("round", bracketRound)
+                .field("players", entrants.size()).field("games", pendingGames).publish();
+        for (int match = 0; match < pendingGames; match++) {
+            Player first = entrants.get(2 * match);
+            Player second = entrants.get(2 * match + 1);
+            first.resetGame();
+            second.resetGame();
+            new TournamentGame(this, bracketRound, match).startMatch(Arrays.asList(first, second));
+        }
+    }
+
+    /**
+     * Records the winner of a game of the tournament and starts the next round of the bracket
+     * once all games of the current one have ended. Called on the thread of the game.
+     *
+     * @param game the ended game
+     * @param winner the leader of the last evaluation of the game, or null if no player remained in it
+     * @param gameRounds the number of rounds played by the game
+     */
+    void gameEnded(TournamentGame game, Player winner, int gameRounds) {
+        mailbox.execute(() -> {
+            winners[game.getMatch()] = winner;
+            games++;
+            rounds += gameRounds;
+            ServerMetrics.TOURNAMENT_GAMES.increment();
+            if (--pendingGames > 0) {
+                return;
+            }
+            ServerMetrics.TOURNAMENT_ROUND_DURATION.observeSince(roundStartTime);
+            List<Player> advancing = new ArrayList<>();
+            for (Player player : winners) {
+                if (player != null) {
+                    advancing.add(player);
+                }
+            }
+            playBracketRound(advancing);
+        });
+    }
+
+    /**
+     * Ends the tournament and logs its throughput.
+     *
+     * @param champion the winner of the tournament, or null if no player remained in it
+     */
+    private void finish(Player champion) {
+        long duration = System.nanoTime() - startTime;
+        Log.info(LogCategory.GAME, "tournament.end").game(this)
+                .player(champion == null ? null : champion.getName())
+                .field("players", players.size()).field("bracket_rounds", bracketRound)
+                .field("games", games).field("rounds", rounds)
+                .field("duration_ms", duration / 1_000_000)
+                .field("rounds_per_s", String.format("%.1f", rounds * 1e9 / Math.max(1, duration)))
+                .publish();
+    }
+
+    /**
+     * Returns the index of the question of a round of the games of a round of the bracket,
+     * the same for all these games. The difficulty ramps up with the rounds of the games, see {@link QuestionTiers#rampTier(int)}.
+     *
+     * @param bracketRound the round of the bracket
+     * @param round the round of the game
+     * @param tiers the tiers of the questions in the shared question repository
+     * @return the index of the question in the repository
+     */
+    int questionIndex(int bracketRound, int round, QuestionTiers tiers) {
+        int tier = tiers.rampTier(round);
+        return tiers.getStart(tier) + new SplittableRandom(seed + bracketRound * ROUND_SEED_STEP + round).nextInt(tiers.size(tier));
+    }
+
+    /**
+     * Returns the code of the tournament.
+     *
+     * @return the code of the tournament
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the maximum number of players in the tournament.
+     *
+     * @return the maximum number of players
+     */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /**
+     * Returns the creation time of the tournament.
+     *
+     * @return the creation time of the tournament
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * Returns the description of the tournament for the log, its code.
+     *
+     * @return the code of the tournament
+     */
+    @Override
+    public String toString() {
+        return code;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package cz.cuni.mff.desitka.server.gameLogic;
+
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+import cz.cuni.mff.desitka.server.questions.QuestionTiers;
+
+/**
+ * This class represents a game of a tournament, a match of two players whose winner advances in the bracket.
+ * All games of a round of the bracket play the same questions, see {@link Tournament#questionIndex(int, int, QuestionTiers)}.
+ */
+class TournamentGame extends Game {
+    /**
+     * The number of players in a game of a tournament.
+     */
+    final static int PLAYERS_PER_GAME = 2;
+
+    private final Tournament tournament;
+    private final int bracketRound;
+    private final int match;
+
+    /**
+     * Constructs a new game of a tournament.
+     *
+     * @param tournament the tournament of the game
+     * @param bracketRound the round of the bracket, starting from 1
+     * @param match the position of the game in the round of the bracket
+     */
+    TournamentGame(Tournament tournament, int bracketRound, int match) {
+        super(PLAYERS_PER_GAME);
+        this.tournament = tournament;
+        this.bracketRound = bracketRound;
+        this.match = match;
+    }
+
+    /**
+     * Returns the position of the game in its round of the bracket.
+     *
+     * @return the position of the game
+     */
+    int getMatch() {
+        return match;
+    }
+
+    /**
+     * Chooses the question shared by all games of the round of the bracket.
+     *
+     * @param repository the shared question repository
+     * @param round the number of the round of the game
+     * @return the index of the question in the repository
+     */
+    @Override
+    protected int chooseQuestionIndex(QuestionRepository repository, int round) {
+        return tournament.questionIndex(bracketRound, round, repository.getTiers());
+    }
+
+    /**
+     * Reports the winner of the game to the tournament.
+     *
+     * @param playerCount the number of players in the game
+     */
+    @Override
+    public void dealGameEnd(int playerCount) {
+        tournament.gameEnded(this, getLeader(), getRoundNumber());
+    }
+
+    /**
+     * Returns the name of the game, the code of the tournament with the round of the bracket and the position of the game.
+     *
+     * @return the name of the game, e.g. {@code abcdefgh-2-3}
+     */
+    @Override
+    public String toString() {
+        return tournament.getCode() + "-" + bracketRound + "-" + match;
+    }
+}
\ No newline at end of file
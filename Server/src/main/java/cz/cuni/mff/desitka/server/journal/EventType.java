@@ -0,0 +1,74 @@
+package cz.cuni.mff.desitka.server.journal;
+
+/**
+ * This enum represents the types of the events written to the journal, each identified by its code in a record.
+ */
+enum EventType {
+    /**
+     * A game has been created, with its code, player count and creation time.
+     */
+    GAME_CREATED(1),
+
+    /**
+     * A player has joined a game.
+     */
+    PLAYER_JOINED(2),
+
+    /**
+     * A round has started, with the index of its question in the question repository.
+     */
+    ROUND_STARTED(3),
+
+    /**
+     * A player has answered, passed or disconnected.
+     */
+    ANSWERED(4),
+
+    /**
+     * A round has been evaluated, with the game scores of the remaining players.
+     */
+    ROUND_EVALUATED(5),
+
+    /**
+     * A game has ended or its lobby has expired.
+     */
+    GAME_ENDED(6);
+
+    private final static EventType[] byCode = new EventType[8];
+
+    static {
+        for (EventType type : values()) {
+            byCode[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    /**
+     * Constructs a new event type.
+     *
+     * @param code the code of the type in a record
+     */
+    EventType(int code) {
+        this.code = (byte) code;
+    }
+
+    /**
+     * Returns the code of the type in a record.
+     *
+     * @return the code of the type
+     */
+    byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the type with a specified code.
+     *
+     * @param code the code of the type
+     * @return the type, or null if the code is unknown
+     */
+    static EventType fromCode(byte code) {
+        return code > 0 && code < byCode.length ? byCode[code] : null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.Gauge;
+import cz.cuni.mff.desitka.server.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class is the entry point of the journal of the games. The games record their state-changing events,
+ * and after a restart the server rebuilds the games which had not ended from the journal.
+ * The journal is enabled by the {@value #DIRECTORY_PROPERTY} system property, otherwise recording an event does nothing.
+ * The segments of the previous run are deleted once the recovered games have been recorded again.
+ */
+public class Journal {
+    /**
+     * The system property setting the directory of the journal.
+     */
+    public final static String DIRECTORY_PROPERTY = "desitka.journal.dir";
+
+    /**
+     * The system property setting the size of a segment of the journal in bytes.
+     */
+    public final static String SEGMENT_SIZE_PROPERTY = "desitka.journal.segmentSize";
+
+    /**
+     * The system property setting the interval of forcing the journal to the storage in milliseconds.
+     */
+    public final static String SYNC_INTERVAL_PROPERTY = "desitka.journal.syncInterval";
+
+    private static volatile JournalWriter writer;
+    private static List<Path> recoveredSegments = Collections.emptyList();
+
+    /**
+     * Replays the journal of the previous run and starts the journal of this run.
+     *
+     * @return the games which had not ended, empty if the journal is disabled or cannot be started
+     */
+    public static List<RecoveredGame> start() {
+        String directoryName = System.getProperty(DIRECTORY_PROPERTY);
+        if (directoryName == null || directoryName.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Path directory = Paths.get(directoryName);
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                recoveredSegments = files.filter(JournalSegment::isSegment)
+                        .sorted((a, b) -> Long.compare(JournalSegment.number(a), JournalSegment.number(b)))
+                        .collect(Collectors.toList());
+            }
+            long start = System.nanoTime();
+            JournalRecovery recovery = new JournalRecovery();
+            List<RecoveredGame> games = recovery.replay(recoveredSegments);
+            long firstSegment = recoveredSegments.isEmpty() ? 1 :
+                    JournalSegment.number(recoveredSegments.get(recoveredSegments.size() - 1)) + 1;
+            int segmentSize = Integer.getInteger(SEGMENT_SIZE_PROPERTY, 64 * 1024 * 1024);
+            JournalWriter started = new JournalWriter(directory, firstSegment, segmentSize,
+                    Long.getLong(SYNC_INTERVAL_PROPERTY, 10));
+            MetricsRegistry.register(new Gauge("desitka_journal_segments",
+                    "Segment files of the journal of the games.", started::getSegmentCount));
+            writer = started;
+            Log.info(LogCategory.SYSTEM, "journal.replayed").field("dir", directory.toAbsolutePath())
+                    .field("segments", recoveredSegments.size()).field("records", recovery.getRecords())
+                    .field("games", games.size()).latency(System.nanoTime() - start).publish();
+            return games;
+        }
+        catch (IOException e) {
+            Log.error(LogCategory.SYSTEM, "journal.failed").field("dir", directory.toAbsolutePath()).exception(e).publish();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Deletes the segments of the previous run once the recovered games have been recorded in this run.
+     */
+    public static void finishRecovery() {
+        JournalWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        current.force();
+        recoveredSegments.forEach(JournalWriter::delete);
+        recoveredSegments = Collections.emptyList();
+    }
+
+    /**
+     * Records the creation of a game.
+     *
+     * @param gameId the number of the game
+     * @param gameCode the code of the game, or null for an online game
+     * @param playerCount the number of players of the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
+     * @param creationTime the creation time of the game
+     */
+    public static void gameCreated(int gameId, String gameCode, int playerCount, int viewsLimit, long creationTime) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.gameCreated(gameId, gameCode, playerCount, viewsLimit, creationTime);
+        }
+    }
+
+    /**
+     * Records a player joining a game.
+     *
+     * @param gameId the number of the game
+     * @param playerName the name of the player
+     */
+    public static void playerJoined(int gameId, String playerName) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.playerJoined(gameId, playerName);
+        }
+    }
+
+    /**
+     * Records the start of a round.
+     *
+     * @param gameId the number of the game
+     * @param roundNumber the number of the round
+     * @param questionIndex the index of the question of the round in the question repository
+     */
+    public static void roundStarted(int gameId, int roundNumber, int questionIndex) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.roundStarted(gameId, roundNumber, questionIndex);
+        }
+    }
+
+    /**
+     * Records an answer of a player.
+     *
+     * @param gameId the number of the game
+     * @param playerName the name of the player
+     * @param answerID the ID of the answer, negative if the player has passed or disconnected
+     * @param answerIndex the index of the chosen option
+     */
+    public static void answered(int gameId, String playerName, int answerID, int answerIndex) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.answered(gameId, playerName, answerID, answerIndex);
+        }
+    }
+
+    /**
+     * Records the evaluation of a round.
+     *
+     * @param gameId the number of the game
+     * @param roundNumber the number of the round
+     * @param scores the game scores of the remaining players by their names, in the order of the players
+     */
+    public static void roundEvaluated(int gameId, int roundNumber, Map<String, Integer> scores) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.roundEvaluated(gameId, roundNumber, scores);
+        }
+    }
+
+    /**
+     * Records the end of a game.
+     *
+     * @param gameId the number of the game
+     */
+    public static void gameEnded(int gameId) {
+        JournalWriter current = writer;
+        if (current != null) {
+            current.gameEnded(gameId);
+        }
+    }
+
+    /**
+     * Checks if the events are recorded.
+     *
+     * @return true if the journal is enabled, false otherwise
+     */
+    public static boolean isEnabled() {
+        return writer != null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * This class encodes the records of the journal. Each thread has its own encoder with a reusable buffer,
+ * so a record is encoded without holding the lock of the journal, which only copies the finished record.
+ * The body of a record is the code of its type, its time, the number of its game and the fields of the event.
+ */
+class JournalEncoder {
+    /**
+     * The maximum size of a record in bytes.
+     */
+    final static int CAPACITY = 64 * 1024;
+
+    private final static ThreadLocal<JournalEncoder> encoders = ThreadLocal.withInitial(JournalEncoder::new);
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(CAPACITY);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Starts a record with the encoder of the current thread.
+     *
+     * @param type the type of the event
+     * @param gameId the number of the game
+     * @return the encoder of the record
+     */
+    static JournalEncoder begin(EventType type, int gameId) {
+        JournalEncoder encoder = encoders.get();
+        encoder.buffer.clear();
+        encoder.buffer.position(JournalSegment.RECORD_HEADER_SIZE);
+        encoder.buffer.put(type.getCode()).putLong(System.currentTimeMillis()).putInt(gameId);
+        return encoder;
+    }
+
+    /**
+     * Appends an integer to the record.
+     *
+     * @param value the integer
+     * @return this encoder
+     */
+    JournalEncoder putInt(int value) {
+        buffer.putInt(value);
+        return this;
+    }
+
+    /**
+     * Appends a long integer to the record.
+     *
+     * @param value the long integer
+     * @return this encoder
+     */
+    JournalEncoder putLong(long value) {
+        buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * Appends a string to the record as its length and its UTF-8 bytes.
+     *
+     * @param value the string, may be null
+     * @return this encoder
+     */
+    JournalEncoder putString(String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return this;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+        return this;
+    }
+
+    /**
+     * Finishes the record by writing its length and checksum before its body.
+     *
+     * @return the record ready to be appended to a segment
+     */
+    ByteBuffer finish() {
+        int length = buffer.position() - JournalSegment.RECORD_HEADER_SIZE;
+        buffer.flip();
+        ByteBuffer body = buffer.duplicate();
+        body.position(JournalSegment.RECORD_HEADER_SIZE);
+        crc.reset();
+        crc.update(body);
+        buffer.putInt(0, length).putInt(4, (int) crc.getValue());
+        return buffer;
+    }
+
+    /**
+     * Computes the checksum of the body of a record.
+     *
+     * @param body the body of the record, which is not consumed
+     * @return the CRC32 checksum of the body
+     */
+    static int checksum(ByteBuffer body) {
+        CRC32 checksum = new CRC32();
+        checksum.update(body.duplicate());
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * Reads a string written by {@link #putString(String)}.
+     *
+     * @param body the body of a record positioned at the string
+     * @return the string, may be null
+     */
+    static String getString(ByteBuffer body) {
+        int length = body.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
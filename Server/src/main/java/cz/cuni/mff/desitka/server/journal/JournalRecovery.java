@@ -0,0 +1,111 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class replays the segments of the journal and rebuilds the games which had not ended.
+ * A game is identified by its number and the generation of the journal, because the numbers of the games
+ * start again with each run of the server. The events of a game whose creation is not in the journal are ignored.
+ * A segment is replayed up to its first torn or corrupted record.
+ */
+class JournalRecovery {
+    private final Map<Long, RecoveredGame> games = new LinkedHashMap<>();
+    private long records;
+
+    /**
+     * Replays segment files in the order of their numbers.
+     *
+     * @param segmentFiles the segment files
+     * @return the games in progress in the order of their creation
+     */
+    List<RecoveredGame> replay(List<Path> segmentFiles) {
+        for (Path path : segmentFiles) {
+            try {
+                JournalSegment segment = JournalSegment.open(path);
+                if (segment == null) {
+                    Log.warn(LogCategory.SYSTEM, "journal.segment.invalid").field("file", path).publish();
+                    continue;
+                }
+                replay(segment);
+            }
+            catch (IOException | RuntimeException e) {
+                Log.warn(LogCategory.SYSTEM, "journal.segment.unreadable").field("file", path).exception(e).publish();
+            }
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    /**
+     * Replays the records of a segment.
+     *
+     * @param segment the segment
+     */
+    private void replay(JournalSegment segment) {
+        ByteBuffer body;
+        while ((body = segment.nextRecord()) != null) {
+            replay(segment.getGeneration(), body);
+            records++;
+        }
+    }
+
+    /**
+     * Replays a record.
+     *
+     * @param generation the generation of the journal which has written the record
+     * @param body the body of the record
+     */
+    private void replay(long generation, ByteBuffer body) {
+        EventType type = EventType.fromCode(body.get());
+        body.getLong(); // the time of the event
+        long key = generation << 32 | (body.getInt() & 0xFFFFFFFFL);
+        if (type == EventType.GAME_CREATED) {
+            games.put(key, new RecoveredGame(JournalEncoder.getString(body), body.getInt(), body.getInt()));
+            return;
+        }
+        RecoveredGame game = games.get(key);
+        if (game == null || type == null) {
+            return;
+        }
+        switch (type) {
+            case PLAYER_JOINED:
+                game.playerJoined(JournalEncoder.getString(body));
+                break;
+            case ROUND_STARTED:
+                game.roundStarted(body.getInt(), body.getInt());
+                break;
+            case ROUND_EVALUATED:
+                int roundNumber = body.getInt();
+                int playerCount = body.getInt();
+                Map<String, Integer> scores = new LinkedHashMap<>();
+                for (int i = 0; i < playerCount; i++) {
+                    scores.put(JournalEncoder.getString(body), body.getInt());
+                }
+                game.roundEvaluated(roundNumber, scores);
+                break;
+            case GAME_ENDED:
+                games.remove(key);
+                break;
+            default:
+                // the answers are journaled for the audit of the games, a recovered round starts again
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of the replayed records.
+     *
+     * @return the number of the replayed records
+     */
+    long getRecords() {
+        return records;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents a segment of the journal, a file of a fixed size mapped into memory.
+ * A segment starts with a header of the magic number, the format version and the generation of the journal,
+ * which is the number of the first segment written by the server run. The records follow,
+ * each as its length, the CRC32 checksum and the body. The unwritten rest of the file is zero,
+ * so a zero length marks the end of the records.
+ */
+class JournalSegment {
+    /**
+     * The magic number of a segment, "DSKJ".
+     */
+    final static int MAGIC = 0x44534B4A;
+
+    /**
+     * The version of the format of the segments.
+     */
+    final static int VERSION = 2;
+
+    /**
+     * The size of the header of a segment.
+     */
+    final static int HEADER_SIZE = 16;
+
+    /**
+     * The size of the length and the checksum preceding the body of a record.
+     */
+    final static int RECORD_HEADER_SIZE = 8;
+
+    private final static String PREFIX = "journal-";
+    private final static String SUFFIX = ".seg";
+
+    private final long number;
+    private final long generation;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Constructs a new segment.
+     *
+     * @param number the number of the segment
+     * @param generation the generation of the journal
+     * @param path the path of the file of the segment
+     * @param buffer the mapped content of the file, positioned after the last record
+     */
+    private JournalSegment(long number, long generation, Path path, MappedByteBuffer buffer) {
+        this.number = number;
+        this.generation = generation;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a new segment file and maps it for writing.
+     *
+     * @param directory the directory of the journal
+     * @param number the number of the segment
+     * @param generation the generation of the journal
+     * @param size the size of the segment in bytes
+     * @return the created segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static JournalSegment create(Path directory, long number, long generation, int size) throws IOException {
+        Path path = directory.resolve(fileName(number));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(generation);
+            return new JournalSegment(number, generation, path, buffer);
+        }
+    }
+
+    /**
+     * Maps an existing segment file for reading.
+     *
+     * @param path the path of the file of the segment
+     * @return the segment positioned after its header, or null if the file is not a segment of this format
+     * @throws IOException if the file cannot be mapped
+     */
+    static JournalSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            return new JournalSegment(number(path), buffer.getLong(), path, buffer);
+        }
+    }
+
+    /**
+     * Appends a record to the segment.
+     *
+     * @param record the record, its length, checksum and body
+     * @return true if the record has been appended, false if the segment has no room for it
+     */
+    boolean append(ByteBuffer record) {
+        if (buffer.remaining() < record.remaining()) {
+            return false;
+        }
+        buffer.put(record);
+        return true;
+    }
+
+    /**
+     * Reads the body of the next record.
+     *
+     * @return the body of the record as a view of the segment, or null at the end of the records
+     * or at a torn or corrupted record
+     */
+    ByteBuffer nextRecord() {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length <= 0 || length > buffer.remaining() - RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int checksum = buffer.getInt(buffer.position() + 4);
+        ByteBuffer body = buffer.duplicate();
+        body.position(buffer.position() + RECORD_HEADER_SIZE).limit(buffer.position() + RECORD_HEADER_SIZE + length);
+        if (JournalEncoder.checksum(body) != checksum) {
+            return null;
+        }
+        buffer.position(body.limit());
+        return body;
+    }
+
+    /**
+     * Writes the changes of the mapped content to the storage.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Returns the position after the last record.
+     *
+     * @return the position after the last record
+     */
+    int position() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns the number of the segment.
+     *
+     * @return the number of the segment
+     */
+    long getNumber() {
+        return number;
+    }
+
+    /**
+     * Returns the generation of the journal which has written the segment.
+     *
+     * @return the generation of the journal
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the path of the file of the segment.
+     *
+     * @return the path of the file
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the name of the file of a segment, which sorts the segments by their numbers.
+     *
+     * @param number the number of the segment
+     * @return the name of the file
+     */
+    static String fileName(long number) {
+        return String.format("%s%012d%s", PREFIX, number, SUFFIX);
+    }
+
+    /**
+     * Checks if a file is a segment of the journal.
+     *
+     * @param path the path of the file
+     * @return true if the name of the file is the name of a segment, false otherwise
+     */
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX) &&
+                name.substring(PREFIX.length(), name.length() - SUFFIX.length()).matches("\\d+");
+    }
+
+    /**
+     * Returns the number of a segment from the name of its file.
+     *
+     * @param path the path of the file of the segment
+     * @return the number of the segment
+     */
+    static long number(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,376 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class writes the events of the games to the segments of the journal.
+ * The game threads encode their records in their own buffers and only copy them into the mapped segment under a lock,
+ * so a record is in the page cache of the system, and survives a crash of the server, once it has been appended.
+ * The segments are forced to the storage by a background thread once per sync interval, so the records appended
+ * in the meantime share one sync (group commit) and a game never waits for the storage.
+ * With a zero sync interval every record is forced before its append returns.
+ * The sync thread also creates the next segment ahead, so a full segment is only replaced by the ready one
+ * under the lock and forced afterwards by the sync thread, and the segments holding only ended games are deleted.
+ */
+public class JournalWriter implements Runnable {
+    private final Path directory;
+    private final long generation;
+    private final int segmentSize;
+    private final long syncInterval;
+    private final LongAdder records = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+
+    // guarded by this
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+    private final Map<Integer, Long> gameSegments = new HashMap<>();
+    private JournalSegment current;
+    private JournalSegment next;
+    private final List<JournalSegment> fullSegments = new ArrayList<>();
+    private long nextNumber;
+    private boolean closed;
+
+    // accessed only by the sync thread
+    private JournalSegment syncedSegment;
+    private int syncedPosition;
+    private boolean preparingFailed;
+
+    /**
+     * Constructs a new journal writer, creates its first segment and starts its sync thread.
+     *
+     * @param directory the directory of the journal
+     * @param firstSegment the number of the first segment, which is also the generation of the journal
+     * @param segmentSize the size of a segment in bytes
+     * @param syncInterval the interval of forcing the segments to the storage in milliseconds,
+     *                     or 0 to force every record
+     * @throws IOException if the first segment cannot be created
+     */
+    public JournalWriter(Path directory, long firstSegment, int segmentSize, long syncInterval) throws IOException {
+        this.directory = directory;
+        this.generation = firstSegment;
+        this.segmentSize = Math.max(segmentSize, JournalSegment.HEADER_SIZE + JournalEncoder.CAPACITY);
+        this.syncInterval = syncInterval;
+        Files.createDirectories(directory);
+        current = JournalSegment.create(directory, firstSegment, generation, this.segmentSize);
+        segments.add(current);
+        nextNumber = firstSegment + 1;
+        if (syncInterval > 0) {
+            Thread thread = new Thread(this, "journal-sync");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Records the creation of a game.
+     *
+     * @param gameId the number of the game
+     * @param gameCode the code of the game, or null for an online game
+     * @param playerCount the number of players of the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
+     * @param creationTime the creation time of the game
+     */
+    public void gameCreated(int gameId, String gameCode, int playerCount, int viewsLimit, long creationTime) {
+        append(gameId, JournalEncoder.begin(EventType.GAME_CREATED, gameId)
+                .putString(gameCode).putInt(playerCount).putInt(viewsLimit).putLong(creationTime).finish());
+    }
+
+    /**
+     * Records a player joining a game.
+     *
+     * @param gameId the number of the game
+     * @param playerName the name of the player
+     */
+    public void playerJoined(int gameId, String playerName) {
+        append(gameId, JournalEncoder.begin(EventType.PLAYER_JOINED, gameId).putString(playerName).finish());
+    }
+
+    /**
+     * Records the start of a round.
+     *
+     * @param gameId the number of the game
+     * @param roundNumber the number of the round
+     * @param questionIndex the index of the question of the round in the question repository
+     */
+    public void roundStarted(int gameId, int roundNumber, int questionIndex) {
+        append(gameId, JournalEncoder.begin(EventType.ROUND_STARTED, gameId).putInt(roundNumber).putInt(questionIndex).finish());
+    }
+
+    /**
+     * Records an answer of a player.
+     *
+     * @param gameId the number of the game
+     * @param playerName the name of the player
+     * @param answerID the ID of the answer, negative if the player has passed or disconnected
+     * @param answerIndex the index of the chosen option
+     */
+    public void answered(int gameId, String playerName, int answerID, int answerIndex) {
+        append(gameId, JournalEncoder.begin(EventType.ANSWERED, gameId)
+                .putString(playerName).putInt(answerID).putInt(answerIndex).finish());
+    }
+
+    /**
+     * Records the evaluation of a round.
+     *
+     * @param gameId the number of the game
+     * @param roundNumber the number of the round
+     * @param scores the game scores of the remaining players by their names, in the order of the players
+     */
+    public void roundEvaluated(int gameId, int roundNumber, Map<String, Integer> scores) {
+        JournalEncoder encoder = JournalEncoder.begin(EventType.ROUND_EVALUATED, gameId).putInt(roundNumber).putInt(scores.size());
+        scores.forEach((name, score) -> encoder.putString(name).putInt(score));
+        append(gameId, encoder.finish());
+    }
+
+    /**
+     * Records the end of a game.
+     *
+     * @param gameId the number of the game
+     */
+    public void gameEnded(int gameId) {
+        append(gameId, JournalEncoder.begin(EventType.GAME_ENDED, gameId).finish());
+    }
+
+    /**
+     * Appends a record to the current segment, starting a new segment if it is full.
+     * The records are dropped once the journal has failed or has been closed.
+     *
+     * @param gameId the number of the game of the record
+     * @param record the encoded record
+     */
+    private synchronized void append(int gameId, ByteBuffer record) {
+        if (current == null || closed) {
+            return;
+        }
+        EventType type = EventType.fromCode(record.get(JournalSegment.RECORD_HEADER_SIZE));
+        if (!current.append(record) && (!rotate() || !current.append(record))) {
+            return;
+        }
+        if (type == EventType.GAME_CREATED) {
+            gameSegments.put(gameId, current.getNumber());
+        }
+        else if (type == EventType.GAME_ENDED) {
+            gameSegments.remove(gameId);
+        }
+        records.increment();
+        if (syncInterval == 0) {
+            current.force();
+            syncs.increment();
+        }
+    }
+
+    /**
+     * Replaces the full segment by the next one and deletes the segments which hold no game in progress.
+     * The full segment is forced by the sync thread, or immediately with a zero sync interval.
+     * The next segment is created here only if the sync thread has not created it yet.
+     * The journal stops writing if the new segment cannot be created.
+     *
+     * @return true if a new segment has been started, false otherwise
+     */
+    private boolean rotate() {
+        if (syncInterval == 0) {
+            current.force();
+        }
+        else {
+            fullSegments.add(current);
+        }
+        if (next != null) {
+            current = next;
+            next = null;
+        }
+        else {
+            try {
+                current = JournalSegment.create(directory, nextNumber++, generation, segmentSize);
+            }
+            catch (IOException e) {
+                Log.error(LogCategory.SYSTEM, "journal.failed").exception(e).publish();
+                current = null;
+                return false;
+            }
+        }
+        segments.add(current);
+        long oldestNeeded = current.getNumber();
+        for (long segment : gameSegments.values()) {
+            oldestNeeded = Math.min(oldestNeeded, segment);
+        }
+        while (segments.peekFirst().getNumber() < oldestNeeded) {
+            delete(segments.pollFirst().getPath());
+        }
+        return true;
+    }
+
+    /**
+     * Runs the sync thread, forcing the current segment once per sync interval if it has changed.
+     */
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(syncInterval);
+            }
+            catch (InterruptedException e) {
+                // the journal syncs as long as the server runs
+            }
+            if (!sync()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forces the full segments and the current segment to the storage if records have been appended since the last sync,
+     * and creates the next segment if it is missing. The appends continue while the segments are being forced.
+     *
+     * @return true if the journal is open, false if it has been closed or has failed
+     */
+    private boolean sync() {
+        JournalSegment segment;
+        int position;
+        List<JournalSegment> full;
+        long number = 0;
+        synchronized (this) {
+            if (current == null || closed) {
+                return false;
+            }
+            segment = current;
+            position = current.position();
+            full = new ArrayList<>(fullSegments);
+            fullSegments.clear();
+            if (next == null && !preparingFailed) {
+                number = nextNumber++;
+            }
+        }
+        for (JournalSegment fullSegment : full) {
+            fullSegment.force();
+            syncs.increment();
+        }
+        if (number != 0) {
+            prepareNext(number);
+        }
+        if (segment != syncedSegment || position != syncedPosition) {
+            segment.force();
+            syncs.increment();
+            syncedSegment = segment;
+            syncedPosition = position;
+        }
+        return true;
+    }
+
+    /**
+     * Creates the next segment ahead of its use, with its header already forced.
+     * The segment is discarded if the journal has been closed or a later segment has been created meanwhile.
+     * If the segment cannot be created, the sync thread stops creating the segments ahead.
+     *
+     * @param number the reserved number of the segment
+     */
+    private void prepareNext(long number) {
+        JournalSegment prepared;
+        try {
+            prepared = JournalSegment.create(directory, number, generation, segmentSize);
+            prepared.force();
+        }
+        catch (IOException e) {
+            // the segments are created on the rotations from now on, which stop the journal if they fail too
+            Log.warn(LogCategory.SYSTEM, "journal.prepare.failed").exception(e).publish();
+            preparingFailed = true;
+            return;
+        }
+        synchronized (this) {
+            if (current != null && !closed && next == null && number > current.getNumber()) {
+                next = prepared;
+                return;
+            }
+        }
+        delete(prepared.getPath());
+    }
+
+    /**
+     * Forces the current segment to the storage immediately.
+     */
+    synchronized void force() {
+        if (current != null && !closed) {
+            current.force();
+            syncs.increment();
+        }
+    }
+
+    /**
+     * Forces the current segment and the full segments not forced yet, deletes the unused next segment and stops writing.
+     */
+    public synchronized void close() {
+        if (current != null && !closed) {
+            fullSegments.forEach(JournalSegment::force);
+            current.force();
+        }
+        fullSegments.clear();
+        if (next != null) {
+            delete(next.getPath());
+            next = null;
+        }
+        closed = true;
+    }
+
+    /**
+     * Deletes the files of the segments, used when the journal is no longer needed.
+     */
+    public synchronized void deleteSegments() {
+        close();
+        while (!segments.isEmpty()) {
+            delete(segments.pollFirst().getPath());
+        }
+    }
+
+    /**
+     * Deletes a segment file.
+     *
+     * @param path the path of the file
+     */
+    static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e) {
+            Log.warn(LogCategory.SYSTEM, "journal.delete.failed").field("file", path).exception(e).publish();
+        }
+    }
+
+    /**
+     * Returns the number of appended records.
+     *
+     * @return the number of appended records
+     */
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Returns the number of syncs to the storage.
+     *
+     * @return the number of syncs
+     */
+    public long getSyncs() {
+        return syncs.sum();
+    }
+
+    /**
+     * Returns the number of segment files of the journal.
+     *
+     * @return the number of segment files
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package cz.cuni.mff.desitka.server.journal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the state of a game which was in progress when the server stopped,
+ * rebuilt by replaying its events from the journal.
+ */
+public class RecoveredGame {
+    private final String gameCode;
+    private final int playerCount;
+    private final int viewsLimit;
+    private final List<String> joinedPlayers = new ArrayList<>();
+    private final Map<String, Integer> scores = new LinkedHashMap<>();
+    private int evaluatedRounds;
+    private int startedRounds;
+    private int questionIndex = -1;
+
+    /**
+     * Constructs a new recovered game from its creation event.
+     *
+     * @param gameCode the code of the game, or null for an online game
+     * @param playerCount the number of players of the game
+     * @param viewsLimit the views limit of the questions of the game, or 0 if the difficulty ramps up
+     */
+    RecoveredGame(String gameCode, int playerCount, int viewsLimit) {
+        this.gameCode = gameCode;
+        this.playerCount = playerCount;
+        this.viewsLimit = viewsLimit;
+    }
+
+    /**
+     * Replays a player joining the game.
+     *
+     * @param playerName the name of the player
+     */
+    void playerJoined(String playerName) {
+        joinedPlayers.add(playerName);
+    }
+
+    /**
+     * Replays the start of a round.
+     *
+     * @param roundNumber the number of the round
+     * @param questionIndex the index of the question of the round
+     */
+    void roundStarted(int roundNumber, int questionIndex) {
+        startedRounds = roundNumber;
+        this.questionIndex = questionIndex;
+    }
+
+    /**
+     * Replays the evaluation of a round.
+     *
+     * @param roundNumber the number of the round
+     * @param scores the game scores of the remaining players by their names
+     */
+    void roundEvaluated(int roundNumber, Map<String, Integer> scores) {
+        evaluatedRounds = roundNumber;
+        startedRounds = Math.max(startedRounds, roundNumber);
+        this.scores.clear();
+        this.scores.putAll(scores);
+    }
+
+    /**
+     * Returns the code of the game.
+     *
+     * @return the code of the game, or null for an online game, which cannot be joined again
+     */
+    public String getGameCode() {
+        return gameCode;
+    }
+
+    /**
+     * Checks if the game has started its first round.
+     *
+     * @return true if the game has started, false if it was waiting for players
+     */
+    public boolean isStarted() {
+        return startedRounds > 0;
+    }
+
+    /**
+     * Returns the number of players the game waits for, all its players while it was waiting for them,
+     * and the players who remained in the game once it has started.
+     *
+     * @return the number of players of the game
+     */
+    public int getPlayerCount() {
+        return isStarted() ? getScores().size() : playerCount;
+    }
+
+    /**
+     * Returns the views limit of the tier of the questions of the game.
+     *
+     * @return the views limit, or 0 if the difficulty ramps up with the rounds
+     */
+    public int getViewsLimit() {
+        return viewsLimit;
+    }
+
+    /**
+     * Returns the game scores of the players who remained in the game, those who joined it
+     * with no score if no round has been evaluated.
+     *
+     * @return the game scores by the names of the players, in the order of the players
+     */
+    public Map<String, Integer> getScores() {
+        if (evaluatedRounds > 0) {
+            return Collections.unmodifiableMap(scores);
+        }
+        Map<String, Integer> joinedScores = new LinkedHashMap<>();
+        joinedPlayers.forEach(name -> joinedScores.put(name, 0));
+        return joinedScores;
+    }
+
+    /**
+     * Returns the number of the evaluated rounds.
+     *
+     * @return the number of the evaluated rounds
+     */
+    public int getEvaluatedRounds() {
+        return evaluatedRounds;
+    }
+
+    /**
+     * Returns the question of the round interrupted by the stop of the server.
+     *
+     * @return the index of the question of the interrupted round, or -1 if no round was in progress
+     */
+    public int getInterruptedQuestion() {
+        return startedRounds > evaluatedRounds ? questionIndex : -1;
+    }
+}
\ No newline at end of file
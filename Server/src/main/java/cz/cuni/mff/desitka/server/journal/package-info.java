@@ -0,0 +1,4 @@
+/**
+ * This package contains the append-only journal of the game events and the recovery of the games from it after a restart.
+ */
+package cz.cuni.mff.desitka.server.journal;
\ No newline at end of file
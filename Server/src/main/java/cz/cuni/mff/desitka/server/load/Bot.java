@@ -0,0 +1,278 @@
+package cz.cuni.mff.desitka.server.load;
+
+import cz.cuni.mff.desitka.JSON.GsonParser;
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.JSON.client.MyAnswer;
+import cz.cuni.mff.desitka.JSON.client.MyJoining;
+import cz.cuni.mff.desitka.JSON.client.MyJoiningRequests;
+import cz.cuni.mff.desitka.JSON.server.Answer;
+import cz.cuni.mff.desitka.JSON.server.Evaluation;
+import cz.cuni.mff.desitka.JSON.server.Joining;
+import cz.cuni.mff.desitka.JSON.server.JoiningResults;
+import cz.cuni.mff.desitka.JSON.server.Start;
+import cz.cuni.mff.desitka.JSON.server.helper.Turn;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class represents a simulated player. It plays games one after another until the load test ends,
+ * reconnecting after each game and after each intentional disconnection.
+ */
+public class Bot implements Runnable, MyJoiningRequests, JoiningResults {
+    /**
+     * The time a read may block, longer than the waiting time of a game and the time of an answer.
+     */
+    private final static int READ_TIMEOUT = 90_000;
+
+    /**
+     * The time a member of a party waits for its leader to create a game before checking the end of the test.
+     */
+    private final static long PARTY_POLL_TIME = 1_000;
+
+    /**
+     * The time a player waits before reconnecting after a failed connection.
+     */
+    private final static long RECONNECT_DELAY = 1_000;
+
+    private final String name;
+    private final LoadGenerator generator;
+    private final LoadStatistics statistics;
+    private final FriendParty party;
+    private final boolean leader;
+    private volatile BotConnection connection;
+    private String lastGameCode;
+
+    // the state of the current game
+    private Question question;
+    private final boolean[] answered = new boolean[10];
+    private boolean matched;
+    private long joiningSentAt;
+    private long answerSentAt;
+    private int answerID;
+
+    /**
+     * Constructs a new simulated player.
+     *
+     * @param name the name of the player
+     * @param generator the load generator running the player
+     * @param party the party of the player, or null if the player plays online games
+     * @param leader true if the player creates the games of its party, false otherwise
+     */
+    public Bot(String name, LoadGenerator generator, FriendParty party, boolean leader) {
+        this.name = name;
+        this.generator = generator;
+        this.statistics = generator.getStatistics();
+        this.party = party;
+        this.leader = leader;
+    }
+
+    /**
+     * Plays games until the load test ends.
+     */
+    @Override
+    public void run() {
+        try {
+            while (generator.isRunning()) {
+                MyJoining joining = createJoining();
+                if (joining != null) {
+                    playGame(joining);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            // the load test has ended
+        }
+        finally {
+            generator.botFinished();
+        }
+    }
+
+    /**
+     * Closes the connection of the player at the end of the load test.
+     */
+    public void stop() {
+        BotConnection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Creates the joining request of the next game.
+     *
+     * @return the joining request, or null if the leader of the party has not created a new game yet
+     * @throws InterruptedException if the thread is interrupted while waiting for the leader
+     */
+    private MyJoining createJoining() throws InterruptedException {
+        if (party == null) {
+            int onlineSize = generator.getSettings().getOnlineSize();
+            if (onlineSize == 0) {
+                onlineSize = ThreadLocalRandom.current().nextInt(2, 6);
+            }
+            return new MyJoining(RequestType.JOIN_ONLINE_GAME, name, null, onlineSize);
+        }
+        if (leader) {
+            return new MyJoining(RequestType.CREATE_FRIEND_GAME, name, null, party.getSize());
+        }
+        String gameCode = party.awaitGame(lastGameCode, PARTY_POLL_TIME);
+        if (gameCode == null) {
+            return null;
+        }
+        lastGameCode = gameCode;
+        return new MyJoining(RequestType.JOIN_FRIEND_GAME, name, gameCode, 0);
+    }
+
+    /**
+     * Connects to the server and plays a game.
+     *
+     * @param joining the joining request of the game
+     * @throws InterruptedException if the thread is interrupted while thinking
+     */
+    private void playGame(MyJoining joining) throws InterruptedException {
+        LoadSettings settings = generator.getSettings();
+        matched = false;
+        answerSentAt = 0;
+        try (BotConnection current = new BotConnection(settings.getHost(), settings.getPort(), settings.isFramed(), READ_TIMEOUT)) {
+            connection = current;
+            statistics.connections.increment();
+            joiningSentAt = System.nanoTime();
+            send(current, GsonParser.toJson(joining));
+            String message;
+            while ((message = current.receive()) != null && processMessage(current, message)) {
+                // the game continues
+            }
+        }
+        catch (IOException e) {
+            if (generator.isRunning()) {
+                statistics.connectionErrors.increment();
+                Thread.sleep(RECONNECT_DELAY);
+            }
+        }
+        finally {
+            connection = null;
+        }
+    }
+
+    /**
+     * Processes a message received from the server.
+     *
+     * @param current the connection of the player
+     * @param message the received message
+     * @return true if the game continues, false if the player leaves the game
+     * @throws IOException if an I/O error occurs
+     * @throws InterruptedException if the thread is interrupted while thinking
+     */
+    private boolean processMessage(BotConnection current, String message) throws IOException, InterruptedException {
+        long receivedAt = System.nanoTime();
+        statistics.messagesReceived.increment();
+        // the type of a message is given by its first field
+        if (message.startsWith("{\"joiningResult\"")) {
+            return processJoining(GsonParser.fromJson(message, Joining.class));
+        }
+        if (message.startsWith("{\"roundNumber\"")) {
+            Start start = GsonParser.fromJson(message, Start.class);
+            if (!matched) {
+                matched = true;
+                statistics.matchmaking.record(receivedAt - joiningSentAt);
+            }
+            question = generator.getQuestion(start.getQuestion());
+            Arrays.fill(answered, false);
+            return answerOnTurn(current, start.getTurn());
+        }
+        if (message.startsWith("{\"answerID\"")) {
+            Answer answer = GsonParser.fromJson(message, Answer.class);
+            if (answer.getAnswerID() >= 0) {
+                answered[answer.getAnswerID()] = true;
+            }
+            if (answerSentAt != 0 && answer.getAnswerID() == answerID && name.equals(answer.getPlayerName())) {
+                statistics.broadcast.record(receivedAt - answerSentAt);
+                answerSentAt = 0;
+            }
+            return answerOnTurn(current, answer.getTurn());
+        }
+        if (message.startsWith("{\"solvedQuestion\"")) {
+            if (GsonParser.fromJson(message, Evaluation.class).isGameOver()) {
+                statistics.gamesFinished.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes the result of the joining request.
+     *
+     * @param joining the result of the joining request
+     * @return true if the player has joined the game, false otherwise
+     */
+    private boolean processJoining(Joining joining) {
+        if (joining.getJoiningResult() != JoiningResult.JOINED) {
+            statistics.rejectedJoinings.increment();
+            return false;
+        }
+        if (leader) {
+            party.publish(joining.getGameCode());
+        }
+        return true;
+    }
+
+    /**
+     * Answers after thinking if the player is on move.
+     *
+     * @param current the connection of the player
+     * @param turn the turn of the received message
+     * @return true if the game continues, false if the player has decided to disconnect
+     * @throws IOException if an I/O error occurs
+     * @throws InterruptedException if the thread is interrupted while thinking
+     */
+    private boolean answerOnTurn(BotConnection current, Turn turn) throws IOException, InterruptedException {
+        if (!turn.isMyTurn()) {
+            return true;
+        }
+        LoadSettings settings = generator.getSettings();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Thread.sleep(random.nextLong(2 * settings.getThinkTime() + 1));
+        if (random.nextDouble() < settings.getDisconnectRate()) {
+            statistics.disconnects.increment();
+            return false;
+        }
+
+        answerID = chooseSubQuestion(random);
+        int correctIndex = question != null ? question.getSubQuestions()[answerID].getCorrectIndex() : random.nextInt(4);
+        int answerIndex = random.nextDouble() < settings.getAccuracy() ? correctIndex : (correctIndex + 1 + random.nextInt(3)) % 4;
+        answerSentAt = System.nanoTime();
+        send(current, GsonParser.toJson(new MyAnswer(answerID, answerIndex)));
+        return true;
+    }
+
+    /**
+     * Chooses a random sub-question which has not been answered in the round.
+     *
+     * @param random the random generator of the thread
+     * @return the ID of the sub-question
+     */
+    private int chooseSubQuestion(ThreadLocalRandom random) {
+        int start = random.nextInt(answered.length);
+        for (int i = 0; i < answered.length; i++) {
+            int candidate = (start + i) % answered.length;
+            if (!answered[candidate]) {
+                return candidate;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Sends a message to the server.
+     *
+     * @param current the connection of the player
+     * @param message the message to be sent
+     * @throws IOException if an I/O error occurs
+     */
+    private void send(BotConnection current, String message) throws IOException {
+        current.send(message);
+        statistics.messagesSent.increment();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package cz.cuni.mff.desitka.server.load;
+
+import cz.cuni.mff.desitka.server.communication.Framing;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class represents the connection of a simulated player to the server.
+ * It speaks the same protocol as the real client, in lines or in frames described in {@link Framing}.
+ */
+public class BotConnection implements AutoCloseable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final boolean framed;
+    private boolean confirmed;
+
+    /**
+     * Connects to the server.
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     * @param framed true to use frames, false to use lines
+     * @param readTimeout the time a read may block in milliseconds
+     * @throws IOException if the connection cannot be established
+     */
+    public BotConnection(String host, int port, boolean framed, int readTimeout) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(readTimeout);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = socket.getOutputStream();
+        this.framed = framed;
+        if (framed) {
+            out.write(Framing.MAGIC);
+        }
+    }
+
+    /**
+     * Sends a message to the server.
+     *
+     * @param message the message to be sent
+     * @throws IOException if an I/O error occurs
+     */
+    public void send(String message) throws IOException {
+        out.write(Framing.encode(message, framed));
+    }
+
+    /**
+     * Receives a message from the server, blocking until it arrives.
+     *
+     * @return the received message, or null if the server has closed the connection
+     * @throws IOException if an I/O error occurs or the read times out
+     */
+    public String receive() throws IOException {
+        return framed ? receiveFrame() : receiveLine();
+    }
+
+    /**
+     * Receives a message sent as a frame, checking the confirmation of the framed format before the first frame.
+     *
+     * @return the received message, or null if the server has closed the connection
+     * @throws IOException if an I/O error occurs or the server does not confirm frames
+     */
+    private String receiveFrame() throws IOException {
+        if (!confirmed) {
+            byte[] magic = new byte[Framing.MAGIC.length];
+            if (in.read(magic, 0, 1) < 0) {
+                return null;
+            }
+            in.readFully(magic, 1, magic.length - 1);
+            if (!Arrays.equals(magic, Framing.MAGIC)) {
+                throw new IOException("Framed format not confirmed");
+            }
+            confirmed = true;
+        }
+        int length = in.read();
+        if (length < 0) {
+            return null;
+        }
+        byte[] header = {(byte) length, 0, 0, 0};
+        in.readFully(header, 1, Framing.HEADER_BYTES - 1);
+        length = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16) | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Receives a message sent as a line.
+     *
+     * @return the received message without its line terminator, or null if the server has closed the connection
+     * @throws IOException if an I/O error occurs
+     */
+    private String receiveLine() throws IOException {
+        byte[] line = new byte[256];
+        int length = 0;
+        int next;
+        while ((next = in.read()) != '\n') {
+            if (next < 0) {
+                return null;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[length++] = (byte) next;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the connection.
+     */
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // the connection is being abandoned
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package cz.cuni.mff.desitka.server.load;
+
+/**
+ * This class represents a group of simulated players playing friend games together.
+ * Its leader creates the games and publishes their codes, the other members join the latest published game.
+ */
+public class FriendParty {
+    private final int size;
+    private String gameCode;
+
+    /**
+     * Constructs a new party.
+     *
+     * @param size the number of players of the party, which is the player count of its games
+     */
+    public FriendParty(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of players of the party.
+     *
+     * @return the number of players of the party
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Publishes the code of a newly created game to the members.
+     *
+     * @param gameCode the code of the game
+     */
+    public synchronized void publish(String gameCode) {
+        this.gameCode = gameCode;
+        notifyAll();
+    }
+
+    /**
+     * Waits for a game other than the last game joined by a member.
+     *
+     * @param lastGameCode the code of the last game joined by the member, or null
+     * @param timeout the maximum waiting time in milliseconds
+     * @return the code of the game, or null if no new game has been published in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized String awaitGame(String lastGameCode, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining;
+        while (isJoined(lastGameCode) && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+        return isJoined(lastGameCode) ? null : gameCode;
+    }
+
+    /**
+     * Checks if the latest published game has already been joined by a member.
+     *
+     * @param lastGameCode the code of the last game joined by the member, or null
+     * @return true if there is no game the member has not joined yet, false otherwise
+     */
+    private boolean isJoined(String lastGameCode) {
+        return gameCode == null || gameCode.equals(lastGameCode);
+    }
+}
\ No newline at end of file
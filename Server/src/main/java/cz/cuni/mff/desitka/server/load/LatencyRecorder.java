@@ -0,0 +1,49 @@
+package cz.cuni.mff.desitka.server.load;
+
+import java.util.Arrays;
+
+/**
+ * This class collects latencies measured by the simulated players and computes their percentiles.
+ * All samples are kept, so the percentiles are exact.
+ */
+public class LatencyRecorder {
+    private long[] samples = new long[1024];
+    private int count;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in milliseconds, or NaN if nothing has been recorded
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package cz.cuni.mff.desitka.server.load;
+
+import cz.cuni.mff.desitka.JSON.Question;
+import cz.cuni.mff.desitka.server.communication.VirtualThreads;
+import cz.cuni.mff.desitka.server.metrics.MetricsServer;
+import cz.cuni.mff.desitka.server.questions.QuestionRepository;
+import cz.cuni.mff.desitka.server.questions.QuestionTiers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class generates load on a running server by simulated players connected over TCP.
+ * The players speak the real protocol, think before answering, answer correctly with a given probability,
+ * sometimes disconnect in the middle of a game and play online or friend games.
+ * At the end it reports the matchmaking latency, the message rate, the latency of the broadcast answers
+ * and the CPU usage of the server, read from its metrics endpoint.
+ * Run it from the directory containing the questions, so the players know the correct answers.
+ * The settings are described in {@link LoadSettings}.
+ */
+public class LoadGenerator {
+    /**
+     * The interval of the progress reports in milliseconds.
+     */
+    private final static long PROGRESS_INTERVAL = 5_000;
+
+    /**
+     * The time the players have for closing their connections at the end of the test in milliseconds.
+     */
+    private final static long STOP_TIME = 5_000;
+
+    private final LoadSettings settings = new LoadSettings();
+    private final LoadStatistics statistics = new LoadStatistics();
+    private final Map<String, Question> questions = new HashMap<>();
+    private final List<Bot> bots = new ArrayList<>();
+    private final CountDownLatch finishedBots;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new load generator.
+     *
+     * @param questionDirectory the directory containing the questions of the server
+     */
+    private LoadGenerator(String questionDirectory) {
+        QuestionRepository repository = QuestionRepository.load(questionDirectory);
+        for (int i = 0; i < repository.size(); i++) {
+            Question question = repository.getQuestion(i);
+            questions.put(QuestionTiers.identity(question), question);
+        }
+        finishedBots = new CountDownLatch(settings.getBots());
+    }
+
+    /**
+     * The main method of the load generator.
+     *
+     * @param args the command line arguments, optionally the directory containing the questions
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        new LoadGenerator(args.length > 0 ? args[0] : "questions").run();
+    }
+
+    /**
+     * Runs the load test and prints its report.
+     *
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    private void run() throws InterruptedException {
+        System.out.println(settings);
+        createBots();
+        double startCpu = readServerCpuTime();
+        long start = System.nanoTime();
+
+        long startInterval = settings.getRampUp() / Math.max(1, bots.size());
+        for (Bot bot : bots) {
+            VirtualThreads.start(bot);
+            if (startInterval > 0) {
+                Thread.sleep(startInterval);
+            }
+        }
+        printProgress(start);
+
+        running = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double endCpu = readServerCpuTime();
+        bots.forEach(Bot::stop);
+        finishedBots.await(STOP_TIME, TimeUnit.MILLISECONDS);
+        printReport(elapsed, endCpu - startCpu);
+    }
+
+    /**
+     * Creates the players, the share of them given by the settings in friend parties and the others playing online.
+     */
+    private void createBots() {
+        int friendSize = settings.getFriendSize();
+        int parties = (int) Math.round(settings.getBots() * settings.getFriendShare() / friendSize);
+        parties = Math.min(parties, settings.getBots() / friendSize);
+        int index = 0;
+        for (int i = 0; i < parties; i++) {
+            FriendParty party = new FriendParty(friendSize);
+            for (int j = 0; j < friendSize; j++) {
+                bots.add(new Bot("bot" + index++, this, party, j == 0));
+            }
+        }
+        while (index < settings.getBots()) {
+            bots.add(new Bot("bot" + index++, this, null, false));
+        }
+    }
+
+    /**
+     * Prints the progress of the test until its end.
+     *
+     * @param start the start of the test as given by {@link System#nanoTime()}
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    private void printProgress(long start) throws InterruptedException {
+        long end = start + TimeUnit.MILLISECONDS.toNanos(settings.getDuration());
+        long lastMessages = 0;
+        long lastTime = start;
+        long remaining;
+        while ((remaining = end - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL)));
+            long now = System.nanoTime();
+            long messages = statistics.messagesSent.sum() + statistics.messagesReceived.sum();
+            System.out.printf("%5.0f s  connections %7d  games %6d  messages/s %9.0f  errors %d%n",
+                    (now - start) / 1e9, statistics.connections.sum(), statistics.gamesFinished.sum(),
+                    (messages - lastMessages) / ((now - lastTime) / 1e9), statistics.connectionErrors.sum());
+            lastMessages = messages;
+            lastTime = now;
+        }
+    }
+
+    /**
+     * Prints the report of the test.
+     *
+     * @param elapsed the duration of the test in seconds
+     * @param serverCpu the CPU time used by the server during the test in seconds, NaN if unknown
+     */
+    private void printReport(double elapsed, double serverCpu) {
+        long sent = statistics.messagesSent.sum();
+        long received = statistics.messagesReceived.sum();
+        System.out.println();
+        System.out.printf("connections           %d (%d errors, %d rejected joinings, %d disconnects)%n",
+                statistics.connections.sum(), statistics.connectionErrors.sum(),
+                statistics.rejectedJoinings.sum(), statistics.disconnects.sum());
+        System.out.printf("finished games        %d (counted once per player)%n", statistics.gamesFinished.sum());
+        System.out.printf("messages/s            %.0f sent, %.0f received%n", sent / elapsed, received / elapsed);
+        printLatency("matchmaking", statistics.matchmaking);
+        printLatency("answer broadcast", statistics.broadcast);
+        if (Double.isNaN(serverCpu)) {
+            System.out.println("server CPU            unknown, the metrics endpoint is not reachable");
+        }
+        else {
+            System.out.printf("server CPU            %.2f s, %.1f %% of one core%n", serverCpu, 100 * serverCpu / elapsed);
+        }
+    }
+
+    /**
+     * Prints the percentiles of a latency.
+     *
+     * @param name the name of the latency
+     * @param latency the recorded latency
+     */
+    private static void printLatency(String name, LatencyRecorder latency) {
+        System.out.printf("%-21s p50 %.2f ms, p99 %.2f ms, max %.2f ms (%d samples)%n", name,
+                latency.getPercentile(50), latency.getPercentile(99), latency.getPercentile(100), latency.getCount());
+    }
+
+    /**
+     * Reads the CPU time used by the server process from its metrics endpoint.
+     *
+     * @return the CPU time in seconds, or NaN if the endpoint is not reachable
+     */
+    private double readServerCpuTime() {
+        try {
+            URL url = new URL("http", settings.getHost(), settings.getMetricsPort(), MetricsServer.PATH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(1_000);
+            connection.setReadTimeout(5_000);
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("process_cpu_seconds_total ")) {
+                        return Double.parseDouble(line.substring(line.indexOf(' ') + 1));
+                    }
+                }
+            }
+        }
+        catch (IOException | NumberFormatException e) {
+            // the server runs without the metrics endpoint
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the settings of the test.
+     *
+     * @return the settings of the test
+     */
+    LoadSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the statistics of the test.
+     *
+     * @return the statistics of the test
+     */
+    LoadStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the question sent by the server with its correct answers.
+     * The question is looked up by its text and the keys of its sub-questions, because many questions share their text.
+     *
+     * @param question the question without the correct answers
+     * @return the question, or null if the server uses a question unknown to the generator
+     */
+    Question getQuestion(Question question) {
+        return questions.get(QuestionTiers.identity(question));
+    }
+
+    /**
+     * Checks if the test is running.
+     *
+     * @return true if the test is running, false if it has ended
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Records that a player has stopped playing.
+     */
+    void botFinished() {
+        finishedBots.countDown();
+    }
+}
\ No newline at end of file
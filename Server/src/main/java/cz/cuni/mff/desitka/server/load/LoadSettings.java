@@ -0,0 +1,164 @@
+package cz.cuni.mff.desitka.server.load;
+
+/**
+ * This class represents the settings of a load test, read from the {@code desitka.load.*} system properties.
+ */
+public class LoadSettings {
+    private final static String PREFIX = "desitka.load.";
+
+    private final String host = System.getProperty(PREFIX + "host", "localhost");
+    private final int port = Integer.getInteger(PREFIX + "port", 4444);
+    private final int metricsPort = Integer.getInteger(PREFIX + "metricsPort", 9404);
+    private final int bots = Integer.getInteger(PREFIX + "bots", 1000);
+    private final long duration = Long.getLong(PREFIX + "duration", 60) * 1000;
+    private final long rampUp = Long.getLong(PREFIX + "rampUp", 10) * 1000;
+    private final long thinkTime = Long.getLong(PREFIX + "thinkTime", 500);
+    private final double accuracy = getDouble("accuracy", 0.8);
+    private final double disconnectRate = getDouble("disconnectRate", 0.01);
+    private final double friendShare = getDouble("friendShare", 0.25);
+    private final int onlineSize = Integer.getInteger(PREFIX + "onlineSize", 2);
+    private final int friendSize = Math.max(2, Math.min(5, Integer.getInteger(PREFIX + "friendSize", 3)));
+    private final boolean framed = Boolean.getBoolean(PREFIX + "framed");
+
+    /**
+     * Reads a decimal system property.
+     *
+     * @param name the name of the property without the prefix
+     * @param defaultValue the value used if the property is not set
+     * @return the value of the property
+     */
+    private static double getDouble(String name, double defaultValue) {
+        String value = System.getProperty(PREFIX + name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * Returns the host of the server.
+     *
+     * @return the host of the server
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the port of the server.
+     *
+     * @return the port of the server
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the port of the metrics endpoint of the server, used for measuring its CPU usage.
+     *
+     * @return the port of the metrics endpoint
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * Returns the number of simulated players.
+     *
+     * @return the number of simulated players
+     */
+    public int getBots() {
+        return bots;
+    }
+
+    /**
+     * Returns the duration of the test.
+     *
+     * @return the duration of the test in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the time over which the players are started.
+     *
+     * @return the ramp-up time in milliseconds
+     */
+    public long getRampUp() {
+        return rampUp;
+    }
+
+    /**
+     * Returns the mean time a player thinks before answering.
+     *
+     * @return the mean think time in milliseconds
+     */
+    public long getThinkTime() {
+        return thinkTime;
+    }
+
+    /**
+     * Returns the probability of a correct answer.
+     *
+     * @return the probability of a correct answer
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Returns the probability of a player disconnecting instead of answering.
+     *
+     * @return the probability of a disconnection per answer
+     */
+    public double getDisconnectRate() {
+        return disconnectRate;
+    }
+
+    /**
+     * Returns the share of the players playing friend games, the others play online games.
+     *
+     * @return the share of the players playing friend games
+     */
+    public double getFriendShare() {
+        return friendShare;
+    }
+
+    /**
+     * Returns the number of players an online player asks for.
+     *
+     * @return the number of players of an online game, or 0 for a random number between 2 and 5 for each game
+     */
+    public int getOnlineSize() {
+        return onlineSize;
+    }
+
+    /**
+     * Returns the number of players of a friend game.
+     *
+     * @return the number of players of a friend game
+     */
+    public int getFriendSize() {
+        return friendSize;
+    }
+
+    /**
+     * Checks if the players use the framed format of the messages.
+     *
+     * @return true if the players use frames, false if they use lines
+     */
+    public boolean isFramed() {
+        return framed;
+    }
+
+    /**
+     * Returns the description of the settings for the report.
+     *
+     * @return the description of the settings
+     */
+    @Override
+    public String toString() {
+        return String.format("%d bots against %s:%d for %d s (ramp-up %d s), think time %d ms, accuracy %.2f, " +
+                        "disconnect rate %.3f, online games of %s, friend share %.2f in parties of %d, %s",
+                bots, host, port, duration / 1000, rampUp / 1000, thinkTime, accuracy,
+                disconnectRate, onlineSize == 0 ? "2-5" : String.valueOf(onlineSize), friendShare, friendSize, framed ? "frames" : "lines");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package cz.cuni.mff.desitka.server.load;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the statistics collected by all simulated players of a load test.
+ * The counters are updated by the threads of the players without contention.
+ */
+public class LoadStatistics {
+    /**
+     * The number of opened connections.
+     */
+    final LongAdder connections = new LongAdder();
+
+    /**
+     * The number of connections which failed or timed out unexpectedly.
+     */
+    final LongAdder connectionErrors = new LongAdder();
+
+    /**
+     * The number of joining requests refused by the server.
+     */
+    final LongAdder rejectedJoinings = new LongAdder();
+
+    /**
+     * The number of messages sent to the server.
+     */
+    final LongAdder messagesSent = new LongAdder();
+
+    /**
+     * The number of messages received from the server.
+     */
+    final LongAdder messagesReceived = new LongAdder();
+
+    /**
+     * The number of games played until their end, counted once per player.
+     */
+    final LongAdder gamesFinished = new LongAdder();
+
+    /**
+     * The number of intentional disconnections in the middle of a game.
+     */
+    final LongAdder disconnects = new LongAdder();
+
+    /**
+     * The time from sending the joining request to receiving the start of the game.
+     */
+    final LatencyRecorder matchmaking = new LatencyRecorder();
+
+    /**
+     * The time from sending an answer to receiving its broadcast result.
+     */
+    final LatencyRecorder broadcast = new LatencyRecorder();
+}
\ No newline at end of file
@@ -0,0 +1,4 @@
+/**
+ * This package contains the load generator, which plays the game against a running server with simulated players.
+ */
+package cz.cuni.mff.desitka.server.load;
\ No newline at end of file
@@ -0,0 +1,209 @@
+package cz.cuni.mff.desitka.server.logging;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is the entry point of the logging of the server.
+ * The threads of the server only build their events and put them into a bounded ring buffer,
+ * a background thread formats the events and writes them to the standard output.
+ * A thread never blocks on logging, the events are dropped and counted when the buffer is full.
+ */
+public class Log {
+    /**
+     * The system property enabling the logging of the message bodies.
+     */
+    public final static String BODIES_PROPERTY = "desitka.log.bodies";
+
+    /**
+     * The system property setting the number of events the ring buffer can hold.
+     */
+    public final static String BUFFER_SIZE_PROPERTY = "desitka.log.bufferSize";
+
+    private final static boolean logBodies = Boolean.getBoolean(BODIES_PROPERTY);
+    private final static int capacity = Integer.highestOneBit(Math.max(2, Integer.getInteger(BUFFER_SIZE_PROPERTY, 8192)));
+    private final static AtomicReferenceArray<LogEvent> buffer = new AtomicReferenceArray<>(capacity);
+    private final static AtomicLong tail = new AtomicLong();
+    private final static LongAdder droppedEvents = new LongAdder();
+    private static volatile long head;
+    private static volatile Thread writerThread;
+    private static volatile boolean writerParked;
+
+    // used only by the thread draining the buffer
+    private final static Writer out = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 64 * 1024);
+    private final static StringBuilder line = new StringBuilder(256);
+
+    /**
+     * Starts an event of a specified category and level.
+     * An event of a disabled level or an event not chosen by the sampling of the category is {@link LogEvent#DISABLED}.
+     *
+     * @param category the category of the event
+     * @param level the level of the event
+     * @param name the name of the event
+     * @return the event to be filled and published
+     */
+    public static LogEvent event(LogCategory category, LogLevel level, String name) {
+        if (!category.isEnabled(level)) {
+            return LogEvent.DISABLED;
+        }
+        int sampleRate = category.getSampleRate();
+        if (sampleRate > 1 && level.compareTo(LogLevel.WARN) < 0 &&
+                ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return LogEvent.DISABLED;
+        }
+        return new LogEvent(category, level, name);
+    }
+
+    /**
+     * Starts an info event of a specified category.
+     *
+     * @param category the category of the event
+     * @param name the name of the event
+     * @return the event to be filled and published
+     */
+    public static LogEvent info(LogCategory category, String name) {
+        return event(category, LogLevel.INFO, name);
+    }
+
+    /**
+     * Starts a warning event of a specified category.
+     *
+     * @param category the category of the event
+     * @param name the name of the event
+     * @return the event to be filled and published
+     */
+    public static LogEvent warn(LogCategory category, String name) {
+        return event(category, LogLevel.WARN, name);
+    }
+
+    /**
+     * Starts an error event of a specified category.
+     *
+     * @param category the category of the event
+     * @param name the name of the event
+     * @return the event to be filled and published
+     */
+    public static LogEvent error(LogCategory category, String name) {
+        return event(category, LogLevel.ERROR, name);
+    }
+
+    /**
+     * Checks if the bodies of the messages are logged.
+     *
+     * @return true if the bodies are logged, false otherwise
+     */
+    public static boolean isBodyLogged() {
+        return logBodies;
+    }
+
+    /**
+     * Returns the number of events dropped because the ring buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public static long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Puts an event into the ring buffer, dropping it if the buffer is full.
+     *
+     * @param event the event to be written
+     */
+    static void publish(LogEvent event) {
+        startWriter();
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= capacity) {
+                droppedEvents.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        buffer.lazySet((int) (sequence & (capacity - 1)), event);
+        if (writerParked) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Starts the writer thread on the first published event.
+     */
+    private static void startWriter() {
+        if (writerThread != null) {
+            return;
+        }
+        synchronized (Log.class) {
+            if (writerThread == null) {
+                Thread thread = new Thread(Log::writeEvents, "log-writer");
+                thread.setDaemon(true);
+                thread.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(Log::drain, "log-drain"));
+                writerThread = thread;
+            }
+        }
+    }
+
+    /**
+     * Runs the writer thread, which writes the events as long as the server runs.
+     * The thread parks once the buffer is empty, so an idle server does not wake it up, and the next published event
+     * unparks it. The flag is set before the buffer is checked again, so an event put into the buffer meanwhile
+     * either is seen by the check or sees the flag.
+     */
+    private static void writeEvents() {
+        while (true) {
+            if (drain()) {
+                continue;
+            }
+            writerParked = true;
+            if (tail.get() == head) {
+                LockSupport.park();
+            }
+            writerParked = false;
+        }
+    }
+
+    /**
+     * Writes all events in the ring buffer and flushes the output.
+     * The writer thread and the shutdown hook never drain concurrently thanks to the synchronization.
+     *
+     * @return true if any event has been written, false if the buffer was empty
+     */
+    private static synchronized boolean drain() {
+        boolean written = false;
+        try {
+            while (true) {
+                int index = (int) (head & (capacity - 1));
+                LogEvent event = buffer.get(index);
+                if (event == null) {
+                    // the buffer is empty or the next event is still being put into it
+                    break;
+                }
+                buffer.lazySet(index, null);
+                head = head + 1;
+                line.setLength(0);
+                event.format(line);
+                out.append(line);
+                written = true;
+            }
+            if (written) {
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            // the standard output is not available, the events are lost
+        }
+        return written;
+    }
+}
\ No newline at end of file
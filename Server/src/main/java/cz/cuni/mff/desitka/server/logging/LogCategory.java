@@ -0,0 +1,59 @@
+package cz.cuni.mff.desitka.server.logging;
+
+/**
+ * This enum represents the source of log events. Every category has its own level and sampling rate,
+ * configured by the system properties {@code desitka.log.level.<name>} and {@code desitka.log.sample.<name>}.
+ * A sampling rate of N logs about one of N events of the category.
+ */
+public enum LogCategory {
+    SYSTEM("system", 1),
+    CONNECTION("connection", 1),
+    GAME("game", 1),
+    MESSAGE_IN("message.in", 100),
+    MESSAGE_OUT("message.out", 100);
+
+    private final String name;
+    private final LogLevel level;
+    private final int sampleRate;
+
+    /**
+     * Constructs a new category, reading its configuration from the system properties.
+     *
+     * @param name the name of the category in the log and in the system properties
+     * @param defaultSampleRate the sampling rate used if no system property sets it
+     */
+    LogCategory(String name, int defaultSampleRate) {
+        this.name = name;
+        LogLevel defaultLevel = LogLevel.parse(System.getProperty("desitka.log.level"), LogLevel.INFO);
+        this.level = LogLevel.parse(System.getProperty("desitka.log.level." + name), defaultLevel);
+        this.sampleRate = Math.max(1, Integer.getInteger("desitka.log.sample." + name, defaultSampleRate));
+    }
+
+    /**
+     * Returns the name of the category.
+     *
+     * @return the name of the category
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks if events of a specified level are logged in this category.
+     *
+     * @param eventLevel the level of the event
+     * @return true if the events are logged, false otherwise
+     */
+    public boolean isEnabled(LogLevel eventLevel) {
+        return eventLevel != LogLevel.OFF && eventLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Returns the sampling rate of the category.
+     *
+     * @return the sampling rate, 1 if every event is logged
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+}
\ No newline at end of file
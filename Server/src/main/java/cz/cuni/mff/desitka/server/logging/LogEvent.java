@@ -0,0 +1,255 @@
+package cz.cuni.mff.desitka.server.logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a structured log event. It is built on the thread producing it
+ * and formatted as a line of {@code key=value} fields by the writer thread of {@link Log}.
+ * Events which are not logged are represented by {@link #DISABLED}, which ignores all fields.
+ */
+public class LogEvent {
+    /**
+     * The event returned for disabled or not sampled events. Setting its fields and publishing it does nothing.
+     */
+    public final static LogEvent DISABLED = new LogEvent(null, null, null);
+
+    private final long time = System.currentTimeMillis();
+    private final LogCategory category;
+    private final LogLevel level;
+    private final String name;
+    private String connection;
+    private String game;
+    private String player;
+    private String type;
+    private long size = -1;
+    private long latencyMicros = -1;
+    private String body;
+    private Throwable throwable;
+    private List<Object> fields;
+
+    /**
+     * Constructs a new log event.
+     *
+     * @param category the category of the event
+     * @param level the level of the event
+     * @param name the name of the event
+     */
+    LogEvent(LogCategory category, LogLevel level, String name) {
+        this.category = category;
+        this.level = level;
+        this.name = name;
+    }
+
+    /**
+     * Checks if the event is logged. Callers can skip computing expensive fields of a disabled event.
+     *
+     * @return true if the event is logged, false otherwise
+     */
+    public boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * Sets the connection of the event.
+     *
+     * @param connection the connection, described by its {@code toString}
+     * @return this event
+     */
+    public LogEvent connection(Object connection) {
+        if (isEnabled()) {
+            this.connection = String.valueOf(connection);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the game of the event.
+     *
+     * @param game the game, described by its {@code toString}
+     * @return this event
+     */
+    public LogEvent game(Object game) {
+        if (isEnabled() && game != null) {
+            this.game = game.toString();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the player of the event.
+     *
+     * @param player the name of the player
+     * @return this event
+     */
+    public LogEvent player(String player) {
+        if (isEnabled()) {
+            this.player = player;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the message type of the event.
+     *
+     * @param type the message type
+     * @return this event
+     */
+    public LogEvent type(String type) {
+        if (isEnabled()) {
+            this.type = type;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the size of the message of the event.
+     *
+     * @param size the size in bytes
+     * @return this event
+     */
+    public LogEvent size(long size) {
+        if (isEnabled()) {
+            this.size = size;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the size of the message of the event to the size of its UTF-8 encoding, and its body.
+     *
+     * @param message the message
+     * @return this event
+     * @see #body(String)
+     */
+    public LogEvent message(String message) {
+        if (isEnabled()) {
+            this.size = message.getBytes(StandardCharsets.UTF_8).length;
+            body(message);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the latency of the event.
+     *
+     * @param nanos the latency in nanoseconds
+     * @return this event
+     */
+    public LogEvent latency(long nanos) {
+        if (isEnabled()) {
+            this.latencyMicros = nanos / 1000;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the body of the message of the event. The body is only logged if enabled by {@link Log#BODIES_PROPERTY}.
+     *
+     * @param body the body of the message
+     * @return this event
+     */
+    public LogEvent body(String body) {
+        if (isEnabled() && Log.isBodyLogged()) {
+            this.body = body;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the exception of the event.
+     *
+     * @param throwable the exception
+     * @return this event
+     */
+    public LogEvent exception(Throwable throwable) {
+        if (isEnabled()) {
+            this.throwable = throwable;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a field of the event.
+     *
+     * @param key the key of the field
+     * @param value the value of the field
+     * @return this event
+     */
+    public LogEvent field(String key, Object value) {
+        if (isEnabled()) {
+            if (fields == null) {
+                fields = new ArrayList<>(4);
+            }
+            fields.add(key);
+            fields.add(value);
+        }
+        return this;
+    }
+
+    /**
+     * Passes the event to the writer thread. The calling thread never blocks,
+     * the event is dropped if the buffer of the writer is full.
+     */
+    public void publish() {
+        if (isEnabled()) {
+            Log.publish(this);
+        }
+    }
+
+    /**
+     * Formats the event as a line of the log.
+     *
+     * @param out the builder to append the line to
+     */
+    void format(StringBuilder out) {
+        out.append(Instant.ofEpochMilli(time)).append(' ').append(level).append(' ')
+                .append(category.getName()).append(' ').append(name);
+        append(out, "game", game);
+        append(out, "player", player);
+        append(out, "type", type);
+        if (size >= 0) {
+            append(out, "size", size);
+        }
+        if (latencyMicros >= 0) {
+            append(out, "latency_us", latencyMicros);
+        }
+        append(out, "conn", connection);
+        if (fields != null) {
+            for (int i = 0; i < fields.size(); i += 2) {
+                append(out, (String) fields.get(i), fields.get(i + 1));
+            }
+        }
+        append(out, "body", body);
+        out.append(System.lineSeparator());
+        if (throwable != null) {
+            StringWriter stackTrace = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(stackTrace));
+            out.append(stackTrace);
+        }
+    }
+
+    /**
+     * Appends a field to a line of the log, quoting the value if it contains spaces or quotes.
+     *
+     * @param out the builder of the line
+     * @param key the key of the field
+     * @param value the value of the field, the field is skipped if it is null
+     */
+    private static void append(StringBuilder out, String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        out.append(' ').append(key).append('=');
+        if (text.isEmpty() || text.indexOf(' ') >= 0 || text.indexOf('"') >= 0 || text.indexOf('=') >= 0) {
+            out.append('"').append(text.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            return;
+        }
+        out.append(text);
+    }
+}
\ No newline at end of file
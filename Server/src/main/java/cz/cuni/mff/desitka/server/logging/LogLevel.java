@@ -0,0 +1,31 @@
+package cz.cuni.mff.desitka.server.logging;
+
+/**
+ * This enum represents the severity of a log event.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Parses a level from its name, ignoring the case.
+     *
+     * @param name the name of the level
+     * @param defaultLevel the level returned if the name is null or unknown
+     * @return the parsed level
+     */
+    public static LogLevel parse(String name, LogLevel defaultLevel) {
+        if (name == null) {
+            return defaultLevel;
+        }
+        try {
+            return valueOf(name.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+}
\ No newline at end of file
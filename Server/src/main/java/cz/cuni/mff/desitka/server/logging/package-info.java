@@ -0,0 +1,4 @@
+/**
+ * This package contains the asynchronous structured logging of the server.
+ */
+package cz.cuni.mff.desitka.server.logging;
\ No newline at end of file
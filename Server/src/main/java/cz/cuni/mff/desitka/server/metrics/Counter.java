@@ -0,0 +1,71 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This class represents a monotonically increasing count. Increments from many threads do not contend.
+ * A count kept by another component is read from its source when the metrics are exposed instead.
+ */
+public class Counter extends Metric {
+    private final LongAdder count = new LongAdder();
+    private final LongSupplier source;
+
+    /**
+     * Constructs a new counter.
+     *
+     * @param name the name of the counter
+     * @param help the description of the counter
+     */
+    public Counter(String name, String help) {
+        this(name, help, null);
+    }
+
+    /**
+     * Constructs a new counter of a count kept by another component, which must never decrease.
+     * The counter must not be incremented.
+     *
+     * @param name the name of the counter
+     * @param help the description of the counter
+     * @param source the source of the count, or null if the counter is incremented
+     */
+    public Counter(String name, String help, LongSupplier source) {
+        super(name, help);
+        this.source = source;
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Increments the counter by a specified amount.
+     *
+     * @param amount the amount to add
+     */
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    /**
+     * Returns the current count.
+     *
+     * @return the current count
+     */
+    public long get() {
+        return source == null ? count.sum() : source.getAsLong();
+    }
+
+    @Override
+    protected String getType() {
+        return "counter";
+    }
+
+    @Override
+    protected void renderSamples(StringBuilder out) {
+        out.append(getName()).append(' ').append(get()).append('\n');
+    }
+}
\ No newline at end of file
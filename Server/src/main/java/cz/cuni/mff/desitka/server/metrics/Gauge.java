@@ -0,0 +1,32 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * This class represents a value which can go up and down, read from its source when the metrics are exposed.
+ */
+public class Gauge extends Metric {
+    private final LongSupplier value;
+
+    /**
+     * Constructs a new gauge.
+     *
+     * @param name the name of the gauge
+     * @param help the description of the gauge
+     * @param value the source of the value of the gauge
+     */
+    public Gauge(String name, String help, LongSupplier value) {
+        super(name, help);
+        this.value = value;
+    }
+
+    @Override
+    protected String getType() {
+        return "gauge";
+    }
+
+    @Override
+    protected void renderSamples(StringBuilder out) {
+        out.append(getName()).append(' ').append(value.getAsLong()).append('\n');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a distribution of durations, counted into buckets with exponentially growing bounds.
+ * Recording a duration only increments two {@link LongAdder}s, so it neither locks nor allocates.
+ */
+public class Histogram extends Metric {
+    private final long[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Constructs a new histogram of durations.
+     *
+     * @param name the name of the histogram, ending with {@code _seconds}
+     * @param help the description of the histogram
+     * @param smallestBound the upper bound of the first bucket in microseconds
+     * @param bucketCount the number of buckets, each bound is double the previous one
+     */
+    public Histogram(String name, String help, long smallestBound, int bucketCount) {
+        super(name, help);
+        bounds = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bounds[i] = TimeUnit.MICROSECONDS.toNanos(smallestBound) << i;
+        }
+        buckets = new LongAdder[bucketCount + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void observe(long nanos) {
+        int bucket = 0;
+        while (bucket < bounds.length && nanos > bounds[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(nanos);
+    }
+
+    /**
+     * Records the duration since a specified time.
+     *
+     * @param startNanos the start of the duration as given by {@link System#nanoTime()}
+     */
+    public void observeSince(long startNanos) {
+        observe(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    protected String getType() {
+        return "histogram";
+    }
+
+    @Override
+    protected void renderSamples(StringBuilder out) {
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(getName()).append("_bucket{le=\"").append(seconds(bounds[i])).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        cumulative += buckets[bounds.length].sum();
+        out.append(getName()).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(getName()).append("_sum ").append(seconds(sum.sum())).append('\n');
+        out.append(getName()).append("_count ").append(cumulative).append('\n');
+    }
+
+    /**
+     * Converts nanoseconds to seconds for the exposition.
+     *
+     * @param nanos the duration in nanoseconds
+     * @return the duration in seconds
+     */
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents a family of counters distinguished by the value of a single label.
+ * A counter is created on the first increment of its label value.
+ */
+public class LabeledCounter extends Metric {
+    private final String label;
+    private final ConcurrentMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new labeled counter.
+     *
+     * @param name the name of the counters
+     * @param help the description of the counters
+     * @param label the name of the label
+     */
+    public LabeledCounter(String name, String help, String label) {
+        super(name, help);
+        this.label = label;
+    }
+
+    /**
+     * Increments the counter of a label value by one.
+     *
+     * @param value the value of the label
+     */
+    public void increment(String value) {
+        LongAdder count = counts.get(value);
+        if (count == null) {
+            count = counts.computeIfAbsent(value, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Returns the count of a label value.
+     *
+     * @param value the value of the label
+     * @return the count of the label value
+     */
+    public long get(String value) {
+        LongAdder count = counts.get(value);
+        return count == null ? 0 : count.sum();
+    }
+
+    @Override
+    protected String getType() {
+        return "counter";
+    }
+
+    @Override
+    protected void renderSamples(StringBuilder out) {
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counts).entrySet()) {
+            out.append(getName()).append('{').append(label).append("=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+    }
+}
\ No newline at end of file
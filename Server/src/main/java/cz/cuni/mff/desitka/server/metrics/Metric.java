@@ -0,0 +1,54 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+/**
+ * This class represents a metric which can be exposed in the Prometheus text format.
+ */
+public abstract class Metric {
+    private final String name;
+    private final String help;
+
+    /**
+     * Constructs a new metric.
+     *
+     * @param name the name of the metric
+     * @param help the description of the metric
+     */
+    protected Metric(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Returns the name of the metric.
+     *
+     * @return the name of the metric
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the Prometheus type of the metric.
+     *
+     * @return the type of the metric
+     */
+    protected abstract String getType();
+
+    /**
+     * Appends the samples of the metric to the exposition.
+     *
+     * @param out the builder of the exposition
+     */
+    protected abstract void renderSamples(StringBuilder out);
+
+    /**
+     * Appends the metric with its description and type to the exposition.
+     *
+     * @param out the builder of the exposition
+     */
+    void render(StringBuilder out) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(getType()).append('\n');
+        renderSamples(out);
+    }
+}
\ No newline at end of file
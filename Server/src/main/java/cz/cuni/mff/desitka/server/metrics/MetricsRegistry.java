@@ -0,0 +1,38 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class holds the metrics exposed by the server.
+ * The metrics are registered once, so reading the list while exposing it costs no locking.
+ */
+public class MetricsRegistry {
+    private final static List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    /**
+     * Registers a metric, replacing a previously registered metric of the same name.
+     *
+     * @param metric the metric to be registered
+     * @param <T> the type of the metric
+     * @return the registered metric
+     */
+    public static <T extends Metric> T register(T metric) {
+        metrics.removeIf(registered -> registered.getName().equals(metric.getName()));
+        metrics.add(metric);
+        return metric;
+    }
+
+    /**
+     * Formats all registered metrics in the Prometheus text format.
+     *
+     * @return the exposition of the metrics
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : metrics) {
+            metric.render(out);
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * This class exposes the registered metrics on {@code http://localhost:<port>/metrics} in the Prometheus text format.
+ * The endpoint is served by a single daemon thread, so scraping it never competes with the games for threads.
+ * Other components may add controls to the same local endpoint, operations triggered by a {@code POST} request.
+ */
+public class MetricsServer {
+    /**
+     * The system property setting the port of the endpoint. A port of 0 or less disables the endpoint.
+     */
+    public final static String PORT_PROPERTY = "desitka.metrics.port";
+
+    /**
+     * The path of the endpoint.
+     */
+    public final static String PATH = "/metrics";
+
+    private final static int DEFAULT_PORT = 9404;
+    private final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private final static String CONTROL_CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private static volatile HttpServer server;
+
+    /**
+     * Starts the endpoint on the port given by {@value #PORT_PROPERTY}.
+     * The server keeps running without the endpoint if the port cannot be bound.
+     */
+    public static void start() {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        if (port <= 0) {
+            return;
+        }
+        ServerMetrics.initialize();
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+            httpServer.createContext(PATH, MetricsServer::handle);
+            httpServer.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "metrics-http");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            httpServer.start();
+            server = httpServer;
+            Log.info(LogCategory.SYSTEM, "metrics.listening").field("port", port).field("path", PATH).publish();
+        }
+        catch (IOException e) {
+            Log.error(LogCategory.SYSTEM, "metrics.failed").field("port", port).exception(e).publish();
+        }
+    }
+
+    /**
+     * Adds a control to the endpoint, an operation run on a {@code POST} request of its path.
+     * The control runs on the thread of the endpoint, so a long operation must hand its work over to another thread,
+     * its result is sent as the plain text response.
+     * The control is not available if the endpoint is disabled or has not been started, which is logged as a warning.
+     *
+     * @param path the path of the control, e.g. {@code /questions/rollback}
+     * @param control the operation, returning the description of its result
+     */
+    public static void addControl(String path, Supplier<String> control) {
+        HttpServer httpServer = server;
+        if (httpServer == null) {
+            Log.warn(LogCategory.SYSTEM, "metrics.control_unavailable").field("path", path)
+                    .field("port", Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT)).publish();
+            return;
+        }
+        httpServer.createContext(path, exchange -> {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = (control.get() + "\n").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTROL_CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            finally {
+                exchange.close();
+            }
+        });
+        Log.info(LogCategory.SYSTEM, "metrics.control").field("path", path).publish();
+    }
+
+    /**
+     * Responds to a request of the endpoint with the exposition of the metrics.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if an I/O error occurs
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = MetricsRegistry.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        finally {
+            exchange.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+package cz.cuni.mff.desitka.server.metrics;
+
+import cz.cuni.mff.desitka.server.communication.OutboundQueue;
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.questions.RecentQuestions;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the metrics recorded by the server.
+ * The metrics describing the state of other components, e.g. the waiting games, are registered by the components.
+ */
+public class ServerMetrics {
+    private final static LongAdder activeConnections = new LongAdder();
+    private final static LongAdder activeSpectators = new LongAdder();
+
+    /**
+     * The number of open connections.
+     */
+    public final static Gauge ACTIVE_CONNECTIONS = MetricsRegistry.register(new Gauge(
+            "desitka_connections_active", "Open client connections.", activeConnections::sum));
+
+    /**
+     * The number of accepted connections.
+     */
+    public final static Counter CONNECTIONS = MetricsRegistry.register(new Counter(
+            "desitka_connections_total", "Accepted client connections."));
+
+    /**
+     * The number of clients watching a running game.
+     */
+    public final static Gauge ACTIVE_SPECTATORS = MetricsRegistry.register(new Gauge(
+            "desitka_spectators_active", "Clients watching a running game.", activeSpectators::sum));
+
+    /**
+     * The number of broadcast messages sent to the spectators, counted once per spectator.
+     */
+    public final static Counter SPECTATOR_MESSAGES = MetricsRegistry.register(new Counter(
+            "desitka_spectator_messages_total", "Messages sent to the spectators of the games."));
+
+    /**
+     * The number of started games.
+     */
+    public final static Counter GAMES = MetricsRegistry.register(new Counter(
+            "desitka_games_started_total", "Started games."));
+
+    /**
+     * The number of started tournaments.
+     */
+    public final static Counter TOURNAMENTS = MetricsRegistry.register(new Counter(
+            "desitka_tournaments_started_total", "Started tournaments."));
+
+    /**
+     * The number of ended games of the tournaments, its rate is the throughput of the running tournaments.
+     */
+    public final static Counter TOURNAMENT_GAMES = MetricsRegistry.register(new Counter(
+            "desitka_tournament_games_total", "Ended games of the tournaments."));
+
+    /**
+     * The time from the start of a round of a tournament bracket to the end of its last game.
+     */
+    public final static Histogram TOURNAMENT_ROUND_DURATION = MetricsRegistry.register(new Histogram(
+            "desitka_tournament_round_seconds", "Time of playing all games of a round of a tournament bracket.", 1_000_000, 12));
+
+    /**
+     * The number of games which have not started within the waiting time and have been removed.
+     */
+    public final static Counter LOBBIES_REAPED = MetricsRegistry.register(new Counter(
+            "desitka_lobbies_reaped_total", "Games removed after waiting for their players for too long."));
+
+    /**
+     * The number of players who have not been matched into an online game within the waiting time.
+     */
+    public final static Counter MATCHMAKING_EXPIRED = MetricsRegistry.register(new Counter(
+            "desitka_matchmaking_expired_total", "Players disconnected after waiting for an online game for too long."));
+
+    /**
+     * The number of started rounds, its rate is the number of rounds per second.
+     */
+    public final static Counter ROUNDS = MetricsRegistry.register(new Counter(
+            "desitka_rounds_total", "Started rounds."));
+
+    /**
+     * The number of questions drawn for a round and put back, because a player of the game might have seen them recently.
+     */
+    public final static Counter QUESTIONS_RECENTLY_SEEN = MetricsRegistry.register(new Counter(
+            "desitka_questions_recently_seen_total", "Drawn questions which a player of the game might have seen recently."));
+
+    /**
+     * The number of questions of the rounds per result of their prefetching: {@code used}, {@code late} if the question
+     * had not been prepared when the round started, or {@code stale} if it had been prepared from a replaced repository.
+     */
+    public final static LabeledCounter QUESTION_PREFETCHES = MetricsRegistry.register(new LabeledCounter(
+            "desitka_question_prefetches_total", "Questions of the rounds by the result of their prefetching.", "result"));
+
+    /**
+     * The number of reloads of the questions per result: {@code loaded}, {@code failed} or {@code rolled_back}.
+     */
+    public final static LabeledCounter QUESTION_RELOADS = MetricsRegistry.register(new LabeledCounter(
+            "desitka_questions_reloads_total", "Reloads of the questions by their result.", "result"));
+
+    /**
+     * The time of reading the reloaded questions into a new repository, until it replaces the current one.
+     */
+    public final static Histogram QUESTION_RELOAD_DURATION = MetricsRegistry.register(new Histogram(
+            "desitka_questions_reload_seconds", "Time of reading the reloaded questions.", 1000, 16));
+
+    /**
+     * The number of received messages per type.
+     */
+    public final static LabeledCounter MESSAGES_IN = MetricsRegistry.register(new LabeledCounter(
+            "desitka_messages_received_total", "Messages received from the clients.", "type"));
+
+    /**
+     * The number of sent messages per type, a broadcast message counts once per recipient.
+     */
+    public final static LabeledCounter MESSAGES_OUT = MetricsRegistry.register(new LabeledCounter(
+            "desitka_messages_sent_total", "Messages sent to the clients.", "type"));
+
+    /**
+     * The time of serializing a message to JSON, once per broadcast or once per message sent to a single player.
+     */
+    public final static Histogram SERIALIZATION = MetricsRegistry.register(new Histogram(
+            "desitka_serialization_seconds", "Time of serializing a message to JSON.", 1, 16));
+
+    /**
+     * The time from the joining request of a player to the start of the game.
+     */
+    public final static Histogram TIME_TO_MATCH = MetricsRegistry.register(new Histogram(
+            "desitka_time_to_match_seconds", "Time from the joining request of a player to the start of the game.", 1000, 18));
+
+    /**
+     * The time from receiving an answer to having broadcast its result to the players.
+     */
+    public final static Histogram ANSWER_TO_BROADCAST = MetricsRegistry.register(new Histogram(
+            "desitka_answer_to_broadcast_seconds", "Time from receiving an answer to having broadcast its result.", 10, 16));
+
+    static {
+        MetricsRegistry.register(new Gauge("desitka_outbound_queued_bytes",
+                "Bytes waiting for being sent to all clients.", OutboundQueue::getTotalQueuedBytes));
+        MetricsRegistry.register(new Gauge("desitka_outbound_queue_max_bytes",
+                "Largest number of bytes which have been waiting for being sent to a single client.", OutboundQueue::getMaxQueuedBytes));
+        MetricsRegistry.register(new Counter("desitka_outbound_queue_overflows_total",
+                "Clients evicted for exceeding the outbound high-water mark.", OutboundQueue::getOverflows));
+        MetricsRegistry.register(new Gauge("desitka_recent_questions_bytes",
+                "Memory of the filters of the questions recently seen by the players.", () -> RecentQuestions.getInstance().getMemory()));
+        MetricsRegistry.register(new Counter("desitka_log_dropped_events_total",
+                "Log events dropped because the log buffer was full.", Log::getDroppedEvents));
+        registerProcessCpuTime();
+    }
+
+    /**
+     * Registers the CPU time of the server process, used e.g. by the load generator to compute the CPU usage.
+     * The metric is missing on JVMs which do not report the CPU time of the process.
+     */
+    private static void registerProcessCpuTime() {
+        OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+        if (!(system instanceof com.sun.management.OperatingSystemMXBean)) {
+            return;
+        }
+        com.sun.management.OperatingSystemMXBean process = (com.sun.management.OperatingSystemMXBean) system;
+        MetricsRegistry.register(new Metric("process_cpu_seconds_total", "CPU time used by the server process.") {
+            @Override
+            protected String getType() {
+                return "counter";
+            }
+
+            @Override
+            protected void renderSamples(StringBuilder out) {
+                out.append(getName()).append(' ').append(process.getProcessCpuTime() / 1e9).append('\n');
+            }
+        });
+    }
+
+    /**
+     * Makes sure the metrics are registered before they are exposed for the first time.
+     */
+    static void initialize() {
+        // loading the class registers its metrics
+    }
+
+    /**
+     * Records an opened connection.
+     */
+    public static void connectionOpened() {
+        CONNECTIONS.increment();
+        activeConnections.increment();
+    }
+
+    /**
+     * Records a closed connection.
+     */
+    public static void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /**
+     * Records a spectator who has started watching a game.
+     */
+    public static void spectatorJoined() {
+        activeSpectators.increment();
+    }
+
+    /**
+     * Records a spectator who has stopped watching a game.
+     */
+    public static void spectatorLeft() {
+        activeSpectators.decrement();
+    }
+}
\ No newline at end of file
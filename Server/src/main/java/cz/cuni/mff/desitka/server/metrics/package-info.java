@@ -0,0 +1,4 @@
+/**
+ * This package contains the metrics of the server and the HTTP endpoint exposing them in the Prometheus text format.
+ */
+package cz.cuni.mff.desitka.server.metrics;
\ No newline at end of file
@@ -0,0 +1,52 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * This class represents the questions not yet asked in a game, so a game repeats a question only once it has used all of them.
+ * The bag is a lazily shuffled permutation of the indexes of the questions: a draw swaps a random remaining index
+ * to the end of the drawn part, so it costs O(1) and the bag takes one int per question of the repository.
+ * A draw prefers a question none of the players has recently seen, see {@link RecentQuestions};
+ * it tries a few random remaining questions and takes the last one tried if the players might have seen all of them.
+ * A bag belongs to one game and is used only on the thread of the game.
+ */
+public class QuestionBag {
+    /**
+     * The maximum number of questions tried by a draw.
+     */
+    private final static int MAX_ATTEMPTS = 8;
+
+    private int[] order;
+    private int drawn;
+
+    /**
+     * Draws a question which has not been drawn from the bag yet, preferably one not seen recently.
+     * The bag is refilled once it is empty or the number of the questions has changed.
+     *
+     * @param questionCount the number of questions in the repository
+     * @param recentlySeen tells if the players might have seen the question at an index recently
+     * @return the index of the drawn question
+     */
+    public int draw(int questionCount, IntPredicate recentlySeen) {
+        if (order == null || order.length != questionCount) {
+            order = new int[questionCount];
+            for (int i = 0; i < questionCount; i++) {
+                order[i] = i;
+            }
+            drawn = 0;
+        }
+        if (drawn == order.length) {
+            drawn = 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = drawn + random.nextInt(order.length - drawn);
+        for (int attempt = 1; attempt < MAX_ATTEMPTS && recentlySeen.test(order[pick]); attempt++) {
+            pick = drawn + random.nextInt(order.length - drawn);
+        }
+        int question = order[pick];
+        order[pick] = order[drawn];
+        order[drawn++] = question;
+        return question;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,263 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class represents a question pack, all questions in one binary file which is memory-mapped instead of parsed.
+ * The questions are decoded only when a game chooses them, so loading a pack costs no parsing and the questions
+ * take no heap until they are used. The file consists of:
+ * <ul>
+ *     <li>the header of {@value #HEADER_BYTES} bytes: the {@link #MAGIC} bytes, the {@link #VERSION}, the numbers
+ *     of the questions, the sub-questions and the strings, the offsets of the last four parts,
+ *     the number of the tiers and the offset of their table,</li>
+ *     <li>the tiers, see {@link QuestionTiers}, a record of {@value #TIER_RECORD_BYTES} bytes per tier in ascending order:
+ *     its views limit and its first question,</li>
+ *     <li>the index of the questions, a record of {@value #QUESTION_RECORD_BYTES} bytes per question: the string
+ *     of its text, its first sub-question and the number of its sub-questions,</li>
+ *     <li>the sub-questions, a record of {@value #SUB_QUESTION_RECORD_BYTES} bytes per sub-question: the string of its key,
+ *     the strings of its {@value #VALUES} values and its correct index,</li>
+ *     <li>the offsets of the strings, one more than the strings, the last one is the end of the last string,</li>
+ *     <li>the UTF-8 encoded strings, each distinct string stored once.</li>
+ * </ul>
+ * The numbers are 4 byte big-endian integers, a string is referenced by its number in the table, or -1 if it is null.
+ * A pack is written by {@link QuestionPackWriter} and is read-only, so it is shared by all games without a lock.
+ * The header of a pack of the version 1 ends before the number of the tiers and the pack has no tiers,
+ * its questions are read as a single tier.
+ */
+public class QuestionPack {
+    /**
+     * The bytes at the start of a question pack.
+     */
+    public final static byte[] MAGIC = {'D', 'S', 'K', 'Q'};
+
+    /**
+     * The version of the format of the question pack.
+     */
+    public final static int VERSION = 2;
+
+    /**
+     * The number of bytes of the header.
+     */
+    public final static int HEADER_BYTES = 44;
+
+    /**
+     * The number of bytes of the header of a pack of the version 1, which has no tiers.
+     */
+    private final static int VERSION_1_HEADER_BYTES = 36;
+
+    /**
+     * The number of bytes of the record of a tier.
+     */
+    public final static int TIER_RECORD_BYTES = 8;
+
+    /**
+     * The number of bytes of the record of a question.
+     */
+    public final static int QUESTION_RECORD_BYTES = 12;
+
+    /**
+     * The number of values of a sub-question stored in its record.
+     */
+    public final static int VALUES = 4;
+
+    /**
+     * The number of bytes of the record of a sub-question.
+     */
+    public final static int SUB_QUESTION_RECORD_BYTES = 4 * (VALUES + 2);
+
+    private final ByteBuffer buffer;
+    private final int questionCount;
+    private final int subQuestionCount;
+    private final int stringCount;
+    private final int questionsOffset;
+    private final int subQuestionsOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+    private final QuestionTiers tiers;
+
+    /**
+     * Constructs a new question pack over its bytes and validates its header.
+     *
+     * @param buffer the bytes of the pack, usually a memory-mapped file, which must not be modified
+     * @throws IllegalArgumentException if the bytes are not a valid question pack
+     */
+    public QuestionPack(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < VERSION_1_HEADER_BYTES) {
+            throw new IllegalArgumentException("Question pack too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IllegalArgumentException("Not a question pack");
+            }
+        }
+        int version = buffer.getInt(4);
+        if (version != 1 && version != VERSION || version == VERSION && buffer.capacity() < HEADER_BYTES) {
+            throw new IllegalArgumentException("Unsupported question pack version " + version);
+        }
+        questionCount = buffer.getInt(8);
+        subQuestionCount = buffer.getInt(12);
+        stringCount = buffer.getInt(16);
+        questionsOffset = buffer.getInt(20);
+        subQuestionsOffset = buffer.getInt(24);
+        stringOffsetsOffset = buffer.getInt(28);
+        stringDataOffset = buffer.getInt(32);
+        if (questionCount < 0 || subQuestionCount < 0 || stringCount < 0
+                || questionsOffset + (long) questionCount * QUESTION_RECORD_BYTES > subQuestionsOffset
+                || subQuestionsOffset + (long) subQuestionCount * SUB_QUESTION_RECORD_BYTES > stringOffsetsOffset
+                || stringOffsetsOffset + 4L * (stringCount + 1) > stringDataOffset
+                || stringDataOffset + (long) buffer.getInt(stringOffsetsOffset + 4 * stringCount) > buffer.capacity()) {
+            throw new IllegalArgumentException("Corrupted question pack");
+        }
+        tiers = questionCount == 0 ? null : version == 1 ? QuestionTiers.single(questionCount) : readTiers();
+    }
+
+    /**
+     * Returns the number of questions in the pack.
+     *
+     * @return the number of questions
+     */
+    public int size() {
+        return questionCount;
+    }
+
+    /**
+     * Returns the tiers of the questions of the pack.
+     *
+     * @return the tiers, or null if the pack has no questions
+     */
+    public QuestionTiers getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Returns the number of distinct strings in the pack.
+     *
+     * @return the number of strings
+     */
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * Returns the number of bytes of the pack.
+     *
+     * @return the size of the pack in bytes
+     */
+    public long getByteSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Decodes a question. Every call decodes a new question, which may be modified by the caller.
+     *
+     * @param index the index of the question, between 0 and {@link #size()} - 1
+     * @return the decoded question
+     */
+    public Question getQuestion(int index) {
+        int record = questionRecord(index);
+        int first = buffer.getInt(record + 4);
+        Question.SubQuestion[] subQuestions = new Question.SubQuestion[buffer.getInt(record + 8)];
+        for (int i = 0; i < subQuestions.length; i++) {
+            int subRecord = subQuestionsOffset + (first + i) * SUB_QUESTION_RECORD_BYTES;
+            int valueCount = 0;
+            while (valueCount < VALUES && buffer.getInt(subRecord + 4 * (valueCount + 1)) >= 0) {
+                valueCount++;
+            }
+            String[] values = new String[valueCount];
+            for (int j = 0; j < valueCount; j++) {
+                values[j] = getString(buffer.getInt(subRecord + 4 * (j + 1)));
+            }
+            subQuestions[i] = new Question.SubQuestion(getString(buffer.getInt(subRecord)), values,
+                    buffer.getInt(subRecord + 4 * (VALUES + 1)));
+        }
+        return new Question(getString(buffer.getInt(record)), subQuestions);
+    }
+
+    /**
+     * Returns the text of a question without decoding its sub-questions.
+     *
+     * @param index the index of the question
+     * @return the text of the question
+     */
+    public String getText(int index) {
+        return getString(buffer.getInt(questionRecord(index)));
+    }
+
+    /**
+     * Returns the key of the first sub-question of a question without decoding the other strings of the question.
+     *
+     * @param index the index of the question
+     * @return the key of the first sub-question, or null if the question has no sub-questions
+     */
+    public String getFirstKey(int index) {
+        int record = questionRecord(index);
+        if (buffer.getInt(record + 8) == 0) {
+            return null;
+        }
+        return getString(buffer.getInt(subQuestionsOffset + buffer.getInt(record + 4) * SUB_QUESTION_RECORD_BYTES));
+    }
+
+    /**
+     * Decodes a string of the string table.
+     *
+     * @param string the number of the string, or -1 for null
+     * @return the decoded string
+     */
+    public String getString(int string) {
+        if (string < 0) {
+            return null;
+        }
+        int start = buffer.getInt(stringOffsetsOffset + 4 * string);
+        int end = buffer.getInt(stringOffsetsOffset + 4 * (string + 1));
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(stringDataOffset + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the table of the tiers.
+     *
+     * @return the tiers of the questions
+     * @throws IllegalArgumentException if the table is not valid
+     */
+    private QuestionTiers readTiers() {
+        int tierCount = buffer.getInt(36);
+        int tiersOffset = buffer.getInt(40);
+        if (tierCount <= 0 || tiersOffset < HEADER_BYTES || tiersOffset + (long) tierCount * TIER_RECORD_BYTES > questionsOffset) {
+            throw new IllegalArgumentException("Corrupted question pack");
+        }
+        int[] viewsLimits = new int[tierCount];
+        int[] starts = new int[tierCount + 1];
+        for (int tier = 0; tier < tierCount; tier++) {
+            viewsLimits[tier] = buffer.getInt(tiersOffset + tier * TIER_RECORD_BYTES);
+            starts[tier] = buffer.getInt(tiersOffset + tier * TIER_RECORD_BYTES + 4);
+        }
+        starts[tierCount] = questionCount;
+        try {
+            return new QuestionTiers(viewsLimits, starts);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Corrupted question pack", e);
+        }
+    }
+
+    /**
+     * Returns the offset of the record of a question.
+     *
+     * @param index the index of the question
+     * @return the offset of the record
+     * @throws IndexOutOfBoundsException if there is no question at the index
+     */
+    private int questionRecord(int index) {
+        if (index < 0 || index >= questionCount) {
+            throw new IndexOutOfBoundsException("Question " + index + " of " + questionCount);
+        }
+        return questionsOffset + index * QUESTION_RECORD_BYTES;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * This class writes the questions into a question pack, see {@link QuestionPack} for the format.
+ * Its main method converts the JSON files of the questions, e.g.
+ * {@code java -cp ... cz.cuni.mff.desitka.server.questions.QuestionPackWriter questions.pack questions}.
+ * The questions of the directories of the views limits, see {@link QuestionParser#getTieredQuestions(String)},
+ * are written into their tiers without the duplicates.
+ */
+public class QuestionPackWriter {
+    private final List<Question> questions = new ArrayList<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final List<Integer> viewsLimits = new ArrayList<>();
+    private final List<Integer> tierStarts = new ArrayList<>();
+    private int subQuestionCount;
+    private long stringBytes;
+
+    /**
+     * The main method of the converter, writing the questions of the JSON directories into one question pack.
+     *
+     * @param args the command line arguments, the file of the pack followed by the directories of the JSON files
+     * @throws IOException if an I/O error occurs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: QuestionPackWriter <pack file> <question directory>...");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        SortedMap<Integer, List<Question>> tieredQuestions = new TreeMap<>();
+        for (int i = 1; i < args.length; i++) {
+            QuestionParser.getTieredQuestions(args[i]).forEach((viewsLimit, questions) ->
+                    tieredQuestions.computeIfAbsent(viewsLimit, limit -> new ArrayList<>()).addAll(questions));
+        }
+        QuestionPackWriter writer = new QuestionPackWriter();
+        QuestionTiers tiers = writer.addTiers(tieredQuestions);
+        Path pack = Paths.get(args[0]);
+        writer.write(pack);
+        System.out.printf("%d questions in tiers %s, %d sub-questions, %d distinct strings, %d bytes written to %s in %d ms%n",
+                writer.questions.size(), tiers, writer.subQuestionCount, writer.strings.size(), Files.size(pack), pack,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Adds the questions of several views limits to the pack, ordered by their tiers and without the duplicates,
+     * see {@link QuestionTiers#order(SortedMap, List)}.
+     *
+     * @param tieredQuestions the questions by their views limits
+     * @return the tiers of the added questions
+     * @throws IllegalArgumentException if there are no questions, or a sub-question has too many values
+     */
+    public QuestionTiers addTiers(SortedMap<Integer, List<Question>> tieredQuestions) {
+        List<Question> ordered = new ArrayList<>();
+        QuestionTiers tiers = QuestionTiers.order(tieredQuestions, ordered);
+        for (int tier = 0; tier < tiers.count(); tier++) {
+            int start = tiers.getStart(tier);
+            addTier(tiers.getViewsLimit(tier), ordered.subList(start, start + tiers.size(tier)));
+        }
+        return tiers;
+    }
+
+    /**
+     * Adds questions of a views limit to the pack. The tiers must be added in ascending order of their views limits,
+     * the questions of the views limit of the last added tier extend it.
+     *
+     * @param viewsLimit the views limit of the questions
+     * @param questions the questions to be added
+     * @throws IllegalArgumentException if the views limit is lower than the one of the last added tier,
+     * or a sub-question has more than {@value QuestionPack#VALUES} values
+     */
+    public void addTier(int viewsLimit, List<Question> questions) {
+        int last = viewsLimits.isEmpty() ? Integer.MIN_VALUE : viewsLimits.get(viewsLimits.size() - 1);
+        if (viewsLimit < last) {
+            throw new IllegalArgumentException("Tiers must be added in ascending order of their views limits");
+        }
+        if (viewsLimit > last && !questions.isEmpty()) {
+            viewsLimits.add(viewsLimit);
+            tierStarts.add(this.questions.size());
+        }
+        for (Question question : questions) {
+            for (Question.SubQuestion subQuestion : question.getSubQuestions()) {
+                if (subQuestion.getValues().length > QuestionPack.VALUES) {
+                    throw new IllegalArgumentException("Too many values in a sub-question of " + question.getText());
+                }
+                stringIndex(subQuestion.getKey());
+                for (String value : subQuestion.getValues()) {
+                    stringIndex(value);
+                }
+            }
+            stringIndex(question.getText());
+            subQuestionCount += question.getSubQuestions().length;
+            this.questions.add(question);
+        }
+    }
+
+    /**
+     * Adds questions to the last added tier of the pack, or to the tier of the views limit 0 if there is none.
+     *
+     * @param questions the questions to be added
+     * @throws IllegalArgumentException if a sub-question has more than {@value QuestionPack#VALUES} values
+     */
+    public void addAll(List<Question> questions) {
+        addTier(viewsLimits.isEmpty() ? 0 : viewsLimits.get(viewsLimits.size() - 1), questions);
+    }
+
+    /**
+     * Writes the added questions into a question pack. The pack is written into a temporary file first
+     * and then moved over the file, so a server never maps a partially written pack.
+     *
+     * @param file the file of the pack
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Path file) throws IOException {
+        int tiersOffset = QuestionPack.HEADER_BYTES;
+        int questionsOffset = tiersOffset + viewsLimits.size() * QuestionPack.TIER_RECORD_BYTES;
+        long subQuestionsOffset = questionsOffset + (long) questions.size() * QuestionPack.QUESTION_RECORD_BYTES;
+        long stringOffsetsOffset = subQuestionsOffset + (long) subQuestionCount * QuestionPack.SUB_QUESTION_RECORD_BYTES;
+        long stringDataOffset = stringOffsetsOffset + 4L * (strings.size() + 1);
+        if (stringDataOffset + stringBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many questions for a question pack");
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.write(QuestionPack.MAGIC);
+            output.writeInt(QuestionPack.VERSION);
+            output.writeInt(questions.size());
+            output.writeInt(subQuestionCount);
+            output.writeInt(strings.size());
+            output.writeInt(questionsOffset);
+            output.writeInt((int) subQuestionsOffset);
+            output.writeInt((int) stringOffsetsOffset);
+            output.writeInt((int) stringDataOffset);
+            output.writeInt(viewsLimits.size());
+            output.writeInt(tiersOffset);
+
+            for (int tier = 0; tier < viewsLimits.size(); tier++) {
+                output.writeInt(viewsLimits.get(tier));
+                output.writeInt(tierStarts.get(tier));
+            }
+
+            int firstSubQuestion = 0;
+            for (Question question : questions) {
+                output.writeInt(stringIndex(question.getText()));
+                output.writeInt(firstSubQuestion);
+                output.writeInt(question.getSubQuestions().length);
+                firstSubQuestion += question.getSubQuestions().length;
+            }
+            for (Question question : questions) {
+                for (Question.SubQuestion subQuestion : question.getSubQuestions()) {
+                    output.writeInt(stringIndex(subQuestion.getKey()));
+                    String[] values = subQuestion.getValues();
+                    for (int i = 0; i < QuestionPack.VALUES; i++) {
+                        output.writeInt(i < values.length ? stringIndex(values[i]) : -1);
+                    }
+                    output.writeInt(subQuestion.getCorrectIndex());
+                }
+            }
+            int offset = 0;
+            for (byte[] string : strings) {
+                output.writeInt(offset);
+                offset += string.length;
+            }
+            output.writeInt(offset);
+            for (byte[] string : strings) {
+                output.write(string);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the number of a string in the string table, adding the string if it is not there yet.
+     *
+     * @param string the string, or null
+     * @return the number of the string, or -1 for null
+     */
+    private int stringIndex(String string) {
+        if (string == null) {
+            return -1;
+        }
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            index = strings.size();
+            strings.add(bytes);
+            stringBytes += bytes.length;
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+}
\ No newline at end of file
@@ -3,49 +3,134 @@ package cz.cuni.mff.desitka.server.questions;
 import com.google.gson.Gson;
 import cz.cuni.mff.desitka.JSON.Question;
 
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
- * A utility class for parsing question files in JSON format.
+ * A utility class for parsing question files in JSON format and for mapping question packs.
  */
 public class QuestionParser {
+    private static final Gson gson = new Gson();
+    private static final Pattern TIER_DIRECTORY = Pattern.compile("questions_(\\d+)");
 
     /**
-     * Returns a list of questions parsed from JSON files in a specified directory.
+     * Returns a list of questions parsed from JSON files in a specified directory and its subdirectories.
+     * The files are parsed in parallel, the order of the returned questions follows the file names.
+     * Files without the {@code .json} extension are skipped.
      *
      * @param dir the directory containing the JSON files
      * @return a list of questions parsed from the JSON files
      * @throws RuntimeException if an I/O error occurs
      */
     public static List<Question> getQuestions(String dir) {
-        List<Question> questions = new ArrayList<>();
-        try {
-            Files.walkFileTree(Paths.get(dir), new SimpleFileVisitor<Path>() {
-                /**
-                 * Invoked for a file in a directory.
-                 *
-                 * @param file the file
-                 * @param attrs the file's attributes
-                 * @return the visit result
-                 * @throws IOException if an I/O error occurs
-                 */
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Reader reader = new FileReader(file.toFile());
-                    questions.add(new Gson().fromJson(reader, Question.class));
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+        try (Stream<Path> files = Files.walk(Paths.get(dir))) {
+            List<Path> questionFiles = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            return questionFiles.parallelStream()
+                    .map(QuestionParser::parseQuestion)
+                    .collect(Collectors.toList());
+        }
+        catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the questions parsed from JSON files in a specified directory and its subdirectories by their views limits.
+     * The generator writes the questions of a views limit into a directory named {@code questions_<views limit>},
+     * a file belongs to the tier of its nearest such directory, including the specified one,
+     * or to the tier of the views limit 0 if there is none. The files are parsed in parallel.
+     *
+     * @param dir the directory containing the JSON files
+     * @return the parsed questions by their views limits, each list ordered by the file names
+     * @throws RuntimeException if an I/O error occurs
+     */
+    public static SortedMap<Integer, List<Question>> getTieredQuestions(String dir) {
+        Path root = Paths.get(dir).toAbsolutePath().normalize();
+        try (Stream<Path> files = Files.walk(root)) {
+            List<Path> questionFiles = files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(".json"))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            return questionFiles.parallelStream()
+                    .collect(Collectors.groupingBy(file -> viewsLimit(root, file), TreeMap::new,
+                            Collectors.mapping(QuestionParser::parseQuestion, Collectors.toList())));
+        }
+        catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Maps a question pack into memory. The questions are not parsed, they are decoded from the mapped file
+     * when they are used, so the pack takes almost no heap and its pages are shared with the page cache.
+     * The mapping stays valid after the file is closed, the file must not be modified while it is mapped.
+     *
+     * @param file the file of the question pack, written by {@link QuestionPackWriter}
+     * @return the mapped question pack
+     * @throws RuntimeException if an I/O error occurs
+     * @throws IllegalArgumentException if the file is not a valid question pack
+     */
+    public static QuestionPack getQuestionPack(String file) {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            return new QuestionPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
         }
         catch (IOException e) {
             throw new RuntimeException(e);
         }
-        return questions;
+    }
+
+    /**
+     * Returns the views limit of the questions of a file, the one of its nearest tier directory.
+     *
+     * @param root the walked directory
+     * @param file the JSON file of a question in the directory
+     * @return the views limit, or 0 if the file is not in a tier directory
+     */
+    private static int viewsLimit(Path root, Path file) {
+        for (Path directory = file.getParent(); directory != null; directory = directory.getParent()) {
+            Path name = directory.getFileName();
+            Matcher matcher = TIER_DIRECTORY.matcher(name == null ? "" : name.toString());
+            if (matcher.matches()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+            if (directory.equals(root)) {
+                break;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Parses a single question file.
+     *
+     * @param file the JSON file of the question
+     * @return the parsed question
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+    private static Question parseQuestion(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, Question.class);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
\ No newline at end of file
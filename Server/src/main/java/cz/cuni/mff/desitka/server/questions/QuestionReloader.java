@@ -0,0 +1,239 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.server.logging.Log;
+import cz.cuni.mff.desitka.server.logging.LogCategory;
+import cz.cuni.mff.desitka.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class reloads the questions when their files change, so new questions are published without restarting the server.
+ * A {@link WatchService} watches the question pack, or the directory of the JSON files with its subdirectories.
+ * Once the files have not changed for a quiet period, the questions are read into a new repository on the thread
+ * of the reloader, the JSON files in parallel, while the games keep using the current repository,
+ * which the new one then replaces at once. The games in flight keep the questions of their current rounds
+ * and choose from the new repository from their next rounds on. The current repository stays if the questions cannot be read.
+ * The replaced repository is kept, so a rollback returns to it until the next reload.
+ * The reloads and the rollbacks requested by the watching or by the controls of the metrics endpoint
+ * run one after another on the thread of the reloader, so a request returns at once and never blocks its caller.
+ */
+public class QuestionReloader implements Runnable {
+    /**
+     * The system property enabling the watching of the files of the questions.
+     */
+    public final static String PROPERTY = "desitka.questions.reload";
+
+    /**
+     * The system property setting the time in milliseconds the files must not change for before they are reloaded.
+     */
+    public final static String QUIET_PERIOD_PROPERTY = "desitka.questions.reloadQuietPeriod";
+
+    private final String path;
+    private final long quietPeriod;
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "questions-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // accessed only by the thread of the reloader
+    private QuestionRepository previous;
+
+    /**
+     * Constructs a new reloader of the questions.
+     *
+     * @param path the file of the question pack, or the directory of the JSON files of the questions
+     * @param quietPeriod the time in milliseconds the files must not change for before they are reloaded
+     */
+    private QuestionReloader(String path, long quietPeriod) {
+        this.path = path;
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Creates a reloader of the loaded questions and starts watching their files on a daemon thread,
+     * unless the watching is disabled by {@value #PROPERTY}.
+     *
+     * @param path the file of the question pack, or the directory of the JSON files the questions have been loaded from
+     * @return the reloader, which reloads and rolls back the questions on request even if it does not watch them
+     */
+    public static QuestionReloader start(String path) {
+        QuestionReloader reloader = new QuestionReloader(path, Long.getLong(QUIET_PERIOD_PROPERTY, 2000));
+        if (Boolean.parseBoolean(System.getProperty(PROPERTY, "true"))) {
+            Thread thread = new Thread(reloader, "questions-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return reloader;
+    }
+
+    /**
+     * Watches the files of the questions and reloads them once they have stopped changing.
+     */
+    @Override
+    public void run() {
+        Path watched = Paths.get(path).toAbsolutePath();
+        Path packName = Files.isRegularFile(watched) ? watched.getFileName() : null;
+        Path directory = packName != null ? watched.getParent() : watched;
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            register(watchService, directory, packName == null);
+            Log.info(LogCategory.SYSTEM, "questions.watching").field("path", path).publish();
+            while (true) {
+                if (!changed(watchService.take(), watchService, packName)) {
+                    continue;
+                }
+                // a generator run writes thousands of files, they are reloaded once it has finished
+                WatchKey key;
+                while ((key = watchService.poll(quietPeriod, TimeUnit.MILLISECONDS)) != null) {
+                    changed(key, watchService, packName);
+                }
+                requestReload();
+            }
+        }
+        catch (IOException | ClosedWatchServiceException e) {
+            Log.error(LogCategory.SYSTEM, "questions.watch_failed").field("path", path).exception(e).publish();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Requests a reload of the questions on the thread of the reloader.
+     * A request made while an earlier one is still waiting is merged with it.
+     *
+     * @return the description of the request, the result is logged and counted by the metrics
+     */
+    public String requestReload() {
+        if (!reloadRequested.compareAndSet(false, true)) {
+            return "Reload already requested";
+        }
+        executor.execute(() -> {
+            reloadRequested.set(false);
+            reload();
+        });
+        return "Reload requested";
+    }
+
+    /**
+     * Requests a rollback of the questions on the thread of the reloader, after the reload in progress if there is one.
+     *
+     * @return the description of the request, the result is logged and counted by the metrics
+     */
+    public String requestRollback() {
+        executor.execute(this::rollback);
+        return "Rollback requested";
+    }
+
+    /**
+     * Reads the questions into a new repository and replaces the current one by it,
+     * or keeps the current one if the questions cannot be read.
+     */
+    private void reload() {
+        long start = System.nanoTime();
+        QuestionRepository loaded;
+        try {
+            loaded = QuestionRepository.read(path);
+        }
+        catch (RuntimeException e) {
+            ServerMetrics.QUESTION_RELOADS.increment("failed");
+            Log.warn(LogCategory.SYSTEM, "questions.reload_failed").field("path", path).exception(e).publish();
+            return;
+        }
+        ServerMetrics.QUESTION_RELOAD_DURATION.observeSince(start);
+        previous = QuestionRepository.replace(loaded);
+        ServerMetrics.QUESTION_RELOADS.increment("loaded");
+        Log.info(LogCategory.SYSTEM, "questions.reloaded")
+                .field("questions", loaded.size())
+                .field("tiers", loaded.getTiers())
+                .field("previous_questions", previous == null ? 0 : previous.size())
+                .field("reload_ms", (System.nanoTime() - start) / 1_000_000)
+                .field("heap_kib", loaded.getHeapFootprint() / 1024)
+                .field("mapped_kib", loaded.getMappedBytes() / 1024)
+                .publish();
+    }
+
+    /**
+     * Replaces the current repository by the one replaced by the last reload or rollback,
+     * so a second rollback returns to the reloaded questions.
+     */
+    private void rollback() {
+        if (previous == null) {
+            Log.warn(LogCategory.SYSTEM, "questions.rollback_unavailable").publish();
+            return;
+        }
+        QuestionRepository restored = previous;
+        previous = QuestionRepository.replace(restored);
+        ServerMetrics.QUESTION_RELOADS.increment("rolled_back");
+        Log.info(LogCategory.SYSTEM, "questions.rolled_back")
+                .field("questions", restored.size())
+                .field("replaced_questions", previous.size())
+                .publish();
+    }
+
+    /**
+     * Registers a directory for watching, with its subdirectories if the questions are JSON files.
+     *
+     * @param watchService the watch service
+     * @param directory the directory
+     * @param subdirectories true if the subdirectories are to be watched too
+     * @throws IOException if the directory cannot be registered
+     */
+    private static void register(WatchService watchService, Path directory, boolean subdirectories) throws IOException {
+        List<Path> directories;
+        if (subdirectories) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                directories = files.filter(Files::isDirectory).collect(Collectors.toList());
+            }
+        }
+        else {
+            directories = Collections.singletonList(directory);
+        }
+        for (Path watchedDirectory : directories) {
+            watchedDirectory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+    }
+
+    /**
+     * Processes the events of a watched directory and starts watching its new subdirectories.
+     *
+     * @param key the key of the directory with the events
+     * @param watchService the watch service
+     * @param packName the file name of the question pack, or null if the questions are JSON files
+     * @return true if the questions have changed, false if only other files in the directory of the pack have
+     * @throws IOException if a new subdirectory cannot be registered
+     */
+    private static boolean changed(WatchKey key, WatchService watchService, Path packName) throws IOException {
+        boolean changed = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (packName != null) {
+                changed |= file.getFileName().equals(packName);
+            }
+            else {
+                changed = true;
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                    register(watchService, file, true);
+                }
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * A process-wide, read-only repository of questions.
+ * The questions are loaded once at startup and shared by all games of the server, either parsed from JSON files
+ * into a compact {@link QuestionStore} in the heap, or mapped from a {@link QuestionPack}.
+ * Either way, a question is materialized only when a game chooses it.
+ * The keys of the questions, see {@link RecentQuestions#key(Question)}, are computed at load,
+ * so checking whether a question has been seen recently decodes nothing.
+ * The questions of all views limits are indexed once, ordered by their {@link QuestionTiers}.
+ */
+public class QuestionRepository {
+    /**
+     * Estimated size of an array header in bytes (64-bit JVM with compressed oops).
+     */
+    private final static int ARRAY_HEADER = 16;
+
+    private static volatile QuestionRepository instance;
+
+    private final QuestionStore store;
+    private final QuestionPack pack;
+    private final int[] keys;
+    private final QuestionTiers tiers;
+    private final long loadTime;
+    private final long heapFootprint;
+
+    /**
+     * Constructs a new repository holding the specified questions.
+     *
+     * @param store the compact store of the questions
+     * @param tiers the tiers of the stored questions
+     * @param loadTime the time it took to parse and store the questions in milliseconds
+     */
+    private QuestionRepository(QuestionStore store, QuestionTiers tiers, long loadTime) {
+        this.store = store;
+        this.pack = null;
+        this.tiers = tiers;
+        this.keys = new int[store.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = RecentQuestions.key(store.getText(i), store.getFirstKey(i));
+        }
+        this.loadTime = loadTime;
+        this.heapFootprint = store.getHeapFootprint() + align(ARRAY_HEADER + (long) Integer.BYTES * keys.length);
+    }
+
+    /**
+     * Constructs a new repository decoding the questions from a question pack.
+     *
+     * @param pack the mapped question pack
+     * @param loadTime the time it took to map the pack and compute the keys in milliseconds
+     * @param keys the keys of the questions of the pack
+     */
+    private QuestionRepository(QuestionPack pack, long loadTime, int[] keys) {
+        this.store = null;
+        this.pack = pack;
+        this.tiers = pack.getTiers();
+        this.keys = keys;
+        this.loadTime = loadTime;
+        this.heapFootprint = align(ARRAY_HEADER + (long) Integer.BYTES * keys.length);
+    }
+
+    /**
+     * Loads the questions and makes them available through {@link #getInstance()}.
+     * A regular file is mapped as a question pack, a directory is walked for the JSON files of the questions,
+     * whose tiers are given by their directories, see {@link QuestionParser#getTieredQuestions(String)}.
+     *
+     * @param path the file of a question pack, or the directory containing the JSON files of the questions
+     * @return the loaded repository
+     * @throws IllegalStateException if there are no questions
+     */
+    public static QuestionRepository load(String path) {
+        instance = read(path);
+        return instance;
+    }
+
+    /**
+     * Reads the questions into a new repository without making it available, see {@link #load(String)}.
+     *
+     * @param path the file of a question pack, or the directory containing the JSON files of the questions
+     * @return the read repository
+     * @throws IllegalStateException if there are no questions
+     */
+    static QuestionRepository read(String path) {
+        if (Files.isRegularFile(Paths.get(path))) {
+            long start = System.nanoTime();
+            QuestionPack pack = QuestionParser.getQuestionPack(path);
+            int[] keys = new int[pack.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = RecentQuestions.key(pack.getText(i), pack.getFirstKey(i));
+            }
+            long loadTime = (System.nanoTime() - start) / 1_000_000;
+
+            if (pack.size() == 0) {
+                throw new IllegalStateException("No questions found in " + path);
+            }
+            return new QuestionRepository(pack, loadTime, keys);
+        }
+
+        long start = System.nanoTime();
+        SortedMap<Integer, List<Question>> tieredQuestions = QuestionParser.getTieredQuestions(path);
+        if (tieredQuestions.isEmpty()) {
+            throw new IllegalStateException("No questions found in " + path);
+        }
+        List<Question> ordered = new ArrayList<>();
+        QuestionTiers tiers = QuestionTiers.order(tieredQuestions, ordered);
+        QuestionStore store = new QuestionStore(ordered);
+        long loadTime = (System.nanoTime() - start) / 1_000_000;
+        return new QuestionRepository(store, tiers, loadTime);
+    }
+
+    /**
+     * Makes another repository available through {@link #getInstance()} at once.
+     * The games use the new repository from their next round on, the questions they have already chosen stay valid.
+     *
+     * @param repository the new repository
+     * @return the replaced repository
+     */
+    static QuestionRepository replace(QuestionRepository repository) {
+        QuestionRepository replaced = instance;
+        instance = repository;
+        return replaced;
+    }
+
+    /**
+     * Returns the loaded repository.
+     *
+     * @return the loaded repository
+     * @throws IllegalStateException if the repository has not been loaded yet
+     */
+    public static QuestionRepository getInstance() {
+        QuestionRepository repository = instance;
+        if (repository == null) {
+            throw new IllegalStateException("Question repository has not been loaded");
+        }
+        return repository;
+    }
+
+    /**
+     * Returns the question at a specified index, materialized from the store or decoded from the pack for the caller.
+     *
+     * @param index the index of the question, between 0 and {@link #size()} - 1
+     * @return the question at the index
+     */
+    public Question getQuestion(int index) {
+        return store != null ? store.getQuestion(index) : pack.getQuestion(index);
+    }
+
+    /**
+     * Returns the key of the question at a specified index without decoding the question.
+     *
+     * @param index the index of the question, between 0 and {@link #size()} - 1
+     * @return the key of the question, see {@link RecentQuestions#key(Question)}
+     */
+    public int getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the number of questions in the repository.
+     *
+     * @return the number of questions
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the tiers of the questions, the ranges of their indexes by their views limits.
+     *
+     * @return the tiers of the questions
+     */
+    public QuestionTiers getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Returns the time it took to load the questions.
+     *
+     * @return the load time in milliseconds
+     */
+    public long getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * Returns the estimated heap footprint of the loaded questions.
+     *
+     * @return the estimated heap footprint in bytes
+     */
+    public long getHeapFootprint() {
+        return heapFootprint;
+    }
+
+    /**
+     * Returns the size of the mapped question pack, which is outside the heap.
+     *
+     * @return the size of the mapped pack in bytes, or 0 if the questions have been parsed from JSON files
+     */
+    public long getMappedBytes() {
+        return pack == null ? 0 : pack.getByteSize();
+    }
+
+    /**
+     * Aligns a size to the 8 byte object alignment of the JVM.
+     *
+     * @param size the size to be aligned
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents the questions in a compact form in the heap, a flyweight of the parsed questions.
+ * Every distinct string is stored once in a pool shared by all questions, the questions and their sub-questions
+ * are stored as numbers of the strings in primitive arrays. The keys and the values repeat thousands of times
+ * across the questions, so the store takes a fraction of the heap of the parsed objects.
+ * A {@link Question} is materialized only when a game chooses it; its strings are the pooled ones, so it costs
+ * a few small objects and no copying of characters. The store is read-only and shared by all games without a lock.
+ */
+public class QuestionStore {
+    /**
+     * Estimated size of an object header in bytes (64-bit JVM with compressed oops).
+     */
+    private final static int OBJECT_HEADER = 12;
+
+    /**
+     * Estimated size of an array header in bytes (64-bit JVM with compressed oops).
+     */
+    private final static int ARRAY_HEADER = 16;
+
+    /**
+     * Estimated size of a reference in bytes (64-bit JVM with compressed oops).
+     */
+    private final static int REFERENCE = 4;
+
+    private final String[] strings;
+    private final int[] texts;
+    private final int[] firstSubQuestions;
+    private final int[] keys;
+    private final int[] firstValues;
+    private final int[] values;
+    private final int[] correctIndexes;
+
+    /**
+     * Constructs a new store of the specified questions.
+     *
+     * @param questions the parsed questions, which may be discarded afterwards
+     */
+    public QuestionStore(List<Question> questions) {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> pool = new ArrayList<>();
+        int subQuestionCount = 0;
+        int valueCount = 0;
+        for (Question question : questions) {
+            for (Question.SubQuestion subQuestion : question.getSubQuestions()) {
+                subQuestionCount++;
+                valueCount += subQuestion.getValues().length;
+            }
+        }
+
+        texts = new int[questions.size()];
+        firstSubQuestions = new int[questions.size() + 1];
+        keys = new int[subQuestionCount];
+        firstValues = new int[subQuestionCount + 1];
+        values = new int[valueCount];
+        correctIndexes = new int[subQuestionCount];
+        int subQuestion = 0;
+        int value = 0;
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            texts[i] = stringIndex(question.getText(), stringIndexes, pool);
+            firstSubQuestions[i] = subQuestion;
+            for (Question.SubQuestion parsed : question.getSubQuestions()) {
+                keys[subQuestion] = stringIndex(parsed.getKey(), stringIndexes, pool);
+                correctIndexes[subQuestion] = parsed.getCorrectIndex();
+                firstValues[subQuestion] = value;
+                for (String parsedValue : parsed.getValues()) {
+                    values[value++] = stringIndex(parsedValue, stringIndexes, pool);
+                }
+                subQuestion++;
+            }
+        }
+        firstSubQuestions[questions.size()] = subQuestion;
+        firstValues[subQuestionCount] = value;
+        strings = pool.toArray(new String[0]);
+    }
+
+    /**
+     * Returns the number of questions in the store.
+     *
+     * @return the number of questions
+     */
+    public int size() {
+        return texts.length;
+    }
+
+    /**
+     * Returns the number of distinct strings in the store.
+     *
+     * @return the number of strings
+     */
+    public int getStringCount() {
+        return strings.length;
+    }
+
+    /**
+     * Materializes a question. Every call creates a new question, which may be modified by the caller,
+     * but it shares its strings with the store.
+     *
+     * @param index the index of the question, between 0 and {@link #size()} - 1
+     * @return the materialized question
+     */
+    public Question getQuestion(int index) {
+        int first = firstSubQuestions[index];
+        Question.SubQuestion[] subQuestions = new Question.SubQuestion[firstSubQuestions[index + 1] - first];
+        for (int i = 0; i < subQuestions.length; i++) {
+            int subQuestion = first + i;
+            String[] subQuestionValues = new String[firstValues[subQuestion + 1] - firstValues[subQuestion]];
+            for (int j = 0; j < subQuestionValues.length; j++) {
+                subQuestionValues[j] = string(values[firstValues[subQuestion] + j]);
+            }
+            subQuestions[i] = new Question.SubQuestion(string(keys[subQuestion]), subQuestionValues, correctIndexes[subQuestion]);
+        }
+        return new Question(string(texts[index]), subQuestions);
+    }
+
+    /**
+     * Returns the text of a question without materializing it.
+     *
+     * @param index the index of the question
+     * @return the text of the question
+     */
+    public String getText(int index) {
+        return string(texts[index]);
+    }
+
+    /**
+     * Returns the key of the first sub-question of a question without materializing it.
+     *
+     * @param index the index of the question
+     * @return the key of the first sub-question, or null if the question has no sub-questions
+     */
+    public String getFirstKey(int index) {
+        int first = firstSubQuestions[index];
+        return first == firstSubQuestions[index + 1] ? null : string(keys[first]);
+    }
+
+    /**
+     * Estimates the heap footprint of the store, the pooled strings and the arrays.
+     *
+     * @return the estimated heap footprint in bytes
+     */
+    public long getHeapFootprint() {
+        long size = align(OBJECT_HEADER + 7 * REFERENCE) + align(ARRAY_HEADER + (long) REFERENCE * strings.length);
+        for (String string : strings) {
+            size += estimateStringSize(string);
+        }
+        for (int[] array : new int[][]{texts, firstSubQuestions, keys, firstValues, values, correctIndexes}) {
+            size += align(ARRAY_HEADER + (long) Integer.BYTES * array.length);
+        }
+        return size;
+    }
+
+    /**
+     * Returns a pooled string.
+     *
+     * @param string the number of the string, or -1 for null
+     * @return the string
+     */
+    private String string(int string) {
+        return string < 0 ? null : strings[string];
+    }
+
+    /**
+     * Returns the number of a string in the pool, adding the string if it is not there yet.
+     *
+     * @param string the string, or null
+     * @param stringIndexes the numbers of the pooled strings
+     * @param pool the pooled strings
+     * @return the number of the string, or -1 for null
+     */
+    private static int stringIndex(String string, Map<String, Integer> stringIndexes, List<String> pool) {
+        if (string == null) {
+            return -1;
+        }
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = pool.size();
+            pool.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    /**
+     * Estimates the heap footprint of a string including its backing array.
+     *
+     * @param string the string to be measured
+     * @return the estimated heap footprint in bytes
+     */
+    private static long estimateStringSize(String string) {
+        if (string == null) {
+            return 0;
+        }
+        return align(OBJECT_HEADER + REFERENCE + 2 * Integer.BYTES) + align(ARRAY_HEADER + 2L * string.length());
+    }
+
+    /**
+     * Aligns a size to the 8 byte object alignment of the JVM.
+     *
+     * @param size the size to be aligned
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
\ No newline at end of file
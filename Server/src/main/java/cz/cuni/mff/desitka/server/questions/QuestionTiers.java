@@ -0,0 +1,194 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * This class represents the difficulty tiers of the questions of a repository.
+ * The generator produces the questions for several views limits, the minimum numbers of views of the Wikipedia pages
+ * of the keys, so a question of a higher views limit asks about better-known keys and is easier.
+ * The questions of the repository are ordered by their tiers from the hardest to the easiest, so a tier is
+ * a contiguous range of the indexes of the questions and choosing a question of a tier costs the same as choosing any question.
+ * Questions without a views limit form a single tier of the views limit 0.
+ */
+public class QuestionTiers {
+    /**
+     * The system property setting the number of rounds a game plays in a tier before it moves to a harder one.
+     */
+    public final static String RAMP_ROUNDS_PROPERTY = "desitka.questions.rampRounds";
+
+    private final static int RAMP_ROUNDS = Math.max(1, Integer.getInteger(RAMP_ROUNDS_PROPERTY, 3));
+
+    private final int[] viewsLimits;
+    private final int[] starts;
+
+    /**
+     * Constructs new tiers.
+     *
+     * @param viewsLimits the views limits of the tiers in ascending order
+     * @param starts the indexes of the first questions of the tiers, followed by the number of all questions
+     * @throws IllegalArgumentException if the tiers are not ordered, or some of them are empty
+     */
+    public QuestionTiers(int[] viewsLimits, int[] starts) {
+        if (viewsLimits.length == 0 || starts.length != viewsLimits.length + 1 || starts[0] != 0) {
+            throw new IllegalArgumentException("Invalid question tiers");
+        }
+        for (int i = 0; i < viewsLimits.length; i++) {
+            if (starts[i + 1] <= starts[i] || i > 0 && viewsLimits[i] <= viewsLimits[i - 1]) {
+                throw new IllegalArgumentException("Question tiers must be non-empty and ordered by their views limits");
+            }
+        }
+        this.viewsLimits = viewsLimits;
+        this.starts = starts;
+    }
+
+    /**
+     * Returns a single tier of the views limit 0 holding all questions.
+     *
+     * @param questionCount the number of the questions
+     * @return the single tier
+     */
+    public static QuestionTiers single(int questionCount) {
+        return new QuestionTiers(new int[]{0}, new int[]{0, questionCount});
+    }
+
+    /**
+     * Orders the questions of several views limits by their tiers and removes the duplicates.
+     * A question generated for several views limits, with the same text and the same keys, is kept only once,
+     * in the tier of the highest views limit, because its keys are well-known enough for it.
+     *
+     * @param tieredQuestions the questions by their views limits
+     * @param ordered the list receiving the questions ordered by their tiers
+     * @return the tiers of the ordered questions
+     * @throws IllegalArgumentException if there are no questions
+     */
+    public static QuestionTiers order(SortedMap<Integer, List<Question>> tieredQuestions, List<Question> ordered) {
+        List<Integer> limits = new ArrayList<>(tieredQuestions.keySet());
+        List<List<Question>> tiers = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int i = limits.size() - 1; i >= 0; i--) {
+            List<Question> tier = new ArrayList<>();
+            for (Question question : tieredQuestions.get(limits.get(i))) {
+                if (seen.add(identity(question))) {
+                    tier.add(question);
+                }
+            }
+            tiers.add(0, tier);
+        }
+
+        List<Integer> viewsLimits = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < limits.size(); i++) {
+            if (!tiers.get(i).isEmpty()) {
+                viewsLimits.add(limits.get(i));
+                starts.add(ordered.size());
+                ordered.addAll(tiers.get(i));
+            }
+        }
+        starts.add(ordered.size());
+        return new QuestionTiers(viewsLimits.stream().mapToInt(Integer::intValue).toArray(),
+                starts.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Returns the number of the tiers.
+     *
+     * @return the number of the tiers
+     */
+    public int count() {
+        return viewsLimits.length;
+    }
+
+    /**
+     * Returns the views limit of a tier.
+     *
+     * @param tier the tier, from 0 for the hardest one
+     * @return the views limit of the tier
+     */
+    public int getViewsLimit(int tier) {
+        return viewsLimits[tier];
+    }
+
+    /**
+     * Returns the index of the first question of a tier.
+     *
+     * @param tier the tier
+     * @return the index of the first question of the tier in the repository
+     */
+    public int getStart(int tier) {
+        return starts[tier];
+    }
+
+    /**
+     * Returns the number of questions of a tier.
+     *
+     * @param tier the tier
+     * @return the number of questions of the tier
+     */
+    public int size(int tier) {
+        return starts[tier + 1] - starts[tier];
+    }
+
+    /**
+     * Returns the tier of a requested views limit, the one of the highest views limit not exceeding it,
+     * or the hardest one if all views limits exceed it.
+     *
+     * @param viewsLimit the requested views limit
+     * @return the tier
+     */
+    public int tierOf(int viewsLimit) {
+        int tier = 0;
+        while (tier + 1 < viewsLimits.length && viewsLimits[tier + 1] <= viewsLimit) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Returns the tier of a round of a game whose difficulty ramps up: the game starts in the easiest tier
+     * and moves to a harder tier every few rounds, see {@value #RAMP_ROUNDS_PROPERTY}, until it reaches the hardest one.
+     *
+     * @param round the number of the round, starting from 1
+     * @return the tier
+     */
+    public int rampTier(int round) {
+        return Math.max(0, viewsLimits.length - 1 - (round - 1) / RAMP_ROUNDS);
+    }
+
+    /**
+     * Returns the description of the tiers for the log, their views limits with their numbers of questions.
+     *
+     * @return the description of the tiers, e.g. {@code 128:3455,256:1690}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int tier = 0; tier < viewsLimits.length; tier++) {
+            if (tier > 0) {
+                builder.append(',');
+            }
+            builder.append(viewsLimits[tier]).append(':').append(size(tier));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the identity of a question, its text and the keys of its sub-questions.
+     * Many questions share their text, the keys tell them apart also in a question without the correct answers.
+     *
+     * @param question the question
+     * @return the identity of the question
+     */
+    public static String identity(Question question) {
+        StringBuilder builder = new StringBuilder(String.valueOf(question.getText()));
+        for (Question.SubQuestion subQuestion : question.getSubQuestions()) {
+            builder.append('\u0000').append(subQuestion.getKey());
+        }
+        return builder.toString();
+    }
+}
\ No newline at end of file
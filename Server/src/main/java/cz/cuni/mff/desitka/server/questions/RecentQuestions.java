@@ -0,0 +1,199 @@
+package cz.cuni.mff.desitka.server.questions;
+
+import cz.cuni.mff.desitka.JSON.Question;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This class represents the questions recently seen by the players, remembered by their names across games.
+ * Every player name is hashed to one of a fixed number of slots, each holding two Bloom filters of 512 bits,
+ * so the memory is bounded whatever the number of players: 128 bytes per slot, shared by the players of colliding names.
+ * A question is added to the newer filter of the slot; once the newer filter holds its generation of questions,
+ * the older one is cleared and becomes the newer one, so the questions are forgotten after one to two generations.
+ * A filter may answer that a question has been seen though it has not, never the other way round,
+ * so a false answer only makes the game choose another question.
+ * The filters are updated by atomic operations and shared by all games without a lock.
+ */
+public class RecentQuestions {
+    /**
+     * The system property setting the number of slots, rounded up to a power of two.
+     */
+    public final static String SLOTS_PROPERTY = "desitka.questions.recentSlots";
+
+    /**
+     * The system property setting the number of questions of a generation of a slot.
+     */
+    public final static String GENERATION_SIZE_PROPERTY = "desitka.questions.recentGenerationSize";
+
+    private final static int WORDS_PER_FILTER = 8;
+    private final static int FILTER_BITS = WORDS_PER_FILTER * Long.SIZE;
+    private final static int HASHES = 5;
+
+    private final static RecentQuestions instance = new RecentQuestions(
+            Integer.getInteger(SLOTS_PROPERTY, 1 << 16), Integer.getInteger(GENERATION_SIZE_PROPERTY, 48));
+
+    private final AtomicLongArray filters;
+    private final AtomicIntegerArray counts;
+    private final int slotMask;
+    private final int generationSize;
+    private final IntUnaryOperator nextCount;
+
+    /**
+     * Constructs new filters of the recently seen questions.
+     *
+     * @param slots the number of slots, rounded up to a power of two
+     * @param generationSize the number of questions added to a filter before the older filter of the slot is cleared
+     */
+    public RecentQuestions(int slots, int generationSize) {
+        int slotCount = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.slotMask = slotCount - 1;
+        this.generationSize = Math.max(1, generationSize);
+        this.filters = new AtomicLongArray(slotCount * 2 * WORDS_PER_FILTER);
+        this.counts = new AtomicIntegerArray(slotCount);
+        // the count of a slot runs through both generations, so it says which filter is the newer one
+        int period = 2 * this.generationSize;
+        this.nextCount = count -> count + 1 == period ? 0 : count + 1;
+    }
+
+    /**
+     * Returns the filters shared by all games of the server.
+     *
+     * @return the shared filters
+     */
+    public static RecentQuestions getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the key of a question, a hash of its text and its first sub-question,
+     * which identifies the question even if its position in the repository changes.
+     *
+     * @param question the question
+     * @return the key of the question
+     */
+    public static int key(Question question) {
+        Question.SubQuestion[] subQuestions = question.getSubQuestions();
+        return key(question.getText(), subQuestions != null && subQuestions.length > 0 ? subQuestions[0].getKey() : null);
+    }
+
+    /**
+     * Returns the key of a question from its text and the key of its first sub-question, see {@link #key(Question)}.
+     *
+     * @param text the text of the question
+     * @param firstKey the key of the first sub-question, or null if the question has no sub-questions
+     * @return the key of the question
+     */
+    public static int key(String text, String firstKey) {
+        int hash = Objects.hashCode(text);
+        if (firstKey != null) {
+            hash = 31 * hash + firstKey.hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Remembers that a player has seen a question.
+     *
+     * @param playerName the name of the player
+     * @param questionKey the key of the question
+     */
+    public void add(String playerName, int questionKey) {
+        int slot = slot(playerName);
+        int count = counts.getAndUpdate(slot, nextCount);
+        int filter = 2 * slot + count / generationSize;
+        if (count % generationSize == 0) {
+            // a new generation starts, the filter forgets the questions of the generation before the last one
+            clear(filter);
+        }
+        long hash = mix(questionKey);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (FILTER_BITS - 1);
+            int word = filter * WORDS_PER_FILTER + (bit >>> 6);
+            long mask = 1L << bit;
+            long current = filters.get(word);
+            while ((current & mask) == 0 && !filters.compareAndSet(word, current, current | mask)) {
+                current = filters.get(word);
+            }
+        }
+    }
+
+    /**
+     * Checks if a player might have seen a question recently.
+     *
+     * @param playerName the name of the player
+     * @param questionKey the key of the question
+     * @return true if the player might have seen the question, false if the player has surely not seen it recently
+     */
+    public boolean mightContain(String playerName, int questionKey) {
+        int slot = slot(playerName);
+        long hash = mix(questionKey);
+        return contains(2 * slot, hash) || contains(2 * slot + 1, hash);
+    }
+
+    /**
+     * Returns the number of bytes of the filters.
+     *
+     * @return the memory of the filters in bytes
+     */
+    public long getMemory() {
+        return filters.length() * (long) Long.BYTES + counts.length() * (long) Integer.BYTES;
+    }
+
+    /**
+     * Checks if a filter contains all bits of a question.
+     *
+     * @param filter the index of the filter
+     * @param hash the mixed key of the question
+     * @return true if all bits are set, false otherwise
+     */
+    private boolean contains(int filter, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & (FILTER_BITS - 1);
+            if ((filters.get(filter * WORDS_PER_FILTER + (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clears a filter.
+     *
+     * @param filter the index of the filter
+     */
+    private void clear(int filter) {
+        for (int i = 0; i < WORDS_PER_FILTER; i++) {
+            filters.set(filter * WORDS_PER_FILTER + i, 0);
+        }
+    }
+
+    /**
+     * Returns the slot of a player name.
+     *
+     * @param playerName the name of the player
+     * @return the index of the slot
+     */
+    private int slot(String playerName) {
+        return (int) mix(playerName.hashCode()) & slotMask;
+    }
+
+    /**
+     * Spreads the bits of a hash, the finalizer of SplitMix64.
+     *
+     * @param value the hash
+     * @return the mixed hash
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file